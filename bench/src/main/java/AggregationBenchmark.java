@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the throughput of the participant aggregation behind getPtcpCountByInst and
+ * getPtcpCountByInstAndSubject on 1, 2, 4, ... threads, up to the number of processors.
+ * Usage: AggregationBenchmark [scale] [rounds], run from the project root.
+ * The data rows of resources/local.csv are repeated scale times, see LoaderBenchmark.
+ */
+public class AggregationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path dataset = LoaderBenchmark.scaleUp(Paths.get("resources", "local.csv"), scale);
+        CourseTable table;
+        try {
+            table = MappedCsvLoader.load(dataset, ForkJoinPool.commonPool());
+        } finally {
+            Files.deleteIfExists(dataset);
+        }
+        System.out.printf("dataset: %d rows%n", table.size);
+        int processors = Runtime.getRuntime().availableProcessors();
+        ParticipantTotals expected = ParticipantTotals.aggregate(table, new ForkJoinPool(1));
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int round = 1; round <= rounds; round++) {
+                    long start = System.nanoTime();
+                    ParticipantTotals totals = ParticipantTotals.aggregate(table, pool);
+                    long elapsed = System.nanoTime() - start;
+                    check(expected, totals, table);
+                    System.out.printf("%2d threads, round %d: %8.1f M rows/s%n",
+                        threads, round, table.size / (elapsed / 1e3));
+                }
+            } finally {
+                pool.shutdown();
+            }
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+
+    private static void check(ParticipantTotals expected, ParticipantTotals actual, CourseTable table) {
+        for (int code = 0; code < table.institutions.size(); code++) {
+            if (expected.institution(code) != actual.institution(code)) {
+                throw new IllegalStateException("institution totals differ for " + table.institutions.decode(code));
+            }
+        }
+        LongIntHashMap pairs = expected.byInstitutionAndSubject;
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            if (pairs.isUsed(slot) && pairs.valueAt(slot) != actual.byInstitutionAndSubject.get(pairs.keyAt(slot))) {
+                throw new IllegalStateException("institution and subject totals differ");
+            }
+        }
+        if (pairs.size() != actual.byInstitutionAndSubject.size()) {
+            throw new IllegalStateException("institution and subject totals differ");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compares the throughput of the old regex-split loader with the CsvTokenizer
+ * based constructor of OnlineCoursesAnalyzer, in streaming and mapped parallel mode.
+ * Usage: LoaderBenchmark [scale] [rounds], run from the project root.
+ * The data rows of resources/local.csv are repeated scale times into a temp file.
+ */
+public class LoaderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path dataset = scaleUp(Paths.get("resources", "local.csv"), scale);
+        try {
+            long bytes = Files.size(dataset);
+            System.out.printf("dataset: %s, %.1f MB%n", dataset, bytes / 1e6);
+            for (int round = 1; round <= rounds; round++) {
+                long start = System.nanoTime();
+                int legacyRows = legacyLoad(dataset.toString()).size();
+                long legacy = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int rows = new OnlineCoursesAnalyzer(dataset.toString()).courses().size();
+                long tokenizer = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int mappedRows = new OnlineCoursesAnalyzer(dataset.toString(),
+                    OnlineCoursesAnalyzer.IngestMode.MAPPED_PARALLEL).courses().size();
+                long mapped = System.nanoTime() - start;
+
+                if (rows != legacyRows || mappedRows != legacyRows) {
+                    throw new IllegalStateException("row count mismatch: " + rows + ", " + mappedRows
+                        + " vs " + legacyRows);
+                }
+                System.out.printf("round %d: regex %7.1f MB/s, tokenizer %7.1f MB/s, mapped parallel %7.1f MB/s"
+                        + " (%d rows)%n",
+                    round, bytes / (legacy / 1e3), bytes / (tokenizer / 1e3), bytes / (mapped / 1e3), rows);
+            }
+        } finally {
+            Files.deleteIfExists(dataset);
+        }
+    }
+
+    static Path scaleUp(Path source, int scale) throws IOException {
+        List<String> lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+        Path target = Files.createTempFile("courses-x" + scale + "-", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            out.write(lines.get(0));
+            out.newLine();
+            for (int i = 0; i < scale; i++) {
+                for (int j = 1; j < lines.size(); j++) {
+                    out.write(lines.get(j));
+                    out.newLine();
+                }
+            }
+        }
+        return target;
+    }
+
+    // the loader as it was before CsvTokenizer, kept as the baseline
+    static List<Course> legacyLoad(String datasetPath) throws IOException {
+        List<Course> courses = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(datasetPath, StandardCharsets.UTF_8))) {
+            String line;
+            br.readLine();
+            while ((line = br.readLine()) != null) {
+                String[] info = line.split(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
+                courses.add(new Course(info[0], info[1], new Date(info[2]).toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), info[3], info[4], info[5],
+                    Integer.parseInt(info[6]), Integer.parseInt(info[7]), Integer.parseInt(info[8]),
+                    Integer.parseInt(info[9]), Integer.parseInt(info[10]),
+                    Double.parseDouble(info[11]), Double.parseDouble(info[12]), Double.parseDouble(info[13]),
+                    Double.parseDouble(info[14]), Double.parseDouble(info[15]), Double.parseDouble(info[16]),
+                    Double.parseDouble(info[17]), Double.parseDouble(info[18]), Double.parseDouble(info[19]),
+                    Double.parseDouble(info[20]), Double.parseDouble(info[21]), Double.parseDouble(info[22])));
+            }
+        }
+        return courses;
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Puts a QueryServer under concurrent load and reports throughput and latency percentiles.
+ * Usage: QueryServerLoadTest datasetPath [clients] [seconds] [cached], run from the project root.
+ * The server runs in this process on a free port; every client sends a random mix of the
+ * six queries and small batches, one request at a time. With cached false the query cache
+ * is off, so repeated queries are only shared by request coalescing.
+ */
+public class QueryServerLoadTest {
+    private static final String[] SUBJECTS = {"computer", "science", "history", "health", "math"};
+    private static final String[] CRITERIA = {"hours", "participants", "certified", "audited"};
+
+    public static void main(String[] args) throws Exception {
+        String dataset = args.length > 0 ? args[0] : "resources/local.csv";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        boolean cached = args.length <= 3 || Boolean.parseBoolean(args[3]);
+
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(dataset);
+        analyzer.setQueryCacheEnabled(cached);
+        QueryServer server = new QueryServer(analyzer, new InetSocketAddress("localhost", 0));
+        server.start();
+        String base = "http://localhost:" + server.port();
+        HttpClient client = HttpClient.newBuilder().executor(QueryServer.newRequestExecutor()).build();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        ExecutorService pool = QueryServer.newRequestExecutor();
+        try {
+            // warm up the server and the JIT before measuring
+            run(client, base, 1, 3, new LatencyHistogram(), errors, pool);
+            long start = System.nanoTime();
+            run(client, base, clients, seconds, latency, errors, pool);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d clients, %s cache: %d requests in %.1f s (%.0f requests/s), %d errors, %d coalesced%n",
+                clients, cached ? "with" : "without", latency.count(), elapsed, latency.count() / elapsed,
+                errors.sum(), server.coalescedRequests());
+            System.out.printf("latency: mean %.0f us, p50 %.0f us, p90 %.0f us, p99 %.0f us, max %.0f us%n",
+                latency.mean() / 1e3, latency.percentile(50) / 1e3, latency.percentile(90) / 1e3,
+                latency.percentile(99) / 1e3, latency.max() / 1e3);
+        } finally {
+            pool.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    private static void run(HttpClient client, String base, int clients, int seconds, LatencyHistogram latency,
+                            LongAdder errors, ExecutorService pool) throws Exception {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<?>> running = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            SplittableRandom random = new SplittableRandom(c);
+            running.add(pool.submit(() -> {
+                while (System.nanoTime() < end) {
+                    HttpRequest request = randomRequest(base, random);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request,
+                            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    } catch (IOException e) {
+                        errors.increment();
+                    }
+                    latency.record(System.nanoTime() - start);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+    }
+
+    private static HttpRequest randomRequest(String base, SplittableRandom random) {
+        String path;
+        switch (random.nextInt(8)) {
+            case 0:
+                path = "/ptcpCountByInst";
+                break;
+            case 1:
+                path = "/ptcpCountByInstAndSubject";
+                break;
+            case 2:
+                path = "/courseListOfInstructor";
+                break;
+            case 3:
+                path = "/courses?topK=" + (5 + random.nextInt(20)) + "&by=" + CRITERIA[random.nextInt(CRITERIA.length)];
+                break;
+            case 4:
+                path = "/searchCourses?subject=" + SUBJECTS[random.nextInt(SUBJECTS.length)]
+                    + "&percentAudited=" + 5 * random.nextInt(8) + "&totalCourseHours=" + 100 * (1 + random.nextInt(8));
+                break;
+            case 5:
+                path = "/recommendCourses?age=" + (18 + random.nextInt(40)) + "&gender=" + random.nextInt(2)
+                    + "&isBachelorOrHigher=" + random.nextInt(2);
+                break;
+            case 6:
+                StringBuilder users = new StringBuilder();
+                for (int i = 0; i < 32; i++) {
+                    users.append(18 + random.nextInt(40)).append(',').append(random.nextInt(2)).append(',')
+                        .append(random.nextInt(2)).append('\n');
+                }
+                return post(base + "/batch/recommendCourses", users.toString());
+            default:
+                StringBuilder queries = new StringBuilder();
+                for (int i = 0; i < 32; i++) {
+                    queries.append(SUBJECTS[random.nextInt(SUBJECTS.length)]).append(',').append(5 * random.nextInt(8))
+                        .append(',').append(100 * (1 + random.nextInt(8))).append('\n');
+                }
+                return post(base + "/batch/searchCourses", queries.toString());
+        }
+        return HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+    }
+
+    private static HttpRequest post(String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+}
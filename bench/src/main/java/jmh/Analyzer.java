@@ -0,0 +1,147 @@
+package jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed access to the public API of OnlineCoursesAnalyzer. The analyzer lives in the unnamed
+ * package, which code in a named package (as JMH requires for benchmarks) cannot import, so
+ * its methods are bound once as method handles; invokeExact on static final handles is
+ * inlined by the JIT and boxes nothing.
+ */
+final class Analyzer {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final Class<?> TYPE = type("OnlineCoursesAnalyzer");
+    private static final Class<?> INGEST_MODE = type("OnlineCoursesAnalyzer$IngestMode");
+
+    private static final MethodHandle NEW = constructor(String.class, INGEST_MODE);
+    private static final MethodHandle SET_QUERY_CACHE_ENABLED = method("setQueryCacheEnabled", void.class, boolean.class);
+    private static final MethodHandle GET_PTCP_COUNT_BY_INST = method("getPtcpCountByInst", Map.class);
+    private static final MethodHandle GET_PTCP_COUNT_BY_INST_AND_SUBJECT = method("getPtcpCountByInstAndSubject", Map.class);
+    private static final MethodHandle GET_COURSE_LIST_OF_INSTRUCTOR = method("getCourseListOfInstructor", Map.class);
+    private static final MethodHandle GET_COURSES = method("getCourses", List.class, int.class, String.class);
+    private static final MethodHandle SEARCH_COURSES = method("searchCourses", List.class, String.class, double.class, double.class);
+    private static final MethodHandle SEARCH_COURSES_BETWEEN = method("searchCourses", List.class, String.class, double.class,
+        double.class, LocalDate.class, LocalDate.class);
+    private static final MethodHandle RECOMMEND_COURSES = method("recommendCourses", List.class, int.class, int.class, int.class);
+
+    private final Object analyzer;
+
+    /** Loads the dataset; mode is the name of an OnlineCoursesAnalyzer.IngestMode constant. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Analyzer(String datasetPath, String mode) {
+        try {
+            analyzer = (Object) NEW.invokeExact(datasetPath, (Object) Enum.valueOf((Class) INGEST_MODE, mode));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    void setQueryCacheEnabled(boolean enabled) {
+        try {
+            SET_QUERY_CACHE_ENABLED.invokeExact(analyzer, enabled);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    Map<?, ?> getPtcpCountByInst() {
+        try {
+            return (Map<?, ?>) GET_PTCP_COUNT_BY_INST.invokeExact(analyzer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    Map<?, ?> getPtcpCountByInstAndSubject() {
+        try {
+            return (Map<?, ?>) GET_PTCP_COUNT_BY_INST_AND_SUBJECT.invokeExact(analyzer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    Map<?, ?> getCourseListOfInstructor() {
+        try {
+            return (Map<?, ?>) GET_COURSE_LIST_OF_INSTRUCTOR.invokeExact(analyzer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    List<?> getCourses(int topK, String by) {
+        try {
+            return (List<?>) GET_COURSES.invokeExact(analyzer, topK, by);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    List<?> searchCourses(String courseSubject, double percentAudited, double totalCourseHours) {
+        try {
+            return (List<?>) SEARCH_COURSES.invokeExact(analyzer, courseSubject, percentAudited, totalCourseHours);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    List<?> searchCourses(String courseSubject, double percentAudited, double totalCourseHours,
+                          LocalDate from, LocalDate to) {
+        try {
+            return (List<?>) SEARCH_COURSES_BETWEEN.invokeExact(analyzer, courseSubject, percentAudited, totalCourseHours,
+                from, to);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    List<?> recommendCourses(int age, int gender, int isBachelorOrHigher) {
+        try {
+            return (List<?>) RECOMMEND_COURSES.invokeExact(analyzer, age, gender, isBachelorOrHigher);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the constructor as (String, Object) -> Object
+    private static MethodHandle constructor(Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(TYPE, MethodType.methodType(void.class, parameters));
+            return handle.asType(MethodType.methodType(Object.class, String.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the instance method with the receiver typed as Object and its return type erased to the raw interface
+    private static MethodHandle method(String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(TYPE, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
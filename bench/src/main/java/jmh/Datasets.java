@@ -0,0 +1,62 @@
+package jmh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Synthetic datasets for the benchmarks, written by DatasetGenerator from the statistics of
+ * resources/local.csv with a fixed seed, once per row count, to a temp file that is deleted
+ * when the JVM exits. Run the benchmarks from the project root, or point -Ddataset at local.csv.
+ */
+final class Datasets {
+    private static final long SEED = 209;
+    private static final MethodHandle GENERATE = generator();
+    private static final Map<Long, Path> GENERATED = new ConcurrentHashMap<>();
+
+    private Datasets() {
+    }
+
+    static Path generated(long rows) {
+        return GENERATED.computeIfAbsent(rows, Datasets::generate);
+    }
+
+    private static Path source() {
+        String configured = System.getProperty("dataset");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        Path local = Paths.get("resources", "local.csv");
+        return Files.exists(local) ? local : Paths.get("..", "resources", "local.csv");
+    }
+
+    private static Path generate(long rows) {
+        try {
+            Path target = Files.createTempFile("courses-" + rows + "-", ".csv");
+            target.toFile().deleteOnExit();
+            GENERATE.invokeExact(source(), target, rows, SEED);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // DatasetGenerator.generate(source, target, rows, seed), see Analyzer for why it is a handle
+    private static MethodHandle generator() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("DatasetGenerator"), "generate",
+                MethodType.methodType(void.class, Path.class, Path.class, long.class, long.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
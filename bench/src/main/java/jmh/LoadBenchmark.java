@@ -0,0 +1,35 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OnlineCoursesAnalyzer constructor: parsing the CSV file and building every index,
+ * in both ingest modes, over synthetic datasets of the given number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    long rows;
+
+    @Param({"STREAMING", "MAPPED_PARALLEL"})
+    String mode;
+
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        path = Datasets.generated(rows).toString();
+    }
+
+    @Benchmark
+    public Object load() {
+        return new Analyzer(path, mode);
+    }
+}
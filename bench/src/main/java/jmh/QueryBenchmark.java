@@ -0,0 +1,70 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The six queries, with the arguments of LocalAnalyzerTest, over an analyzer loaded with a
+ * synthetic dataset of the given number of rows.
+ * With cached=false the query result cache is off and every call computes its answer;
+ * with cached=true all but the first call are cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    long rows;
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    private Analyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        analyzer = new Analyzer(Datasets.generated(rows).toString(), "STREAMING");
+        analyzer.setQueryCacheEnabled(cached);
+    }
+
+    @Benchmark
+    public Map<?, ?> ptcpCountByInst() {
+        return analyzer.getPtcpCountByInst();
+    }
+
+    @Benchmark
+    public Map<?, ?> ptcpCountByInstAndSubject() {
+        return analyzer.getPtcpCountByInstAndSubject();
+    }
+
+    @Benchmark
+    public Map<?, ?> courseListOfInstructor() {
+        return analyzer.getCourseListOfInstructor();
+    }
+
+    @Benchmark
+    public List<?> coursesByHours() {
+        return analyzer.getCourses(10, "hours");
+    }
+
+    @Benchmark
+    public List<?> coursesByParticipants() {
+        return analyzer.getCourses(15, "participants");
+    }
+
+    @Benchmark
+    public List<?> searchCourses() {
+        return analyzer.searchCourses("computer", 20.0, 700);
+    }
+
+    @Benchmark
+    public List<?> recommendCourses() {
+        return analyzer.recommendCourses(30, 0, 1);
+    }
+}
@@ -0,0 +1,51 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchCourses with the query result cache off, over an analyzer loaded with a synthetic
+ * dataset of the given number of rows: a selective and a broad subject through the search
+ * index, and the broad one over a launch date window. With -prof gc (on by default, see
+ * Benchmarks) gc.alloc.rate.norm shows the bytes a call allocates, which should not grow
+ * with the number of rows scanned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    private static final LocalDate FROM = LocalDate.of(2013, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2016, 12, 31);
+
+    @Param({"10000", "100000", "1000000"})
+    long rows;
+
+    private Analyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        analyzer = new Analyzer(Datasets.generated(rows).toString(), "STREAMING");
+        analyzer.setQueryCacheEnabled(false);
+    }
+
+    @Benchmark
+    public List<?> selective() {
+        return analyzer.searchCourses("computer", 20.0, 700);
+    }
+
+    @Benchmark
+    public List<?> broad() {
+        return analyzer.searchCourses("SCIENCE", 0, 1000);
+    }
+
+    @Benchmark
+    public List<?> broadBetween() {
+        return analyzer.searchCourses("SCIENCE", 0, 1000, FROM, TO);
+    }
+}
@@ -0,0 +1,236 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A declarative group-by query over the course columns, run by OnlineCoursesAnalyzer.aggregate.
+ * For example, certified learners and median hours per subject and launch year:
+ * <pre>
+ * Aggregation.groupBy(CourseColumn.SUBJECT, CourseColumn.LAUNCH_YEAR)
+ *     .sum(CourseColumn.CERTIFIED)
+ *     .percentile(CourseColumn.MEDIAN_HOURS_CERTIFICATION, 50)
+ *     .where(CourseColumn.LAUNCH_DATE, LocalDate.of(2014, 1, 1), LocalDate.of(2015, 12, 31))
+ *     .orderBy("sum(certified)", true)
+ *     .limit(10);
+ * </pre>
+ * The result has one row per group of the rows passing every filter, with the group keys
+ * followed by the aggregates; groups without rows do not appear. Rows are ordered by the orderBy
+ * columns, then by the keys ascending.
+ * Building methods return this aggregation and reject arguments that do not fit the columns.
+ */
+public final class Aggregation {
+
+    enum Function {
+        COUNT,
+        SUM,
+        AVG,
+        MIN,
+        MAX,
+        PERCENTILE
+    }
+
+    static final class Aggregate {
+        final Function function;
+        final CourseColumn column;
+        final double percentile;
+        final String label;
+
+        Aggregate(Function function, CourseColumn column, double percentile, String label) {
+            this.function = function;
+            this.column = column;
+            this.percentile = percentile;
+            this.label = label;
+        }
+    }
+
+    /** A row filter: accept on the text of a TEXT column, or an inclusive range of another column. */
+    static final class Filter {
+        final CourseColumn column;
+        final Predicate<String> accept;
+        final double min;
+        final double max;
+
+        Filter(CourseColumn column, Predicate<String> accept, double min, double max) {
+            this.column = column;
+            this.accept = accept;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    static final class Order {
+        final int column;
+        final boolean descending;
+
+        Order(int column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+    }
+
+    final List<CourseColumn> keys;
+    final List<Aggregate> aggregates = new ArrayList<>();
+    final List<Filter> filters = new ArrayList<>();
+    final List<Order> order = new ArrayList<>();
+    int limit = Integer.MAX_VALUE;
+
+    private Aggregation(List<CourseColumn> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * An aggregation grouping on the given columns, in this order; without columns all rows form
+     * one group. DOUBLE columns cannot be grouped on.
+     */
+    public static Aggregation groupBy(CourseColumn... keys) {
+        for (CourseColumn key : keys) {
+            if (!key.isIntValued()) {
+                throw new IllegalArgumentException("Cannot group on " + key.label);
+            }
+        }
+        List<CourseColumn> columns = List.of(keys);
+        if (columns.size() != columns.stream().distinct().count()) {
+            throw new IllegalArgumentException("Duplicate group key in " + columns);
+        }
+        return new Aggregation(columns);
+    }
+
+    /** Adds the number of rows, labelled count. */
+    public Aggregation count() {
+        return add(new Aggregate(Function.COUNT, null, 0, "count"));
+    }
+
+    /** Adds the sum of a numeric column, labelled sum(column), a Long for INT columns. */
+    public Aggregation sum(CourseColumn column) {
+        return add(Function.SUM, numeric(column), "sum(" + column.label + ")");
+    }
+
+    /** Adds the mean of a numeric column, labelled avg(column). */
+    public Aggregation avg(CourseColumn column) {
+        return add(Function.AVG, numeric(column), "avg(" + column.label + ")");
+    }
+
+    /** Adds the least value of a numeric or date column, labelled min(column). */
+    public Aggregation min(CourseColumn column) {
+        return add(Function.MIN, ordered(column), "min(" + column.label + ")");
+    }
+
+    /** Adds the greatest value of a numeric or date column, labelled max(column). */
+    public Aggregation max(CourseColumn column) {
+        return add(Function.MAX, ordered(column), "max(" + column.label + ")");
+    }
+
+    /**
+     * Adds the nearest-rank percentile of a numeric column, labelled p&lt;percentile&gt;(column)
+     * such as p50(totalHours), exact over all rows of the group. It keeps every value of the
+     * column for the rows passing the filters until the result is built; for estimates in fixed
+     * memory see OnlineCoursesAnalyzer.approximate.
+     */
+    public Aggregation percentile(CourseColumn column, double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile out of (0, 100]: " + percentile);
+        }
+        String p = percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+        return add(new Aggregate(Function.PERCENTILE, numeric(column), percentile, "p" + p + "(" + column.label + ")"));
+    }
+
+    /** Keeps the rows whose TEXT column value is accepted; accept is called once per distinct value. */
+    public Aggregation where(CourseColumn column, Predicate<String> accept) {
+        if (column.kind != CourseColumn.Kind.TEXT) {
+            throw new IllegalArgumentException(column.label + " is not a text column");
+        }
+        filters.add(new Filter(column, Objects.requireNonNull(accept), 0, 0));
+        return this;
+    }
+
+    /** Keeps the rows whose TEXT column value equals value. */
+    public Aggregation whereEquals(CourseColumn column, String value) {
+        return where(column, value::equals);
+    }
+
+    /** Keeps the rows whose numeric column value is between min and max, both included. */
+    public Aggregation where(CourseColumn column, double min, double max) {
+        filters.add(new Filter(numeric(column), null, min, max));
+        return this;
+    }
+
+    /**
+     * Keeps the rows launched between from and to, both included. Launch date filters are
+     * answered by a range of the launch date index rather than a scan of all rows.
+     */
+    public Aggregation where(CourseColumn column, LocalDate from, LocalDate to) {
+        if (column.kind != CourseColumn.Kind.DATE) {
+            throw new IllegalArgumentException(column.label + " is not a date column");
+        }
+        filters.add(new Filter(column, null, EpochDays.bound(from), EpochDays.bound(to)));
+        return this;
+    }
+
+    /**
+     * Orders the rows by a key or aggregate, named by its label; calls add further orders for
+     * rows that are equal in the previous ones.
+     */
+    public Aggregation orderBy(String column, boolean descending) {
+        int index = columns().indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("No column " + column + " in " + columns());
+        }
+        order.add(new Order(index, descending));
+        return this;
+    }
+
+    /** Keeps only the first limit rows. */
+    public Aggregation limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /** The labels of the result columns: the keys, then the aggregates. */
+    public List<String> columns() {
+        List<String> columns = new ArrayList<>(keys.size() + aggregates.size());
+        for (CourseColumn key : keys) {
+            columns.add(key.label);
+        }
+        for (Aggregate aggregate : aggregates) {
+            columns.add(aggregate.label);
+        }
+        return columns;
+    }
+
+    private Aggregation add(Function function, CourseColumn column, String label) {
+        return add(new Aggregate(function, column, 0, label));
+    }
+
+    private Aggregation add(Aggregate aggregate) {
+        if (columns().contains(aggregate.label)) {
+            throw new IllegalArgumentException("Duplicate column " + aggregate.label);
+        }
+        aggregates.add(aggregate);
+        return this;
+    }
+
+    private static CourseColumn numeric(CourseColumn column) {
+        if (column.kind != CourseColumn.Kind.INT && column.kind != CourseColumn.Kind.DOUBLE) {
+            throw new IllegalArgumentException(column.label + " is not a numeric column");
+        }
+        return column;
+    }
+
+    private static CourseColumn ordered(CourseColumn column) {
+        if (column.kind == CourseColumn.Kind.TEXT) {
+            throw new IllegalArgumentException(column.label + " is not a numeric or date column");
+        }
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return "Aggregation{columns=" + columns() + ", filters=" + filters.size() + ", orders=" + order.size()
+            + ", limit=" + limit + '}';
+    }
+}
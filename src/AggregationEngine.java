@@ -0,0 +1,621 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs an Aggregation over one dataset version, alone or as one pass of a scan shared with
+ * other passes, as OnlineCoursesAnalyzer.report does.
+ * <p>
+ * The query is compiled into filter, grouping and aggregator operators over the column arrays,
+ * and the rows are pushed through them a block of BLOCK rows at a time: every filter narrows the
+ * block's row list in one loop, the grouping assigns a dense group id to each remaining row, and
+ * every aggregator gathers its column for the block and folds it into per-group primitive arrays.
+ * The loops index plain arrays only; there is no per-row call through an interface and no
+ * boxing, operators are dispatched once per block. Text filters are evaluated once per
+ * dictionary code, and a launch date filter selects a range of the launch date index instead
+ * of scanning all rows.
+ * <p>
+ * Groups on a first TEXT key use the dictionary code as group id. Every other key maps the pair
+ * (group id of the previous keys, value) to the next dense id in a LongIntHashMap, so composite
+ * keys of any length group without building key objects.
+ */
+final class AggregationEngine {
+    static final int BLOCK = 1024;
+
+    private AggregationEngine() {
+    }
+
+    /** Runs query alone, over the range of the launch date index its launch date filters select. */
+    static AggregationResult run(DatasetVersion d, Aggregation query, AnalyzerMetrics.Call call) {
+        CourseTable t = d.table;
+        Compiled compiled = new Compiled(t, query, false);
+        int[] source = null;
+        int start = 0;
+        int end = t.size;
+        if (compiled.fromDay > compiled.toDay) {
+            end = 0;
+        } else if (compiled.fromDay != Integer.MIN_VALUE || compiled.toDay != Integer.MAX_VALUE) {
+            LaunchDateIndex index = d.launchDateIndex();
+            source = index.rows;
+            start = index.from(compiled.fromDay);
+            end = Math.max(start, index.to(compiled.toDay));
+        }
+        int[] rows = new int[BLOCK];
+        for (int from = start; from < end; from += BLOCK) {
+            int n = Math.min(BLOCK, end - from);
+            if (source == null) {
+                for (int i = 0; i < n; i++) {
+                    rows[i] = from + i;
+                }
+            } else {
+                System.arraycopy(source, from, rows, 0, n);
+            }
+            compiled.accept(rows, n);
+        }
+        call.scanned(end - start);
+        return compiled.result();
+    }
+
+    /**
+     * Compiles query into a pass of a shared scan, see scan. Its launch date filters are
+     * evaluated on every row, like the other filters.
+     */
+    static Compiled compile(CourseTable t, Aggregation query) {
+        return new Compiled(t, query, true);
+    }
+
+    /**
+     * Pushes every row of t through all passes in one scan: the passes see each block of rows
+     * in turn while it is in cache, so the cost of reading the columns is shared.
+     */
+    static void scan(CourseTable t, List<? extends Pass> passes) {
+        int[] rows = new int[BLOCK];
+        for (int from = 0; from < t.size; from += BLOCK) {
+            int n = Math.min(BLOCK, t.size - from);
+            for (int i = 0; i < n; i++) {
+                rows[i] = from + i;
+            }
+            for (int p = 0; p < passes.size(); p++) {
+                passes.get(p).accept(rows, n);
+            }
+        }
+    }
+
+    /** One consumer of the blocks of a scan. */
+    abstract static class Pass {
+        /** Consumes the rows rows[0 .. n), which must not be modified. */
+        abstract void accept(int[] rows, int n);
+    }
+
+    /** An aggregation compiled into filter, grouping and aggregator operators over one table. */
+    static final class Compiled extends Pass {
+        private final CourseTable table;
+        private final Aggregation query;
+        // the launch date filters intersected, as an inclusive range of epoch days
+        int fromDay = Integer.MIN_VALUE;
+        int toDay = Integer.MAX_VALUE;
+        private final List<RowFilter> filters = new ArrayList<>();
+        private final Grouping grouping;
+        private final List<Aggregator> aggregators;
+        private long[] counts = new long[0];
+        private final int[] rows = new int[BLOCK];
+        private final int[] groups = new int[BLOCK];
+
+        private Compiled(CourseTable t, Aggregation query, boolean filterLaunchDays) {
+            this.table = t;
+            this.query = query;
+            for (Aggregation.Filter filter : query.filters) {
+                CourseColumn column = filter.column;
+                if (column == CourseColumn.LAUNCH_DATE || column == CourseColumn.LAUNCH_YEAR) {
+                    int[] days = column == CourseColumn.LAUNCH_DATE
+                        ? new int[] {(int) filter.min, (int) filter.max} : yearDays(filter.min, filter.max);
+                    fromDay = Math.max(fromDay, days[0]);
+                    toDay = Math.min(toDay, days[1]);
+                } else if (column.kind == CourseColumn.Kind.TEXT) {
+                    filters.add(new TextFilter(t, column, filter));
+                } else if (column.isIntValued()) {
+                    filters.add(new IntRangeFilter(column.ints(t), filter.min, filter.max));
+                } else {
+                    filters.add(new DoubleRangeFilter(column.doubles(t), filter.min, filter.max));
+                }
+            }
+            if (filterLaunchDays && (fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE)) {
+                filters.add(0, new IntRangeFilter(t.launchDay, fromDay, toDay));
+            }
+            grouping = new Grouping(t, query.keys);
+            aggregators = new ArrayList<>(query.aggregates.size());
+            for (Aggregation.Aggregate aggregate : query.aggregates) {
+                aggregators.add(aggregator(t, aggregate));
+            }
+        }
+
+        @Override
+        void accept(int[] blockRows, int n) {
+            System.arraycopy(blockRows, 0, rows, 0, n);
+            for (int f = 0; f < filters.size() && n > 0; f++) {
+                n = filters.get(f).apply(rows, n);
+            }
+            if (n == 0) {
+                return;
+            }
+            grouping.assign(rows, n, groups);
+            if (grouping.size > counts.length) {
+                int capacity = Math.max(grouping.size, counts.length * 2);
+                counts = Arrays.copyOf(counts, capacity);
+                for (Aggregator aggregator : aggregators) {
+                    aggregator.grow(capacity);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                counts[groups[i]]++;
+            }
+            for (int a = 0; a < aggregators.size(); a++) {
+                aggregators.get(a).add(rows, groups, n);
+            }
+        }
+
+        /** The result of the rows accepted so far. */
+        AggregationResult result() {
+            List<List<Object>> result = new ArrayList<>();
+            for (int group = 0; group < grouping.size; group++) {
+                if (counts[group] == 0) {
+                    continue;
+                }
+                List<Object> row = new ArrayList<>(query.keys.size() + aggregators.size());
+                grouping.decode(group, row);
+                for (Aggregator aggregator : aggregators) {
+                    row.add(aggregator.value(group, counts[group]));
+                }
+                result.add(row);
+            }
+            result.sort(order(query));
+            if (result.size() > query.limit) {
+                result = new ArrayList<>(result.subList(0, query.limit));
+            }
+            return new AggregationResult(query.columns(), result);
+        }
+    }
+
+    // the inclusive epoch day range of the launch years in [min, max]
+    private static int[] yearDays(double min, double max) {
+        double first = Math.max(Math.ceil(min), LocalDate.MIN.getYear());
+        double last = Math.min(Math.floor(max), LocalDate.MAX.getYear());
+        if (!(first <= last)) {
+            return new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        }
+        return new int[] {EpochDays.bound(LocalDate.of((int) first, 1, 1)),
+            EpochDays.bound(LocalDate.of((int) last, 12, 31))};
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<List<Object>> order(Aggregation query) {
+        List<Aggregation.Order> orders = new ArrayList<>(query.order);
+        for (int key = 0; key < query.keys.size(); key++) {
+            orders.add(new Aggregation.Order(key, false));
+        }
+        return (a, b) -> {
+            for (Aggregation.Order order : orders) {
+                int compare = ((Comparable) a.get(order.column)).compareTo(b.get(order.column));
+                if (compare != 0) {
+                    return order.descending ? -compare : compare;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static Aggregator aggregator(CourseTable t, Aggregation.Aggregate aggregate) {
+        CourseColumn column = aggregate.column;
+        switch (aggregate.function) {
+            case COUNT:
+                return new CountAggregator();
+            case SUM:
+            case AVG:
+                boolean average = aggregate.function == Aggregation.Function.AVG;
+                return column.isIntValued() ? new IntSumAggregator(t, column, average)
+                    : new DoubleSumAggregator(t, column, average);
+            case MIN:
+            case MAX:
+                boolean max = aggregate.function == Aggregation.Function.MAX;
+                return column.isIntValued() ? new IntExtremeAggregator(t, column, max)
+                    : new DoubleExtremeAggregator(t, column, max);
+            default:
+                return new PercentileAggregator(t, column, aggregate.percentile);
+        }
+    }
+
+    /** Narrows a block of rows to those passing the filter. */
+    private abstract static class RowFilter {
+        /** Keeps the rows of rows[0 .. n) that pass at the front of rows, in order, and returns their number. */
+        abstract int apply(int[] rows, int n);
+    }
+
+    private static final class TextFilter extends RowFilter {
+        private final int[] codes;
+        private final boolean[] accepted;
+
+        TextFilter(CourseTable t, CourseColumn column, Aggregation.Filter filter) {
+            StringDictionary dictionary = column.dictionary(t);
+            codes = column.ints(t);
+            accepted = new boolean[dictionary.size()];
+            for (int code = 0; code < accepted.length; code++) {
+                accepted[code] = filter.accept.test(dictionary.decode(code));
+            }
+        }
+
+        @Override
+        int apply(int[] rows, int n) {
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                if (accepted[codes[row]]) {
+                    rows[kept++] = row;
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static final class IntRangeFilter extends RowFilter {
+        private final int[] values;
+        private final long min;
+        private final long max;
+
+        IntRangeFilter(int[] values, double min, double max) {
+            this.values = values;
+            // NaN bounds make the range empty
+            this.min = min != min ? Long.MAX_VALUE : (long) Math.ceil(min);
+            this.max = max != max ? Long.MIN_VALUE : (long) Math.floor(max);
+        }
+
+        @Override
+        int apply(int[] rows, int n) {
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                int value = values[row];
+                if (value >= min && value <= max) {
+                    rows[kept++] = row;
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static final class DoubleRangeFilter extends RowFilter {
+        private final double[] values;
+        private final double min;
+        private final double max;
+
+        DoubleRangeFilter(double[] values, double min, double max) {
+            this.values = values;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int apply(int[] rows, int n) {
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                double value = values[row];
+                if (value >= min && value <= max) {
+                    rows[kept++] = row;
+                }
+            }
+            return kept;
+        }
+    }
+
+    /** Dense group ids for the key values of rows, and the key values of every group id. */
+    private static final class Grouping {
+        private final CourseTable table;
+        private final CourseColumn[] keys;
+        // level k maps (id at level k - 1, value of key k) to the id at level k; level 0 of a
+        // TEXT key is the dictionary code itself and has no map
+        private final LongIntHashMap[] maps;
+        private final int[][] parents;
+        private final int[][] values;
+        private final int[] sizes;
+        private final int[] buffer = new int[BLOCK];
+        // the number of group ids of the last level
+        int size;
+
+        Grouping(CourseTable table, List<CourseColumn> keys) {
+            this.table = table;
+            this.keys = keys.toArray(new CourseColumn[0]);
+            int levels = this.keys.length;
+            maps = new LongIntHashMap[levels];
+            parents = new int[levels][];
+            values = new int[levels][];
+            sizes = new int[levels];
+            for (int level = 0; level < levels; level++) {
+                if (level == 0 && this.keys[0].kind == CourseColumn.Kind.TEXT) {
+                    sizes[0] = this.keys[0].dictionary(table).size();
+                } else {
+                    maps[level] = new LongIntHashMap();
+                    parents[level] = new int[16];
+                    values[level] = new int[16];
+                }
+            }
+        }
+
+        void assign(int[] rows, int n, int[] groups) {
+            if (keys.length == 0) {
+                Arrays.fill(groups, 0, n, 0);
+                size = 1;
+                return;
+            }
+            for (int level = 0; level < keys.length; level++) {
+                keys[level].gather(table, rows, n, buffer);
+                LongIntHashMap map = maps[level];
+                if (map == null) {
+                    System.arraycopy(buffer, 0, groups, 0, n);
+                    continue;
+                }
+                for (int i = 0; i < n; i++) {
+                    int parent = level == 0 ? 0 : groups[i];
+                    int next = sizes[level];
+                    int id = map.putIfAbsent(LongIntHashMap.compositeKey(parent, buffer[i]), next);
+                    if (id == next) {
+                        if (next == values[level].length) {
+                            parents[level] = Arrays.copyOf(parents[level], next * 2);
+                            values[level] = Arrays.copyOf(values[level], next * 2);
+                        }
+                        parents[level][next] = parent;
+                        values[level][next] = buffer[i];
+                        sizes[level]++;
+                    }
+                    groups[i] = id;
+                }
+            }
+            size = sizes[keys.length - 1];
+        }
+
+        // appends the key values of group, first key first, to row
+        void decode(int group, List<Object> row) {
+            Object[] keyValues = new Object[keys.length];
+            int id = group;
+            for (int level = keys.length - 1; level >= 0; level--) {
+                if (maps[level] == null) {
+                    keyValues[level] = keys[level].decode(table, id);
+                } else {
+                    keyValues[level] = keys[level].decode(table, values[level][id]);
+                    id = parents[level][id];
+                }
+            }
+            row.addAll(Arrays.asList(keyValues));
+        }
+    }
+
+    /** Folds a column into one accumulator per group id. */
+    private abstract static class Aggregator {
+        /** Makes room for the group ids below capacity. */
+        abstract void grow(int capacity);
+
+        /** Adds the values of rows[0 .. n), the row at rows[i] belonging to group groups[i]. */
+        abstract void add(int[] rows, int[] groups, int n);
+
+        /** The aggregate of group, which has count rows. */
+        abstract Object value(int group, long count);
+    }
+
+    private static final class CountAggregator extends Aggregator {
+        @Override
+        void grow(int capacity) {
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+        }
+
+        @Override
+        Object value(int group, long count) {
+            return count;
+        }
+    }
+
+    private static final class IntSumAggregator extends Aggregator {
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final boolean average;
+        private final int[] buffer = new int[BLOCK];
+        private long[] sums = new long[0];
+
+        IntSumAggregator(CourseTable table, CourseColumn column, boolean average) {
+            this.table = table;
+            this.column = column;
+            this.average = average;
+        }
+
+        @Override
+        void grow(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+            column.gather(table, rows, n, buffer);
+            for (int i = 0; i < n; i++) {
+                sums[groups[i]] += buffer[i];
+            }
+        }
+
+        @Override
+        Object value(int group, long count) {
+            return average ? (Object) ((double) sums[group] / count) : (Object) sums[group];
+        }
+    }
+
+    private static final class DoubleSumAggregator extends Aggregator {
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final boolean average;
+        private final double[] buffer = new double[BLOCK];
+        private double[] sums = new double[0];
+
+        DoubleSumAggregator(CourseTable table, CourseColumn column, boolean average) {
+            this.table = table;
+            this.column = column;
+            this.average = average;
+        }
+
+        @Override
+        void grow(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+            column.gather(table, rows, n, buffer);
+            for (int i = 0; i < n; i++) {
+                sums[groups[i]] += buffer[i];
+            }
+        }
+
+        @Override
+        Object value(int group, long count) {
+            return average ? sums[group] / count : sums[group];
+        }
+    }
+
+    private static final class IntExtremeAggregator extends Aggregator {
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final boolean max;
+        private final int[] buffer = new int[BLOCK];
+        private int[] extremes = new int[0];
+
+        IntExtremeAggregator(CourseTable table, CourseColumn column, boolean max) {
+            this.table = table;
+            this.column = column;
+            this.max = max;
+        }
+
+        @Override
+        void grow(int capacity) {
+            int from = extremes.length;
+            extremes = Arrays.copyOf(extremes, capacity);
+            Arrays.fill(extremes, from, capacity, max ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+            column.gather(table, rows, n, buffer);
+            if (max) {
+                for (int i = 0; i < n; i++) {
+                    extremes[groups[i]] = Math.max(extremes[groups[i]], buffer[i]);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    extremes[groups[i]] = Math.min(extremes[groups[i]], buffer[i]);
+                }
+            }
+        }
+
+        @Override
+        Object value(int group, long count) {
+            return column.decode(table, extremes[group]);
+        }
+    }
+
+    private static final class DoubleExtremeAggregator extends Aggregator {
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final boolean max;
+        private final double[] buffer = new double[BLOCK];
+        private double[] extremes = new double[0];
+
+        DoubleExtremeAggregator(CourseTable table, CourseColumn column, boolean max) {
+            this.table = table;
+            this.column = column;
+            this.max = max;
+        }
+
+        @Override
+        void grow(int capacity) {
+            int from = extremes.length;
+            extremes = Arrays.copyOf(extremes, capacity);
+            Arrays.fill(extremes, from, capacity, max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+            column.gather(table, rows, n, buffer);
+            if (max) {
+                for (int i = 0; i < n; i++) {
+                    extremes[groups[i]] = Math.max(extremes[groups[i]], buffer[i]);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    extremes[groups[i]] = Math.min(extremes[groups[i]], buffer[i]);
+                }
+            }
+        }
+
+        @Override
+        Object value(int group, long count) {
+            return extremes[group];
+        }
+    }
+
+    /**
+     * Exact nearest-rank percentiles: every value of a group is kept, 8 bytes per row passing
+     * the filters, and the group's values are sorted once when its result is read.
+     */
+    private static final class PercentileAggregator extends Aggregator {
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final double percentile;
+        private final int[] intBuffer = new int[BLOCK];
+        private final double[] buffer = new double[BLOCK];
+        private double[][] values = new double[0][];
+        private int[] sizes = new int[0];
+
+        PercentileAggregator(CourseTable table, CourseColumn column, double percentile) {
+            this.table = table;
+            this.column = column;
+            this.percentile = percentile;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+
+        @Override
+        void add(int[] rows, int[] groups, int n) {
+            if (column.isIntValued()) {
+                column.gather(table, rows, n, intBuffer);
+                for (int i = 0; i < n; i++) {
+                    buffer[i] = intBuffer[i];
+                }
+            } else {
+                column.gather(table, rows, n, buffer);
+            }
+            for (int i = 0; i < n; i++) {
+                int group = groups[i];
+                double[] groupValues = values[group];
+                int size = sizes[group];
+                if (groupValues == null || size == groupValues.length) {
+                    groupValues = Arrays.copyOf(groupValues == null ? new double[0] : groupValues, Math.max(8, size * 2));
+                    values[group] = groupValues;
+                }
+                groupValues[size] = buffer[i];
+                sizes[group] = size + 1;
+            }
+        }
+
+        @Override
+        Object value(int group, long count) {
+            int n = sizes[group];
+            double[] sorted = values[group];
+            Arrays.sort(sorted, 0, n);
+            int rank = (int) Math.max(1, Math.ceil(percentile / 100 * n));
+            return sorted[rank - 1];
+        }
+    }
+}
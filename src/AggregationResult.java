@@ -0,0 +1,44 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows of an Aggregation: per group its key values (String, Integer or LocalDate) followed
+ * by its aggregates (Long, Double, Integer or LocalDate), in the order of columns().
+ */
+public final class AggregationResult {
+    private final List<String> columns;
+    private final List<List<Object>> rows;
+
+    AggregationResult(List<String> columns, List<List<Object>> rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.set(i, Collections.unmodifiableList(rows.get(i)));
+        }
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    public List<List<Object>> rows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /** The columns and rows as tab separated lines. */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.join("\t", columns)).append('\n');
+        for (List<Object> row : rows) {
+            for (int i = 0; i < row.size(); i++) {
+                text.append(i == 0 ? "" : "\t").append(row.get(i));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,390 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Instrumentation of an OnlineCoursesAnalyzer: per query method a latency histogram, the
+ * number of calls and the rows scanned and returned; the phase timings of the last load;
+ * parse and IO error counters; and the estimated heap size of the dataset per course.
+ * Recording is lock-free. snapshot() returns all of it as plain values, and the same values are
+ * published over JMX through the AnalyzerMetricsMXBean interface.
+ * <p>
+ * Rows scanned counts the entries a call had to look at: index entries, profiles or, when
+ * a ranking is built, table rows. A call answered from the query cache scans nothing.
+ */
+public class AnalyzerMetrics implements AnalyzerMetricsMXBean {
+
+    /** The instrumented query methods. */
+    enum Query {
+        GET_PTCP_COUNT_BY_INST("getPtcpCountByInst"),
+        GET_PTCP_COUNT_BY_INST_AND_SUBJECT("getPtcpCountByInstAndSubject"),
+        GET_PTCP_COUNT_BY_INST_BETWEEN("getPtcpCountByInst(from, to)"),
+        GET_PTCP_COUNT_BY_INST_AND_SUBJECT_BETWEEN("getPtcpCountByInstAndSubject(from, to)"),
+        GET_COURSE_LIST_OF_INSTRUCTOR("getCourseListOfInstructor"),
+        GET_COURSES("getCourses"),
+        SEARCH_COURSES("searchCourses"),
+        SEARCH_COURSES_BETWEEN("searchCourses(from, to)"),
+        SEARCH_COURSES_BATCH("searchCourses(queries)"),
+        RECOMMEND_COURSES("recommendCourses"),
+        RECOMMEND_COURSES_BATCH("recommendCourses(users)"),
+        AGGREGATE("aggregate"),
+        REPORT("report");
+
+        final String methodName;
+
+        Query(String methodName) {
+            this.methodName = methodName;
+        }
+    }
+
+    private static class Recorder {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder scanned = new LongAdder();
+        final LongAdder returned = new LongAdder();
+    }
+
+    /** One query call in progress; end() records it. */
+    static class Call {
+        private final Recorder recorder;
+        private final long start = System.nanoTime();
+        private long scanned;
+
+        private Call(Recorder recorder) {
+            this.recorder = recorder;
+        }
+
+        void scanned(long entries) {
+            scanned += entries;
+        }
+
+        /** Records the call with the size of result as the rows returned, and returns result. */
+        <T> T end(T result) {
+            recorder.latency.record(System.nanoTime() - start);
+            recorder.scanned.add(scanned);
+            if (result instanceof Collection) {
+                recorder.returned.add(((Collection<?>) result).size());
+            } else if (result instanceof Map) {
+                recorder.returned.add(((Map<?, ?>) result).size());
+            }
+            return result;
+        }
+    }
+
+    /** Nanosecond timings of the phases of one load, filled in by the loader. */
+    static class LoadTimer {
+        long readNanos;
+        long parseNanos;
+        long constructNanos;
+    }
+
+    /** A Reader that adds the time spent in the reads of the wrapped reader to timer.readNanos. */
+    static class TimedReader extends FilterReader {
+        private final LoadTimer timer;
+
+        TimedReader(Reader in, LoadTimer timer) {
+            super(in);
+            this.timer = timer;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(buffer, offset, length);
+            } finally {
+                timer.readNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /** Statistics of one query method. */
+    public static class MethodMetrics {
+        private final long calls;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+        private final long rowsScanned;
+        private final long rowsReturned;
+
+        MethodMetrics(long calls, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+                      double maxMicros, long rowsScanned, long rowsReturned) {
+            this.calls = calls;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.rowsScanned = rowsScanned;
+            this.rowsReturned = rowsReturned;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public double getP50Micros() {
+            return p50Micros;
+        }
+
+        public double getP90Micros() {
+            return p90Micros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getRowsScanned() {
+            return rowsScanned;
+        }
+
+        public long getRowsReturned() {
+            return rowsReturned;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, max=%.1fus, "
+                    + "rowsScanned=%d, rowsReturned=%d",
+                calls, meanMicros, p50Micros, p90Micros, p99Micros, maxMicros, rowsScanned, rowsReturned);
+        }
+    }
+
+    /** Phase timings of one load. */
+    public static class LoadMetrics {
+        private final String source;
+        private final int rows;
+        private final long rejectedRows;
+        private final double readMillis;
+        private final double parseMillis;
+        private final double constructMillis;
+
+        LoadMetrics(String source, int rows, long rejectedRows, LoadTimer timer) {
+            this.source = source;
+            this.rows = rows;
+            this.rejectedRows = rejectedRows;
+            this.readMillis = timer.readNanos / 1e6;
+            this.parseMillis = timer.parseNanos / 1e6;
+            this.constructMillis = timer.constructNanos / 1e6;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /** Records skipped by a lenient load. */
+        public long getRejectedRows() {
+            return rejectedRows;
+        }
+
+        /** Time spent reading the file: in Reader.read when streaming, in the record-aligned split scan when mapped. */
+        public double getReadMillis() {
+            return readMillis;
+        }
+
+        /** Time spent tokenizing and encoding records into the table. */
+        public double getParseMillis() {
+            return parseMillis;
+        }
+
+        /** Time spent building the indexes of the loaded table. */
+        public double getConstructMillis() {
+            return constructMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("source=%s, rows=%d, rejectedRows=%d, read=%.1fms, parse=%.1fms, construct=%.1fms",
+                source, rows, rejectedRows, readMillis, parseMillis, constructMillis);
+        }
+    }
+
+    /** All metrics at one point in time. */
+    public static class Snapshot {
+        private final Map<String, MethodMetrics> methods;
+        private final LoadMetrics lastLoad;
+        private final long parseErrors;
+        private final long ioErrors;
+        private final int rows;
+        private final double heapBytesPerCourse;
+        private final QueryCache.Stats cache;
+
+        Snapshot(Map<String, MethodMetrics> methods, LoadMetrics lastLoad, long parseErrors, long ioErrors,
+                 int rows, double heapBytesPerCourse, QueryCache.Stats cache) {
+            this.methods = methods;
+            this.lastLoad = lastLoad;
+            this.parseErrors = parseErrors;
+            this.ioErrors = ioErrors;
+            this.rows = rows;
+            this.heapBytesPerCourse = heapBytesPerCourse;
+            this.cache = cache;
+        }
+
+        /** Per query method, in declaration order. */
+        public Map<String, MethodMetrics> getMethods() {
+            return methods;
+        }
+
+        /** The last load, or null before the first one. */
+        public LoadMetrics getLastLoad() {
+            return lastLoad;
+        }
+
+        public long getParseErrors() {
+            return parseErrors;
+        }
+
+        public long getIoErrors() {
+            return ioErrors;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public double getHeapBytesPerCourse() {
+            return heapBytesPerCourse;
+        }
+
+        public QueryCache.Stats getCache() {
+            return cache;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("rows=%d, heapBytesPerCourse=%.1f, parseErrors=%d, ioErrors=%d%n",
+                rows, heapBytesPerCourse, parseErrors, ioErrors));
+            sb.append("lastLoad: ").append(lastLoad).append(System.lineSeparator());
+            sb.append("cache: ").append(cache).append(System.lineSeparator());
+            methods.forEach((name, metrics) ->
+                sb.append(name).append(": ").append(metrics).append(System.lineSeparator()));
+            return sb.toString();
+        }
+    }
+
+    // indexed by Query.ordinal(), replaced as a whole by resetMethods
+    private volatile Recorder[] recorders = newRecorders();
+    private final AtomicReference<LoadMetrics> lastLoad = new AtomicReference<>();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder ioErrors = new LongAdder();
+    private final Supplier<CourseTable> table;
+    private final Supplier<QueryCache.Stats> cacheStats;
+
+    AnalyzerMetrics(Supplier<CourseTable> table, Supplier<QueryCache.Stats> cacheStats) {
+        this.table = table;
+        this.cacheStats = cacheStats;
+    }
+
+    private static Recorder[] newRecorders() {
+        Recorder[] recorders = new Recorder[Query.values().length];
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder();
+        }
+        return recorders;
+    }
+
+    Call begin(Query query) {
+        return new Call(recorders[query.ordinal()]);
+    }
+
+    void loaded(String source, int rows, long rejectedRows, LoadTimer timer) {
+        lastLoad.set(new LoadMetrics(source, rows, rejectedRows, timer));
+    }
+
+    void parseError() {
+        parseErrors.increment();
+    }
+
+    void ioError() {
+        ioErrors.increment();
+    }
+
+    public Snapshot snapshot() {
+        CourseTable t = table.get();
+        return new Snapshot(getMethods(), getLastLoad(), getParseErrors(), getIoErrors(),
+            t == null ? 0 : t.size, getHeapBytesPerCourse(), cacheStats.get());
+    }
+
+    @Override
+    public Map<String, MethodMetrics> getMethods() {
+        Map<String, MethodMetrics> methods = new LinkedHashMap<>();
+        Recorder[] current = recorders;
+        for (Query query : Query.values()) {
+            Recorder recorder = current[query.ordinal()];
+            LatencyHistogram latency = recorder.latency;
+            methods.put(query.methodName, new MethodMetrics(latency.count(), latency.mean() / 1e3,
+                latency.percentile(50) / 1e3, latency.percentile(90) / 1e3, latency.percentile(99) / 1e3,
+                latency.max() / 1e3, recorder.scanned.sum(), recorder.returned.sum()));
+        }
+        return Collections.unmodifiableMap(methods);
+    }
+
+    @Override
+    public LoadMetrics getLastLoad() {
+        return lastLoad.get();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getIoErrors() {
+        return ioErrors.sum();
+    }
+
+    @Override
+    public int getRows() {
+        CourseTable t = table.get();
+        return t == null ? 0 : t.size;
+    }
+
+    @Override
+    public double getHeapBytesPerCourse() {
+        CourseTable t = table.get();
+        return t == null || t.size == 0 ? 0 : (double) t.estimatedHeapBytes() / t.size;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheStats.get().getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheStats.get().getMisses();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return cacheStats.get().getHitRate();
+    }
+
+    @Override
+    public void resetMethods() {
+        recorders = newRecorders();
+    }
+}
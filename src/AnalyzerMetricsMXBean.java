@@ -0,0 +1,35 @@
+import java.util.Map;
+
+/**
+ * The JMX view of the metrics of an OnlineCoursesAnalyzer, see
+ * OnlineCoursesAnalyzer.registerMetricsMBean. Every attribute is computed when it is read.
+ */
+public interface AnalyzerMetricsMXBean {
+
+    /** Latency and row statistics per public query method, keyed by method name. */
+    Map<String, AnalyzerMetrics.MethodMetrics> getMethods();
+
+    /** Phase timings of the most recent load or reload, null before the first one finished. */
+    AnalyzerMetrics.LoadMetrics getLastLoad();
+
+    /** Records that could not be parsed, over all loads and appends. */
+    long getParseErrors();
+
+    /** Dataset files that could not be read, over all loads and appends. */
+    long getIoErrors();
+
+    /** Rows in the current dataset. */
+    int getRows();
+
+    /** Estimated heap bytes of the current dataset per row, indexes excluded. */
+    double getHeapBytesPerCourse();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getCacheHitRate();
+
+    /** Clears the query method statistics; the load and error counters are kept. */
+    void resetMethods();
+}
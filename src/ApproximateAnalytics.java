@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Approximate answers from the fixed-size sketches an OnlineCoursesAnalyzer maintains at load
+ * and append time, in microseconds whatever the number of rows. An instance answers from the
+ * dataset version current when it was obtained.
+ * <p>
+ * Error bounds:
+ * <ul>
+ * <li>Participant counts (Space-Saving, 1024 counters per sketch) never underestimate and
+ * overestimate by at most the sketch's max error, which is 0 (the counts are exact) while there
+ * are at most 1024 institutions, or institution-subject pairs, and never more than 1/1024 of all
+ * participants. Every institution or pair with more participants than the max error is reported.</li>
+ * <li>Distinct counts (HyperLogLog, 4096 registers) have a relative standard error of 1.6%: within
+ * 3.3% of the true count 95% of the time, and nearly exact below a few hundred.</li>
+ * <li>Quantiles (t-digest, compression 200) are off by well under 1% of rank, less towards the
+ * tails; NaN when there are no rows.</li>
+ * </ul>
+ */
+public final class ApproximateAnalytics {
+    private final CourseTable table;
+    private final Sketches sketches;
+
+    ApproximateAnalytics(DatasetVersion d) {
+        this.table = d.table;
+        this.sketches = d.sketches;
+    }
+
+    /**
+     * Estimated total participants of the institutions the sketch keeps a counter for, which
+     * include every institution with more than ptcpCountByInstMaxError() participants, by the
+     * alphabetical order of the institution.
+     */
+    public Map<String, Long> getPtcpCountByInst() {
+        SpaceSaving sketch = sketches.participantsByInstitution;
+        Map<String, Long> result = new TreeMap<>();
+        for (int i = 0; i < sketch.size(); i++) {
+            result.put(table.institutions.decode((int) sketch.keyAt(i)), sketch.countAt(i));
+        }
+        return result;
+    }
+
+    /** The most any estimate of getPtcpCountByInst exceeds the true count. */
+    public long ptcpCountByInstMaxError() {
+        return sketches.participantsByInstitution.maxError();
+    }
+
+    /**
+     * The estimated top k institution-subject pairs by participants, keyed like the result of
+     * OnlineCoursesAnalyzer.getPtcpCountByInstAndSubject, in descending order of the estimate and
+     * then alphabetically.
+     */
+    public Map<String, Long> getPtcpCountByInstAndSubject(int k) {
+        SpaceSaving sketch = sketches.participantsByInstitutionAndSubject;
+        // summed, since two pairs can make the same key when a name contains '-'
+        Map<String, Long> estimates = new HashMap<>();
+        for (int i = 0; i < sketch.size(); i++) {
+            long key = sketch.keyAt(i);
+            estimates.merge(table.institutions.decode(LongIntHashMap.highKey(key)) + "-"
+                + table.subjects.decode(LongIntHashMap.lowKey(key)), sketch.countAt(i), Long::sum);
+        }
+        List<Map.Entry<String, Long>> pairs = new ArrayList<>(estimates.entrySet());
+        pairs.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> pair : pairs.subList(0, Math.min(k, pairs.size()))) {
+            result.put(pair.getKey(), pair.getValue());
+        }
+        return result;
+    }
+
+    /** The most any estimate of getPtcpCountByInstAndSubject exceeds the true count. */
+    public long ptcpCountByInstAndSubjectMaxError() {
+        return sketches.participantsByInstitutionAndSubject.maxError();
+    }
+
+    /** The estimated number of distinct course titles of every institution, alphabetically. */
+    public Map<String, Long> distinctTitlesByInst() {
+        return distinctByInstitution(sketches.titlesByInstitution);
+    }
+
+    /** The estimated number of distinct instructors of every institution, alphabetically. */
+    public Map<String, Long> distinctInstructorsByInst() {
+        return distinctByInstitution(sketches.instructorsByInstitution);
+    }
+
+    private Map<String, Long> distinctByInstitution(HyperLogLog[] sketchOfInstitution) {
+        Map<String, Long> result = new TreeMap<>();
+        for (int code = 0; code < sketchOfInstitution.length; code++) {
+            if (sketchOfInstitution[code] != null) {
+                result.put(table.institutions.decode(code), sketchOfInstitution[code].estimate());
+            }
+        }
+        return result;
+    }
+
+    /** The estimated total course hours (thousands) at quantile q in [0, 1] of all course runs. */
+    public double totalHoursQuantile(double q) {
+        return sketches.totalHours.quantile(q);
+    }
+
+    /** The estimated fraction of course runs with at most totalCourseHours total course hours. */
+    public double totalHoursCdf(double totalCourseHours) {
+        return sketches.totalHours.cdf(totalCourseHours);
+    }
+
+    /** The estimated median age of the participants at quantile q in [0, 1] of all course runs. */
+    public double medianAgeQuantile(double q) {
+        return sketches.medianAge.quantile(q);
+    }
+
+    /** The estimated fraction of course runs whose participants have a median age of at most age. */
+    public double medianAgeCdf(double age) {
+        return sketches.medianAge.cdf(age);
+    }
+}
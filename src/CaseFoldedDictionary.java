@@ -0,0 +1,87 @@
+/**
+ * The values of a StringDictionary lower-cased once, for case-insensitive substring search
+ * without per-value work at query time. Values whose lower case is ASCII, as every subject of
+ * the course data is, are kept as bytes and searched by a scan for the first byte of the query
+ * followed by a comparison of the rest; other values fall back to String.contains.
+ */
+class CaseFoldedDictionary {
+    private final String[] lowerCase;
+    // the lower case of every value as bytes, null where it is not ASCII
+    private final byte[][] ascii;
+
+    CaseFoldedDictionary(StringDictionary dictionary) {
+        int size = dictionary.size();
+        lowerCase = new String[size];
+        ascii = new byte[size][];
+        for (int code = 0; code < size; code++) {
+            lowerCase[code] = dictionary.decode(code).toLowerCase();
+            ascii[code] = asciiBytes(lowerCase[code]);
+        }
+    }
+
+    int size() {
+        return lowerCase.length;
+    }
+
+    String lowerCase(int code) {
+        return lowerCase[code];
+    }
+
+    /** The chars of s as bytes, or null when s is not all ASCII. */
+    static byte[] asciiBytes(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    /**
+     * Whether the value of code contains query, which is lower case; asciiQuery is
+     * asciiBytes(query), computed once per query.
+     */
+    boolean contains(int code, String query, byte[] asciiQuery) {
+        byte[] text = ascii[code];
+        if (text == null) {
+            return lowerCase[code].contains(query);
+        }
+        // an ASCII value cannot contain a query with other chars
+        return asciiQuery != null && indexOf(text, asciiQuery) >= 0;
+    }
+
+    /** Whether the value of every code contains query, which is lower case. */
+    boolean[] matches(String query) {
+        byte[] asciiQuery = asciiBytes(query);
+        boolean[] matches = new boolean[lowerCase.length];
+        for (int code = 0; code < matches.length; code++) {
+            matches[code] = contains(code, query, asciiQuery);
+        }
+        return matches;
+    }
+
+    // first index of pattern in text, or -1
+    static int indexOf(byte[] text, byte[] pattern) {
+        if (pattern.length == 0) {
+            return 0;
+        }
+        byte first = pattern[0];
+        int last = text.length - pattern.length;
+        for (int i = 0; i <= last; i++) {
+            if (text[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && text[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
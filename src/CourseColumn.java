@@ -0,0 +1,174 @@
+import java.time.LocalDate;
+
+/**
+ * The columns of the course dataset that aggregations group, filter and aggregate on, named
+ * after the fields of Course. LAUNCH_YEAR is derived from the launch date.
+ * <p>
+ * Values are read a block of rows at a time into arrays of the reader (gather), so the
+ * aggregation loops only ever index plain arrays.
+ */
+public enum CourseColumn {
+    INSTITUTION("institution", Kind.TEXT),
+    NUMBER("number", Kind.TEXT),
+    LAUNCH_DATE("launchDate", Kind.DATE),
+    LAUNCH_YEAR("launchYear", Kind.INT),
+    TITLE("title", Kind.TEXT),
+    INSTRUCTORS("instructors", Kind.TEXT),
+    SUBJECT("subject", Kind.TEXT),
+    YEAR("year", Kind.INT),
+    HONOR_CODE("honorCode", Kind.INT),
+    PARTICIPANTS("participants", Kind.INT),
+    AUDITED("audited", Kind.INT),
+    CERTIFIED("certified", Kind.INT),
+    PERCENT_AUDITED("percentAudited", Kind.DOUBLE),
+    PERCENT_CERTIFIED("percentCertified", Kind.DOUBLE),
+    PERCENT_CERTIFIED_50("percentCertified50", Kind.DOUBLE),
+    PERCENT_VIDEO("percentVideo", Kind.DOUBLE),
+    PERCENT_FORUM("percentForum", Kind.DOUBLE),
+    GRADE_HIGHER_ZERO("gradeHigherZero", Kind.DOUBLE),
+    TOTAL_HOURS("totalHours", Kind.DOUBLE),
+    MEDIAN_HOURS_CERTIFICATION("medianHoursCertification", Kind.DOUBLE),
+    MEDIAN_AGE("medianAge", Kind.DOUBLE),
+    PERCENT_MALE("percentMale", Kind.DOUBLE),
+    PERCENT_FEMALE("percentFemale", Kind.DOUBLE),
+    PERCENT_DEGREE("percentDegree", Kind.DOUBLE);
+
+    /**
+     * How the values of a column are stored: TEXT as dictionary codes, DATE as epoch days
+     * (see EpochDays), INT and DOUBLE as they are.
+     */
+    enum Kind {
+        TEXT,
+        DATE,
+        INT,
+        DOUBLE
+    }
+
+    final String label;
+    final Kind kind;
+
+    CourseColumn(String label, Kind kind) {
+        this.label = label;
+        this.kind = kind;
+    }
+
+    /** Whether the values are ints: dictionary codes, epoch days or int numbers. */
+    boolean isIntValued() {
+        return kind != Kind.DOUBLE;
+    }
+
+    /** The dictionary of a TEXT column. */
+    StringDictionary dictionary(CourseTable t) {
+        switch (this) {
+            case INSTITUTION:
+                return t.institutions;
+            case NUMBER:
+                return t.numbers;
+            case TITLE:
+                return t.titles;
+            case INSTRUCTORS:
+                return t.instructors;
+            case SUBJECT:
+                return t.subjects;
+            default:
+                throw new IllegalStateException(label + " is not a text column");
+        }
+    }
+
+    /** The stored values of an int valued column other than LAUNCH_YEAR. */
+    int[] ints(CourseTable t) {
+        switch (this) {
+            case INSTITUTION:
+                return t.institution;
+            case NUMBER:
+                return t.number;
+            case LAUNCH_DATE:
+                return t.launchDay;
+            case TITLE:
+                return t.title;
+            case INSTRUCTORS:
+                return t.instructor;
+            case SUBJECT:
+                return t.subject;
+            case YEAR:
+                return t.year;
+            case HONOR_CODE:
+                return t.honorCode;
+            case PARTICIPANTS:
+                return t.participants;
+            case AUDITED:
+                return t.audited;
+            case CERTIFIED:
+                return t.certified;
+            default:
+                throw new IllegalStateException(label + " has no stored int values");
+        }
+    }
+
+    /** The values of a DOUBLE column. */
+    double[] doubles(CourseTable t) {
+        switch (this) {
+            case PERCENT_AUDITED:
+                return t.percentAudited;
+            case PERCENT_CERTIFIED:
+                return t.percentCertified;
+            case PERCENT_CERTIFIED_50:
+                return t.percentCertified50;
+            case PERCENT_VIDEO:
+                return t.percentVideo;
+            case PERCENT_FORUM:
+                return t.percentForum;
+            case GRADE_HIGHER_ZERO:
+                return t.gradeHigherZero;
+            case TOTAL_HOURS:
+                return t.totalHours;
+            case MEDIAN_HOURS_CERTIFICATION:
+                return t.medianHoursCertification;
+            case MEDIAN_AGE:
+                return t.medianAge;
+            case PERCENT_MALE:
+                return t.percentMale;
+            case PERCENT_FEMALE:
+                return t.percentFemale;
+            case PERCENT_DEGREE:
+                return t.percentDegree;
+            default:
+                throw new IllegalStateException(label + " is not a double column");
+        }
+    }
+
+    /** Reads the values of an int valued column at rows[0 .. n) into out. */
+    void gather(CourseTable t, int[] rows, int n, int[] out) {
+        if (this == LAUNCH_YEAR) {
+            int[] days = t.launchDay;
+            for (int i = 0; i < n; i++) {
+                out[i] = EpochDays.year(days[rows[i]]);
+            }
+            return;
+        }
+        int[] values = ints(t);
+        for (int i = 0; i < n; i++) {
+            out[i] = values[rows[i]];
+        }
+    }
+
+    /** Reads the values of a DOUBLE column at rows[0 .. n) into out. */
+    void gather(CourseTable t, int[] rows, int n, double[] out) {
+        double[] values = doubles(t);
+        for (int i = 0; i < n; i++) {
+            out[i] = values[rows[i]];
+        }
+    }
+
+    /** The value an int of this column stands for: a String, a LocalDate or an Integer. */
+    Object decode(CourseTable t, int value) {
+        switch (kind) {
+            case TEXT:
+                return dictionary(t).decode(value);
+            case DATE:
+                return LocalDate.ofEpochDay(value);
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index for searchCourses, built once after loading.
+ * <ul>
+ * <li>Subject matching runs over the distinct subjects only, lower-cased once, see
+ * CaseFoldedDictionary; a trigram index over them narrows the candidates for queries of three
+ * or more characters.</li>
+ * <li>The rows of every subject are kept in two sorted orders, by ascending total hours and
+ * by descending audited percentage, so a query only scans the prefix of the more selective one.</li>
+ * <li>Matching titles are collected in a bitset indexed by alphabetical title rank, which
+ * deduplicates them and yields them already sorted; see ScratchRankSet.</li>
+ * </ul>
+ * A query allocates its result and a few objects independent of the number of rows it scans.
+ */
+class CourseSearchIndex {
+    private final CourseTable table;
+    private final CaseFoldedDictionary subjects;
+    // packed trigram -> 1 + its index in subjectsOfTrigram, which holds the codes of the
+    // subjects containing it, ascending
+    private final LongIntHashMap trigrams;
+    private final int[][] subjectsOfTrigram;
+
+    // rows grouped by subject: the rows of subject s are [subjectStart[s], subjectStart[s + 1])
+    private final int[] subjectStart;
+    // ascending total hours, with the title rank and audited percentage of the same row
+    private final double[] hoursByHours;
+    private final double[] auditedByHours;
+    private final int[] titleRankByHours;
+    // ascending negated audited percentage, i.e. descending audited percentage; NaN sorts last
+    private final double[] negatedAuditedByAudited;
+    private final double[] hoursByAudited;
+    private final int[] titleRankByAudited;
+    private final int[] codeOfTitleRank;
+
+    /**
+     * subjects: the subjects of table, case-folded; audited: the audited percentage of every row,
+     * see DatasetVersion.auditedPercentages.
+     */
+    CourseSearchIndex(CourseTable table, CaseFoldedDictionary subjects, double[] audited) {
+        this.table = table;
+        this.subjects = subjects;
+        trigrams = new LongIntHashMap();
+        List<List<Integer>> codesOfTrigram = new ArrayList<>();
+        for (int code = 0; code < subjects.size(); code++) {
+            String subject = subjects.lowerCase(code);
+            for (int i = 0; i + 3 <= subject.length(); i++) {
+                int index = trigrams.putIfAbsent(trigram(subject, i), codesOfTrigram.size() + 1) - 1;
+                if (index == codesOfTrigram.size()) {
+                    codesOfTrigram.add(new ArrayList<>());
+                }
+                List<Integer> codes = codesOfTrigram.get(index);
+                if (codes.isEmpty() || codes.get(codes.size() - 1) != code) {
+                    codes.add(code);
+                }
+            }
+        }
+        subjectsOfTrigram = new int[codesOfTrigram.size()][];
+        for (int i = 0; i < subjectsOfTrigram.length; i++) {
+            subjectsOfTrigram[i] = codesOfTrigram.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int rows = table.size;
+        subjectStart = new int[subjects.size() + 1];
+        for (int row = 0; row < rows; row++) {
+            subjectStart[table.subject[row] + 1]++;
+        }
+        for (int s = 0; s < subjects.size(); s++) {
+            subjectStart[s + 1] += subjectStart[s];
+        }
+        double[] negatedAudited = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            negatedAudited[row] = -audited[row];
+        }
+        int[] byHours = sortWithinSubjects(table.totalHours, rows);
+        int[] byAudited = sortWithinSubjects(negatedAudited, rows);
+
+        int[] titleRanks = table.titles.ranks();
+        codeOfTitleRank = table.titles.codesByRank();
+        hoursByHours = new double[rows];
+        auditedByHours = new double[rows];
+        titleRankByHours = new int[rows];
+        negatedAuditedByAudited = new double[rows];
+        hoursByAudited = new double[rows];
+        titleRankByAudited = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            int row = byHours[i];
+            hoursByHours[i] = table.totalHours[row];
+            auditedByHours[i] = audited[row];
+            titleRankByHours[i] = titleRanks[table.title[row]];
+            row = byAudited[i];
+            negatedAuditedByAudited[i] = negatedAudited[row];
+            hoursByAudited[i] = table.totalHours[row];
+            titleRankByAudited[i] = titleRanks[table.title[row]];
+        }
+    }
+
+    /**
+     * Returns the rows grouped by subject and, within a subject, in ascending order of values
+     * (Double.compare order, NaN last). Every value is replaced by its rank among all values,
+     * so each subject is sorted as packed (rank, row) longs with a primitive sort.
+     */
+    private int[] sortWithinSubjects(double[] values, int rows) {
+        double[] sorted = Arrays.copyOf(values, rows);
+        Arrays.sort(sorted);
+        long[] keys = new long[rows];
+        int[] fill = Arrays.copyOf(subjectStart, subjectStart.length - 1);
+        for (int row = 0; row < rows; row++) {
+            long rank = Arrays.binarySearch(sorted, values[row]);
+            keys[fill[table.subject[row]]++] = rank << 32 | row;
+        }
+        int[] result = new int[rows];
+        for (int s = 0; s + 1 < subjectStart.length; s++) {
+            Arrays.sort(keys, subjectStart[s], subjectStart[s + 1]);
+        }
+        for (int i = 0; i < rows; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /**
+     * Same contract as OnlineCoursesAnalyzer.searchCourses, for courseSubject in lower case;
+     * the scanned index entries are counted on call.
+     */
+    List<String> search(String courseSubject, double percentAudited, double totalCourseHours,
+                        AnalyzerMetrics.Call call) {
+        return search(matchingSubjects(courseSubject), percentAudited, totalCourseHours, call);
+    }
+
+    /**
+     * Answers every query of a batch, in order. The subjects matching a subject string are looked
+     * up once per batch, and repeated queries are answered once.
+     */
+    List<List<String>> search(List<SearchCriteria> queries, AnalyzerMetrics.Call call) {
+        Map<String, int[]> subjectsOfQuery = new HashMap<>();
+        Map<List<Object>, List<String>> answers = new HashMap<>();
+        List<List<String>> result = new ArrayList<>(queries.size());
+        for (SearchCriteria query : queries) {
+            String subject = query.courseSubject.toLowerCase();
+            List<Object> key = List.of(subject, query.percentAudited, query.totalCourseHours);
+            List<String> answer = answers.get(key);
+            if (answer == null) {
+                int[] subjects = subjectsOfQuery.computeIfAbsent(subject, this::matchingSubjects);
+                answer = Collections.unmodifiableList(
+                    search(subjects, query.percentAudited, query.totalCourseHours, call));
+                answers.put(key, answer);
+            }
+            result.add(answer);
+        }
+        return result;
+    }
+
+    private List<String> search(int[] subjects, double percentAudited, double totalCourseHours,
+                                AnalyzerMetrics.Call call) {
+        ScratchRankSet titleRanks = ScratchRankSet.forThread(codeOfTitleRank.length);
+        for (int subject : subjects) {
+            int start = subjectStart[subject];
+            int end = subjectStart[subject + 1];
+            int hoursEnd = upperBound(hoursByHours, start, end, totalCourseHours);
+            int auditedEnd = upperBound(negatedAuditedByAudited, start, end, -percentAudited);
+            // every match lies in both prefixes, scan the shorter one and check the other condition
+            call.scanned(Math.min(hoursEnd, auditedEnd) - start);
+            if (hoursEnd - start <= auditedEnd - start) {
+                for (int i = start; i < hoursEnd; i++) {
+                    if (auditedByHours[i] >= percentAudited) {
+                        titleRanks.add(titleRankByHours[i]);
+                    }
+                }
+            } else {
+                for (int i = start; i < auditedEnd; i++) {
+                    if (hoursByAudited[i] <= totalCourseHours) {
+                        titleRanks.add(titleRankByAudited[i]);
+                    }
+                }
+            }
+        }
+        return titleRanks.drain(table.titles, codeOfTitleRank);
+    }
+
+    private int[] matchingSubjects(String query) {
+        int[] candidates = null;
+        if (query.length() >= 3) {
+            // the subjects of the rarest trigram of the query are the only possible matches
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                int index = trigrams.get(trigram(query, i)) - 1;
+                if (index < 0) {
+                    return new int[0];
+                }
+                int[] codes = subjectsOfTrigram[index];
+                if (candidates == null || codes.length < candidates.length) {
+                    candidates = codes;
+                }
+            }
+        }
+        byte[] asciiQuery = CaseFoldedDictionary.asciiBytes(query);
+        int count = candidates == null ? subjects.size() : candidates.length;
+        int[] matches = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int code = candidates == null ? i : candidates[i];
+            if (subjects.contains(code, query, asciiQuery)) {
+                matches[found++] = code;
+            }
+        }
+        return Arrays.copyOf(matches, found);
+    }
+
+    // first index in [from, to) whose value is not <= bound; sorted ascending with NaN last
+    private static int upperBound(double[] values, int from, int to, double bound) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= bound) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
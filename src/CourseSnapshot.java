@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a CourseTable, so a dataset only has to be parsed from CSV once.
+ * <pre>
+ * header (32 bytes): magic, version, row count, reserved (4 ints), payload length, CRC32 of payload (2 longs)
+ * payload: the string dictionaries (count, then UTF-8 length and bytes per value),
+ *          then every column as a raw little-endian array of row count elements
+ * </pre>
+ * Loading maps the file and copies the columns straight into the table arrays; only the
+ * distinct strings of the dictionaries are decoded.
+ */
+class CourseSnapshot {
+    static final int MAGIC = 0x43534e50; // "CSNP"
+    // 2: launch dates as int epoch days instead of long milliseconds
+    static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private CourseSnapshot() {
+    }
+
+    /**
+     * Writes table to a temporary file next to path, forces it to disk and then moves it over path
+     * atomically, so a crash or failure mid-write leaves either the previous snapshot or the new
+     * one at path, never a torn file.
+     */
+    static void write(CourseTable table, Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                write(table, channel);
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private static void write(CourseTable table, FileChannel channel) throws IOException {
+        Writer out = new Writer(channel);
+        channel.position(HEADER_SIZE);
+        out.dictionary(table.institutions);
+        out.dictionary(table.numbers);
+        out.dictionary(table.titles);
+        out.dictionary(table.instructors);
+        out.dictionary(table.subjects);
+        int n = table.size;
+        out.ints(table.institution, n);
+        out.ints(table.number, n);
+        out.ints(table.launchDay, n);
+        out.ints(table.title, n);
+        out.ints(table.instructor, n);
+        out.ints(table.subject, n);
+        out.ints(table.year, n);
+        out.ints(table.honorCode, n);
+        out.ints(table.participants, n);
+        out.ints(table.audited, n);
+        out.ints(table.certified, n);
+        out.doubles(table.percentAudited, n);
+        out.doubles(table.percentCertified, n);
+        out.doubles(table.percentCertified50, n);
+        out.doubles(table.percentVideo, n);
+        out.doubles(table.percentForum, n);
+        out.doubles(table.gradeHigherZero, n);
+        out.doubles(table.totalHours, n);
+        out.doubles(table.medianHoursCertification, n);
+        out.doubles(table.medianAge, n);
+        out.doubles(table.percentMale, n);
+        out.doubles(table.percentFemale, n);
+        out.doubles(table.percentDegree, n);
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+        header.putLong(out.length).putLong(out.crc.getValue());
+        header.flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    static CourseTable read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a course snapshot: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a course snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            int n = header.getInt();
+            header.getInt();
+            long length = header.getLong();
+            long checksum = header.getLong();
+            if (n < 0 || channel.size() != HEADER_SIZE + length) {
+                throw new IOException("Truncated course snapshot: " + path);
+            }
+            Reader in = new Reader(channel, HEADER_SIZE);
+            if (in.checksum(length) != checksum) {
+                throw new IOException("Checksum mismatch in course snapshot: " + path);
+            }
+
+            CourseTable table = new CourseTable();
+            in.dictionary(table.institutions);
+            in.dictionary(table.numbers);
+            in.dictionary(table.titles);
+            int instructorFields = in.nextInt();
+            for (int i = 0; i < instructorFields; i++) {
+                table.encodeInstructors(in.nextString());
+            }
+            in.dictionary(table.subjects);
+            table.ensureCapacity(n);
+            in.ints(table.institution, n);
+            in.ints(table.number, n);
+            in.ints(table.launchDay, n);
+            in.ints(table.title, n);
+            in.ints(table.instructor, n);
+            in.ints(table.subject, n);
+            in.ints(table.year, n);
+            in.ints(table.honorCode, n);
+            in.ints(table.participants, n);
+            in.ints(table.audited, n);
+            in.ints(table.certified, n);
+            in.doubles(table.percentAudited, n);
+            in.doubles(table.percentCertified, n);
+            in.doubles(table.percentCertified50, n);
+            in.doubles(table.percentVideo, n);
+            in.doubles(table.percentForum, n);
+            in.doubles(table.gradeHigherZero, n);
+            in.doubles(table.totalHours, n);
+            in.doubles(table.medianHoursCertification, n);
+            in.doubles(table.medianAge, n);
+            in.doubles(table.percentMale, n);
+            in.doubles(table.percentFemale, n);
+            in.doubles(table.percentDegree, n);
+            table.size = n;
+            return table;
+        }
+    }
+
+    // buffered little-endian writer that checksums everything it writes
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32 crc = new CRC32();
+        long length;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void dictionary(StringDictionary dictionary) throws IOException {
+            ensure(4);
+            buffer.putInt(dictionary.size());
+            for (int code = 0; code < dictionary.size(); code++) {
+                byte[] bytes = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+                ensure(4);
+                buffer.putInt(bytes.length);
+                for (int off = 0; off < bytes.length; off += BUFFER_SIZE) {
+                    int len = Math.min(BUFFER_SIZE, bytes.length - off);
+                    ensure(len);
+                    buffer.put(bytes, off, len);
+                }
+            }
+        }
+
+        void ints(int[] values, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(4);
+                int len = Math.min(n - off, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, off, len);
+                buffer.position(buffer.position() + len * 4);
+                off += len;
+            }
+        }
+
+        void doubles(double[] values, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(8);
+                int len = Math.min(n - off, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, off, len);
+                buffer.position(buffer.position() + len * 8);
+                off += len;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            length += buffer.remaining();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // reads the payload sequentially through a sliding read-only mapping of at most MAX_MAPPING bytes
+    private static class Reader {
+        private static final long MAX_MAPPING = 1L << 30;
+        private final FileChannel channel;
+        private final long end;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Reader(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            this.end = channel.size();
+            remap(position);
+        }
+
+        long checksum(long length) throws IOException {
+            CRC32 crc = new CRC32();
+            long start = position();
+            for (long off = 0; off < length; off += MAX_MAPPING) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start + off,
+                    Math.min(MAX_MAPPING, length - off)));
+            }
+            return crc.getValue();
+        }
+
+        private long position() {
+            return windowStart + window.position();
+        }
+
+        private void remap(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPING, end - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // makes at least min(bytes, what is left of the file) bytes available in the window
+        private void require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = position();
+                if (end - position < bytes) {
+                    throw new IOException("Truncated course snapshot");
+                }
+                remap(position);
+            }
+        }
+
+        int nextInt() throws IOException {
+            require(4);
+            return window.getInt();
+        }
+
+        String nextString() throws IOException {
+            int length = nextInt();
+            require(length);
+            byte[] bytes = new byte[length];
+            window.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void dictionary(StringDictionary dictionary) throws IOException {
+            int count = nextInt();
+            for (int i = 0; i < count; i++) {
+                dictionary.encode(nextString());
+            }
+        }
+
+        void ints(int[] values, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                require(4);
+                int len = Math.min(n - off, window.remaining() / 4);
+                window.asIntBuffer().get(values, off, len);
+                window.position(window.position() + len * 4);
+                off += len;
+            }
+        }
+
+        void doubles(double[] values, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                require(8);
+                int len = Math.min(n - off, window.remaining() / 8);
+                window.asDoubleBuffer().get(values, off, len);
+                window.position(window.position() + len * 8);
+                off += len;
+            }
+        }
+    }
+}
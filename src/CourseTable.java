@@ -0,0 +1,337 @@
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented storage of the course dataset.
+ * Row i of the dataset is spread over index i of the column arrays below; string
+ * columns hold codes into a StringDictionary, so every distinct string is stored once.
+ * The arrays may be longer than size, only the first size entries are meaningful.
+ */
+class CourseTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    final StringDictionary institutions;
+    final StringDictionary numbers;
+    final StringDictionary titles;
+    final StringDictionary instructors;
+    final StringDictionary subjects;
+    // individual instructors, and the instructor codes of every distinct instructors field
+    final StringDictionary instructorNames;
+    int[][] instructorNameCodes;
+
+    int size;
+    // whether an extension shares the column arrays, see CourseTable(CourseTable, int)
+    private boolean extended;
+
+    int[] institution = new int[INITIAL_CAPACITY];
+    int[] number = new int[INITIAL_CAPACITY];
+    // days since 1970-01-01, see EpochDays
+    int[] launchDay = new int[INITIAL_CAPACITY];
+    int[] title = new int[INITIAL_CAPACITY];
+    int[] instructor = new int[INITIAL_CAPACITY];
+    int[] subject = new int[INITIAL_CAPACITY];
+    int[] year = new int[INITIAL_CAPACITY];
+    int[] honorCode = new int[INITIAL_CAPACITY];
+    int[] participants = new int[INITIAL_CAPACITY];
+    int[] audited = new int[INITIAL_CAPACITY];
+    int[] certified = new int[INITIAL_CAPACITY];
+    double[] percentAudited = new double[INITIAL_CAPACITY];
+    double[] percentCertified = new double[INITIAL_CAPACITY];
+    double[] percentCertified50 = new double[INITIAL_CAPACITY];
+    double[] percentVideo = new double[INITIAL_CAPACITY];
+    double[] percentForum = new double[INITIAL_CAPACITY];
+    double[] gradeHigherZero = new double[INITIAL_CAPACITY];
+    double[] totalHours = new double[INITIAL_CAPACITY];
+    double[] medianHoursCertification = new double[INITIAL_CAPACITY];
+    double[] medianAge = new double[INITIAL_CAPACITY];
+    double[] percentMale = new double[INITIAL_CAPACITY];
+    double[] percentFemale = new double[INITIAL_CAPACITY];
+    double[] percentDegree = new double[INITIAL_CAPACITY];
+
+    CourseTable() {
+        institutions = new StringDictionary();
+        numbers = new StringDictionary();
+        titles = new StringDictionary();
+        instructors = new StringDictionary();
+        subjects = new StringDictionary();
+        instructorNames = new StringDictionary();
+        instructorNameCodes = new int[16][];
+    }
+
+    /**
+     * The rows of other, with room for capacity rows, that can be appended to without affecting
+     * other. The first extension of a table shares its column arrays and dictionaries and writes
+     * only past other's size, which readers of other never look at; the arrays are copied only
+     * when they must grow, to twice their capacity, so a series of appends costs amortized
+     * constant time per row. Later extensions of the same table, e.g. after a failed append,
+     * copy it. Extensions of one table must not be created concurrently.
+     */
+    CourseTable(CourseTable other, int capacity) {
+        institutions = new StringDictionary(other.institutions);
+        numbers = new StringDictionary(other.numbers);
+        titles = new StringDictionary(other.titles);
+        instructors = new StringDictionary(other.instructors);
+        subjects = new StringDictionary(other.subjects);
+        instructorNames = new StringDictionary(other.instructorNames);
+        institution = other.institution;
+        number = other.number;
+        launchDay = other.launchDay;
+        title = other.title;
+        instructor = other.instructor;
+        subject = other.subject;
+        year = other.year;
+        honorCode = other.honorCode;
+        participants = other.participants;
+        audited = other.audited;
+        certified = other.certified;
+        percentAudited = other.percentAudited;
+        percentCertified = other.percentCertified;
+        percentCertified50 = other.percentCertified50;
+        percentVideo = other.percentVideo;
+        percentForum = other.percentForum;
+        gradeHigherZero = other.gradeHigherZero;
+        totalHours = other.totalHours;
+        medianHoursCertification = other.medianHoursCertification;
+        medianAge = other.medianAge;
+        percentMale = other.percentMale;
+        percentFemale = other.percentFemale;
+        percentDegree = other.percentDegree;
+        size = other.size;
+        if (!other.extended) {
+            other.extended = true;
+            instructorNameCodes = other.instructorNameCodes;
+            ensureCapacity(capacity);
+        } else {
+            // the slots past other's instructors may hold the names of a failed extension
+            instructorNameCodes = Arrays.copyOf(other.instructorNameCodes, other.instructorNameCodes.length);
+            Arrays.fill(instructorNameCodes, other.instructors.size(), instructorNameCodes.length, null);
+            resize(Math.max(capacity, institution.length));
+        }
+    }
+
+    /**
+     * Appends the current record of csv as a new row. The numeric fields are parsed before
+     * any string is encoded, so a record that does not parse leaves the table unchanged.
+     */
+    void add(CsvTokenizer csv) {
+        ensureCapacity(size + 1);
+        int row = size;
+        year[row] = csv.intField(6);
+        honorCode[row] = csv.intField(7);
+        participants[row] = csv.intField(8);
+        audited[row] = csv.intField(9);
+        certified[row] = csv.intField(10);
+        percentAudited[row] = csv.doubleField(11);
+        percentCertified[row] = csv.doubleField(12);
+        percentCertified50[row] = csv.doubleField(13);
+        percentVideo[row] = csv.doubleField(14);
+        percentForum[row] = csv.doubleField(15);
+        gradeHigherZero[row] = csv.doubleField(16);
+        totalHours[row] = csv.doubleField(17);
+        medianHoursCertification[row] = csv.doubleField(18);
+        medianAge[row] = csv.doubleField(19);
+        percentMale[row] = csv.doubleField(20);
+        percentFemale[row] = csv.doubleField(21);
+        percentDegree[row] = csv.doubleField(22);
+        launchDay[row] = csv.dateField(2);
+        institution[row] = institutions.encode(csv.field(0));
+        number[row] = numbers.encode(csv.field(1));
+        title[row] = titles.encode(csv.field(3));
+        instructor[row] = encodeInstructors(csv.field(4));
+        subject[row] = subjects.encode(csv.field(5));
+        size++;
+    }
+
+    /**
+     * Appends every remaining record of csv. A record that does not parse is passed to rejects
+     * and skipped, or, without rejects, ends the load with its exception.
+     * @return the number of skipped records
+     */
+    long addRecords(CsvTokenizer csv, RejectSink rejects) throws IOException {
+        long rejected = 0;
+        while (csv.nextRecord()) {
+            try {
+                add(csv);
+            } catch (RuntimeException e) {
+                if (rejects == null) {
+                    throw e;
+                }
+                rejects.reject(csv.recordLine(), e.toString(), csv.recordText());
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    /** Appends course as a new row. */
+    void add(Course course) {
+        ensureCapacity(size + 1);
+        int row = size;
+        institution[row] = institutions.encode(course.institution);
+        number[row] = numbers.encode(course.number);
+        launchDay[row] = EpochDays.of(course.launchDate);
+        title[row] = titles.encode(course.title);
+        instructor[row] = encodeInstructors(course.instructors);
+        subject[row] = subjects.encode(course.subject);
+        year[row] = course.year;
+        honorCode[row] = course.honorCode;
+        participants[row] = course.participants;
+        audited[row] = course.audited;
+        certified[row] = course.certified;
+        percentAudited[row] = course.percentAudited;
+        percentCertified[row] = course.percentCertified;
+        percentCertified50[row] = course.percentCertified50;
+        percentVideo[row] = course.percentVideo;
+        percentForum[row] = course.percentForum;
+        gradeHigherZero[row] = course.gradeHigherZero;
+        totalHours[row] = course.totalHours;
+        medianHoursCertification[row] = course.medianHoursCertification;
+        medianAge[row] = course.medianAge;
+        percentMale[row] = course.percentMale;
+        percentFemale[row] = course.percentFemale;
+        percentDegree[row] = course.percentDegree;
+        size++;
+    }
+
+    /** Appends all rows of other, re-encoding its string columns into this table's dictionaries. */
+    void addAll(CourseTable other) {
+        int[] institutionCodes = institutions.encodeAll(other.institutions);
+        int[] numberCodes = numbers.encodeAll(other.numbers);
+        int[] titleCodes = titles.encodeAll(other.titles);
+        int[] instructorCodes = new int[other.instructors.size()];
+        for (int code = 0; code < instructorCodes.length; code++) {
+            instructorCodes[code] = encodeInstructors(other.instructors.decode(code));
+        }
+        int[] subjectCodes = subjects.encodeAll(other.subjects);
+        int n = other.size;
+        ensureCapacity(size + n);
+        for (int i = 0; i < n; i++) {
+            institution[size + i] = institutionCodes[other.institution[i]];
+            number[size + i] = numberCodes[other.number[i]];
+            title[size + i] = titleCodes[other.title[i]];
+            instructor[size + i] = instructorCodes[other.instructor[i]];
+            subject[size + i] = subjectCodes[other.subject[i]];
+        }
+        System.arraycopy(other.launchDay, 0, launchDay, size, n);
+        System.arraycopy(other.year, 0, year, size, n);
+        System.arraycopy(other.honorCode, 0, honorCode, size, n);
+        System.arraycopy(other.participants, 0, participants, size, n);
+        System.arraycopy(other.audited, 0, audited, size, n);
+        System.arraycopy(other.certified, 0, certified, size, n);
+        System.arraycopy(other.percentAudited, 0, percentAudited, size, n);
+        System.arraycopy(other.percentCertified, 0, percentCertified, size, n);
+        System.arraycopy(other.percentCertified50, 0, percentCertified50, size, n);
+        System.arraycopy(other.percentVideo, 0, percentVideo, size, n);
+        System.arraycopy(other.percentForum, 0, percentForum, size, n);
+        System.arraycopy(other.gradeHigherZero, 0, gradeHigherZero, size, n);
+        System.arraycopy(other.totalHours, 0, totalHours, size, n);
+        System.arraycopy(other.medianHoursCertification, 0, medianHoursCertification, size, n);
+        System.arraycopy(other.medianAge, 0, medianAge, size, n);
+        System.arraycopy(other.percentMale, 0, percentMale, size, n);
+        System.arraycopy(other.percentFemale, 0, percentFemale, size, n);
+        System.arraycopy(other.percentDegree, 0, percentDegree, size, n);
+        size += n;
+    }
+
+    /**
+     * Encodes an instructors field such as "Eric Grimson, John Guttag" and, the first
+     * time the field is seen, splits it and encodes the individual names.
+     */
+    int encodeInstructors(String value) {
+        int code = instructors.encode(value);
+        if (code == instructorNameCodes.length) {
+            instructorNameCodes = Arrays.copyOf(instructorNameCodes, code * 2);
+        }
+        if (instructorNameCodes[code] == null) {
+            String[] names = value.split(", ");
+            int[] codes = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                codes[i] = instructorNames.encode(names[i]);
+            }
+            instructorNameCodes[code] = codes;
+        }
+        return code;
+    }
+
+    /** Materializes row as a Course object. */
+    Course course(int row) {
+        return new Course(institutions.decode(institution[row]), numbers.decode(number[row]),
+            EpochDays.toLocalDate(launchDay[row]), titles.decode(title[row]), instructors.decode(instructor[row]),
+            subjects.decode(subject[row]), year[row], honorCode[row], participants[row],
+            audited[row], certified[row], percentAudited[row], percentCertified[row],
+            percentCertified50[row], percentVideo[row], percentForum[row], gradeHigherZero[row],
+            totalHours[row], medianHoursCertification[row], medianAge[row], percentMale[row],
+            percentFemale[row], percentDegree[row]);
+    }
+
+    /** A read-only list view of the rows; Course objects are created on access. */
+    List<Course> asCourseList() {
+        return new AbstractList<>() {
+            @Override
+            public Course get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return course(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Estimated heap footprint of the table: the column arrays at their current capacity,
+     * the dictionaries and the instructor code lists. Derived indexes are not included.
+     */
+    long estimatedHeapBytes() {
+        // 11 int columns and 12 double columns, each with a 16 byte array header
+        long bytes = 23 * 16L + (long) institution.length * (11 * 4 + 12 * 8);
+        for (StringDictionary dictionary : new StringDictionary[] {
+            institutions, numbers, titles, instructors, subjects, instructorNames}) {
+            bytes += dictionary.estimatedHeapBytes();
+        }
+        bytes += 16 + 4L * instructorNameCodes.length;
+        for (int i = 0; i < instructors.size(); i++) {
+            bytes += 16 + 4L * instructorNameCodes[i].length;
+        }
+        return bytes;
+    }
+
+    void ensureCapacity(int required) {
+        if (required <= institution.length) {
+            return;
+        }
+        resize(Math.max(required, institution.length * 2));
+    }
+
+    private void resize(int capacity) {
+        institution = Arrays.copyOf(institution, capacity);
+        number = Arrays.copyOf(number, capacity);
+        launchDay = Arrays.copyOf(launchDay, capacity);
+        title = Arrays.copyOf(title, capacity);
+        instructor = Arrays.copyOf(instructor, capacity);
+        subject = Arrays.copyOf(subject, capacity);
+        year = Arrays.copyOf(year, capacity);
+        honorCode = Arrays.copyOf(honorCode, capacity);
+        participants = Arrays.copyOf(participants, capacity);
+        audited = Arrays.copyOf(audited, capacity);
+        certified = Arrays.copyOf(certified, capacity);
+        percentAudited = Arrays.copyOf(percentAudited, capacity);
+        percentCertified = Arrays.copyOf(percentCertified, capacity);
+        percentCertified50 = Arrays.copyOf(percentCertified50, capacity);
+        percentVideo = Arrays.copyOf(percentVideo, capacity);
+        percentForum = Arrays.copyOf(percentForum, capacity);
+        gradeHigherZero = Arrays.copyOf(gradeHigherZero, capacity);
+        totalHours = Arrays.copyOf(totalHours, capacity);
+        medianHoursCertification = Arrays.copyOf(medianHoursCertification, capacity);
+        medianAge = Arrays.copyOf(medianAge, capacity);
+        percentMale = Arrays.copyOf(percentMale, capacity);
+        percentFemale = Arrays.copyOf(percentFemale, capacity);
+        percentDegree = Arrays.copyOf(percentDegree, capacity);
+    }
+}
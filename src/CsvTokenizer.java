@@ -0,0 +1,287 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A single-pass, quote-aware CSV tokenizer (RFC 4180).
+ * Quoted fields may contain commas, line breaks and escaped quotes ("").
+ * The current record is kept in one reusable char buffer, so numeric fields
+ * can be parsed in place without creating a String for them.
+ */
+class CsvTokenizer implements Closeable {
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader in;
+    private final char[] buffer = new char[READ_BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // unescaped content of the current record, fields are [fieldStart[i], fieldEnd[i])
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStart = new int[32];
+    private int[] fieldEnd = new int[32];
+    private int fieldCount;
+
+    private long line;
+    private long recordLine;
+
+    CsvTokenizer(Reader in) {
+        this(in, 1);
+    }
+
+    /** A tokenizer over input that starts on line firstLine of a larger file. */
+    CsvTokenizer(Reader in, long firstLine) {
+        this.in = in;
+        this.line = firstLine;
+    }
+
+    /**
+     * Reads the next record. Empty lines are skipped.
+     * @return false when the end of input has been reached
+     */
+    boolean nextRecord() throws IOException {
+        do {
+            if (!readRecord()) {
+                return false;
+            }
+        } while (fieldCount == 1 && recordLength == 0);
+        return true;
+    }
+
+    private boolean readRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        recordLine = line;
+        boolean quoted = false;
+        boolean any = false;
+        int start = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (!any) {
+                    return false;
+                }
+                endField(start);
+                return true;
+            }
+            char c = buffer[position++];
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    if (position == limit && !fill()) {
+                        quoted = false;
+                        continue;
+                    }
+                    if (buffer[position] == '"') {
+                        // escaped quote inside a quoted field
+                        position++;
+                        append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append(c);
+                }
+            } else if (c == ',') {
+                endField(start);
+                start = recordLength;
+            } else if (c == '\n') {
+                line++;
+                endField(start);
+                return true;
+            } else if (c == '\r') {
+                if (position == limit && !fill()) {
+                    endField(start);
+                    return true;
+                }
+                if (buffer[position] == '\n') {
+                    position++;
+                }
+                line++;
+                endField(start);
+                return true;
+            } else if (c == '"' && recordLength == start) {
+                quoted = true;
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            char[] grown = new char[record.length * 2];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStart.length) {
+            int[] grownStart = new int[fieldCount * 2];
+            int[] grownEnd = new int[fieldCount * 2];
+            System.arraycopy(fieldStart, 0, grownStart, 0, fieldCount);
+            System.arraycopy(fieldEnd, 0, grownEnd, 0, fieldCount);
+            fieldStart = grownStart;
+            fieldEnd = grownEnd;
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /** Line number (1-based) on which the current record starts. */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * The current record as one CSV line, fields quoted where the content needs it, e.g. to
+     * keep a record that could not be loaded.
+     */
+    String recordText() {
+        StringBuilder sb = new StringBuilder(recordLength + fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            boolean quote = false;
+            for (int p = fieldStart[i]; p < fieldEnd[i] && !quote; p++) {
+                char c = record[p];
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                sb.append(record, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+                continue;
+            }
+            sb.append('"');
+            for (int p = fieldStart[i]; p < fieldEnd[i]; p++) {
+                if (record[p] == '"') {
+                    sb.append('"');
+                }
+                sb.append(record[p]);
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    String field(int i) {
+        checkField(i);
+        return new String(record, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+    }
+
+    int intField(int i) {
+        checkField(i);
+        int p = fieldStart[i];
+        int end = fieldEnd[i];
+        boolean negative = false;
+        if (p < end && (record[p] == '-' || record[p] == '+')) {
+            negative = record[p] == '-';
+            p++;
+        }
+        if (p == end || end - p > 9) {
+            // empty, or possibly out of int range: let Integer report it
+            return Integer.parseInt(field(i));
+        }
+        int value = 0;
+        for (; p < end; p++) {
+            int digit = record[p] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(field(i));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses plain decimals such as "418.94" in place. With at most 15 significant
+     * digits both the mantissa and the power of ten are exact doubles, so a single
+     * division gives the correctly rounded result. Anything else (exponents, long
+     * mantissas, NaN...) falls back to Double.parseDouble.
+     */
+    double doubleField(int i) {
+        checkField(i);
+        int p = fieldStart[i];
+        int end = fieldEnd[i];
+        boolean negative = false;
+        if (p < end && (record[p] == '-' || record[p] == '+')) {
+            negative = record[p] == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        for (; p < end; p++) {
+            char c = record[p];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    if (seenDot) {
+                        scale++;
+                    }
+                    continue;
+                }
+                if (++digits > 15) {
+                    return Double.parseDouble(field(i));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenDot) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return Double.parseDouble(field(i));
+            }
+        }
+        if (!seenDigit || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(field(i));
+        }
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /** Parses a launch date such as "06/22/2016" in place, as days since 1970-01-01, see EpochDays. */
+    int dateField(int i) {
+        checkField(i);
+        return EpochDays.parse(record, fieldStart[i], fieldEnd[i]);
+    }
+
+    private void checkField(int i) {
+        if (i < 0 || i >= fieldCount) {
+            throw new IllegalArgumentException("Record at line " + recordLine + " has "
+                + fieldCount + " fields, field " + i + " requested");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
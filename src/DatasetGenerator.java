@@ -0,0 +1,327 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic course datasets of any size in the schema of resources/local.csv, for
+ * scaling tests and benchmarks. The output is a function of the source file, the row count
+ * and the seed only, and is written row by row, so memory use does not depend on its size.
+ * <p>
+ * The source courses (one per course number) are the templates. Every synthetic course copies
+ * a random template: its subject, its number of runs, the number of its instructors and the
+ * numbers of its runs, which are jittered and kept consistent with each other (audited and
+ * certified counts agree with their percentages, % female is 100 - % male).
+ * The course number is made unique, and as the output grows so does the number of distinct
+ * titles, institutions and instructors. Institutions and instructors are drawn with a Zipf
+ * skew, so a few are much more frequent than the others, as in the source.
+ * <p>
+ * Usage: DatasetGenerator target.csv rows [seed] [source.csv]
+ */
+public class DatasetGenerator {
+    private static final long DEFAULT_SEED = 209;
+    // one synthetic institution per this many rows, besides those of the source
+    private static final long ROWS_PER_INSTITUTION = 100_000;
+    private static final int MAX_INSTITUTIONS = 500;
+    private static final double INSTITUTION_SKEW = 1.1;
+    private static final double INSTRUCTOR_SKEW = 0.9;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long FIRST_LAUNCH = LocalDate.of(2012, 7, 1).toEpochDay();
+    private static final long LAST_LAUNCH = LocalDate.of(2016, 9, 30).toEpochDay();
+
+    private final List<String> header;
+    private final List<Template> templates;
+    private final List<String> institutions;
+    private final List<String> firstNames;
+    private final List<String> lastNames;
+    private final double titlesPerCourse;
+    private final double instructorsPerCourse;
+
+    private static class Template {
+        final String number;
+        final String title;
+        final String subject;
+        final int instructors;
+        final List<double[]> runs = new ArrayList<>();
+
+        Template(String number, String title, String subject, int instructors) {
+            this.number = number;
+            this.title = title;
+            this.subject = subject;
+            this.instructors = instructors;
+        }
+    }
+
+    /** Collects the templates and the value pools from a dataset in the local.csv schema. */
+    DatasetGenerator(Path source) throws IOException {
+        Map<String, Template> byNumber = new LinkedHashMap<>();
+        Map<String, Integer> institutionCounts = new HashMap<>();
+        LinkedHashSet<String> titles = new LinkedHashSet<>();
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        LinkedHashSet<String> first = new LinkedHashSet<>();
+        LinkedHashSet<String> last = new LinkedHashSet<>();
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(source, StandardCharsets.UTF_8))) {
+            if (!csv.nextRecord()) {
+                throw new IOException("Empty dataset: " + source);
+            }
+            header = new ArrayList<>();
+            for (int i = 0; i < csv.fieldCount(); i++) {
+                header.add(csv.field(i));
+            }
+            while (csv.nextRecord()) {
+                institutionCounts.merge(csv.field(0), 1, Integer::sum);
+                String[] instructors = csv.field(4).split(", ");
+                Template template = byNumber.computeIfAbsent(csv.field(1),
+                    number -> new Template(number, csv.field(3), csv.field(5), instructors.length));
+                double[] run = new double[23];
+                for (int i = 6; i < run.length; i++) {
+                    run[i] = csv.doubleField(i);
+                }
+                template.runs.add(run);
+                titles.add(csv.field(3));
+                for (String name : instructors) {
+                    names.add(name);
+                    int space = name.lastIndexOf(' ');
+                    first.add(space < 0 ? name : name.substring(0, space));
+                    last.add(name.substring(space + 1));
+                }
+            }
+        }
+        if (byNumber.isEmpty()) {
+            throw new IOException("No courses in dataset: " + source);
+        }
+        templates = new ArrayList<>(byNumber.values());
+        institutions = new ArrayList<>(institutionCounts.keySet());
+        // most frequent first, so that the Zipf ranks keep the order of the source
+        institutions.sort((a, b) -> institutionCounts.get(b) - institutionCounts.get(a));
+        firstNames = new ArrayList<>(first);
+        lastNames = new ArrayList<>(last);
+        titlesPerCourse = (double) titles.size() / templates.size();
+        instructorsPerCourse = (double) names.size() / templates.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: DatasetGenerator target.csv rows [seed] [source.csv]");
+            System.exit(2);
+        }
+        long rows = Long.parseLong(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        Path source = Paths.get(args.length > 3 ? args[3] : "resources/local.csv");
+        long start = System.nanoTime();
+        generate(source, Paths.get(args[0]), rows, seed);
+        System.out.printf("%d rows written to %s in %.1f s%n", rows, args[0], (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Writes a dataset of rows course runs to target, from the statistics of source. */
+    public static void generate(Path source, Path target, long rows, long seed) throws IOException {
+        DatasetGenerator generator = new DatasetGenerator(source);
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            generator.write(out, rows, seed);
+        }
+    }
+
+    void write(Writer out, long rows, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        // the expected number of courses, which the title and instructor pools are sized on
+        double runsPerTemplate = 0;
+        for (Template template : templates) {
+            runsPerTemplate += template.runs.size();
+        }
+        runsPerTemplate /= templates.size();
+        long courses = Math.max(1, (long) (rows / runsPerTemplate));
+        int institutionCount = (int) Math.min(MAX_INSTITUTIONS, institutions.size() + rows / ROWS_PER_INSTITUTION);
+        ZipfSampler institution = new ZipfSampler(institutionCount, INSTITUTION_SKEW);
+        long titleVariants = Math.max(1, (long) (courses * titlesPerCourse / templates.size()));
+        ZipfSampler instructor = new ZipfSampler(
+            Math.max(1, (long) (courses * instructorsPerCourse)), INSTRUCTOR_SKEW);
+
+        StringBuilder line = new StringBuilder(512);
+        for (int i = 0; i < header.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendText(line, header.get(i));
+        }
+        line.append('\n');
+        out.append(line);
+
+        long written = 0;
+        for (long course = 0; written < rows; course++) {
+            Template template = templates.get(random.nextInt(templates.size()));
+            String institutionName = institutionName(institution.sample(random) - 1);
+            String number = template.number + "-" + Long.toString(course, 36);
+            long variant = random.nextLong(titleVariants);
+            String title = variant == 0 ? template.title : template.title + " " + (variant + 1);
+            StringBuilder instructors = new StringBuilder();
+            for (int i = 0; i < template.instructors; i++) {
+                if (i > 0) {
+                    instructors.append(", ");
+                }
+                instructors.append(instructorName(instructor.sample(random) - 1));
+            }
+            for (int run = 0; run < template.runs.size() && written < rows; run++, written++) {
+                line.setLength(0);
+                appendRun(line, random, template.runs.get(run), institutionName, number, title,
+                    instructors, template.subject);
+                out.append(line);
+            }
+        }
+    }
+
+    private String institutionName(long rank) {
+        return rank < institutions.size() ? institutions.get((int) rank) : "Institution" + rank + "X";
+    }
+
+    // first and last names of the source recombined, then numbered once all combinations are used
+    private String instructorName(long rank) {
+        long combinations = (long) firstNames.size() * lastNames.size();
+        String name = firstNames.get((int) (rank % firstNames.size())) + " "
+            + lastNames.get((int) (rank / firstNames.size() % lastNames.size()));
+        return rank < combinations ? name : name + " " + (rank / combinations + 1);
+    }
+
+    private static void appendRun(StringBuilder line, SplittableRandom random, double[] source,
+                                  String institution, String number, String title,
+                                  CharSequence instructors, String subject) {
+        int participants = (int) Math.max(1, Math.round(source[8] * Math.exp(random.nextGaussian() * 0.4)));
+        double percentAudited = clamp(source[11] * jitter(random), 0, 100);
+        int audited = (int) Math.round(participants * percentAudited / 100);
+        double percentCertified = clamp(source[12] * jitter(random), 0, 100 * audited / (double) participants);
+        int certified = (int) Math.round(participants * percentCertified / 100);
+        double percentMale = clamp(source[20] + random.nextGaussian() * 3, 0, 100);
+
+        LocalDate launch = LocalDate.ofEpochDay(random.nextLong(FIRST_LAUNCH, LAST_LAUNCH + 1));
+        appendText(line, institution).append(',');
+        appendText(line, number).append(',');
+        appendTwoDigits(line, launch.getMonthValue()).append('/');
+        appendTwoDigits(line, launch.getDayOfMonth()).append('/').append(launch.getYear()).append(',');
+        appendText(line, title).append(',');
+        appendText(line, instructors).append(',');
+        appendText(line, subject).append(',');
+        line.append((int) source[6]).append(',');
+        line.append((int) source[7]).append(',');
+        line.append(participants).append(',');
+        line.append(audited).append(',');
+        line.append(certified).append(',');
+        appendFixed(line, 100.0 * audited / participants).append(',');
+        appendFixed(line, 100.0 * certified / participants).append(',');
+        appendFixed(line, audited == 0 ? 0 : 100.0 * certified / audited).append(',');
+        appendFixed(line, clamp(source[14] * jitter(random), 0, 100)).append(',');
+        appendFixed(line, clamp(source[15] * jitter(random), 0, 100)).append(',');
+        appendFixed(line, clamp(source[16] * jitter(random), 0, 100)).append(',');
+        // total hours grow with the audience
+        appendFixed(line, source[17] * participants / source[8] * jitter(random)).append(',');
+        appendFixed(line, source[18] * jitter(random)).append(',');
+        line.append(Math.max(14, Math.round(source[19] + random.nextGaussian() * 2))).append(',');
+        appendFixed(line, percentMale).append(',');
+        appendFixed(line, 100 - percentMale).append(',');
+        appendFixed(line, clamp(source[22] + random.nextGaussian() * 3, 0, 100)).append('\n');
+    }
+
+    private static double jitter(SplittableRandom random) {
+        return Math.exp(random.nextGaussian() * 0.15);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // quoted when it contains a separator or a quote, as in the source file
+    private static StringBuilder appendText(StringBuilder line, CharSequence value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        return line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    // value >= 0 with two decimals, without the cost of String.format
+    private static StringBuilder appendFixed(StringBuilder line, double value) {
+        long hundredths = Math.round(value * 100);
+        line.append(hundredths / 100).append('.');
+        return appendTwoDigits(line, (int) (hundredths % 100));
+    }
+
+    /**
+     * Samples ranks 1..n with probability proportional to 1 / rank^s in constant time,
+     * by rejection-inversion (W. Hormann and G. Derflinger, 1996).
+     */
+    static class ZipfSampler {
+        private final long n;
+        private final double s;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double threshold;
+
+        ZipfSampler(long n, double s) {
+            this.n = n;
+            this.s = s;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralN = hIntegral(n + 0.5);
+            threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-s * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - s) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - s));
+            return Math.exp(helper1(t) * x);
+        }
+
+        // log(1 + x) / x, accurate near 0
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        // (exp(x) - 1) / x, accurate near 0
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+        }
+    }
+}
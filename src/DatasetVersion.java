@@ -0,0 +1,113 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One version of the dataset together with everything derived from it.
+ * A version is never modified once it has been published to readers: appending rows
+ * creates the next version from an extension of the table, which writes only past this
+ * version's rows, and from copies of the incrementally maintained structures, so a reader
+ * that took a version answers all of its queries from that version.
+ * The case-folded subjects, the audited percentages, the search index, the launch date index
+ * and the rankings depend on the whole table and are built on first use; readers racing to
+ * build an index may each build their own identical copy.
+ */
+class DatasetVersion {
+    final long version;
+    final CourseTable table;
+    final ParticipantTotals participantTotals;
+    final InstructorIndex instructorIndex;
+    final RecommendationModel recommendationModel;
+    final Sketches sketches;
+    // criterion -> all distinct title codes, best first
+    final Map<String, int[]> rankings = new ConcurrentHashMap<>();
+    private volatile CaseFoldedDictionary foldedSubjects;
+    private volatile double[] auditedPercentages;
+    private volatile CourseSearchIndex searchIndex;
+    private volatile LaunchDateIndex launchDateIndex;
+
+    // the participant totals of table are summed on pool
+    DatasetVersion(long version, CourseTable table, ForkJoinPool pool) {
+        this.version = version;
+        this.table = table;
+        this.participantTotals = ParticipantTotals.aggregate(table, pool);
+        this.instructorIndex = new InstructorIndex(table);
+        this.recommendationModel = new RecommendationModel(table);
+        this.sketches = new Sketches(table);
+    }
+
+    // the version after previous with the rows [previous.table.size, table.size) of table added
+    private DatasetVersion(DatasetVersion previous, CourseTable table) {
+        this.version = previous.version + 1;
+        this.table = table;
+        int from = previous.table.size;
+        this.participantTotals = new ParticipantTotals(previous.participantTotals, table);
+        this.participantTotals.addRows(from, table.size);
+        this.instructorIndex = new InstructorIndex(previous.instructorIndex, table);
+        this.instructorIndex.addRows(from, table.size);
+        this.recommendationModel = new RecommendationModel(previous.recommendationModel, table);
+        this.recommendationModel.addRows(from, table.size);
+        this.sketches = new Sketches(previous.sketches, table);
+        this.sketches.addRows(from, table.size);
+        // computed here so that readers find the ranks cached
+        table.titles.ranks();
+    }
+
+    /** The next version, with all rows of delta appended. */
+    DatasetVersion append(CourseTable delta) {
+        CourseTable next = new CourseTable(this.table, this.table.size + delta.size);
+        next.addAll(delta);
+        return new DatasetVersion(this, next);
+    }
+
+    /** The next version, with course appended. */
+    DatasetVersion append(Course course) {
+        CourseTable next = new CourseTable(this.table, this.table.size + 1);
+        next.add(course);
+        return new DatasetVersion(this, next);
+    }
+
+    CaseFoldedDictionary foldedSubjects() {
+        CaseFoldedDictionary subjects = this.foldedSubjects;
+        if (subjects == null) {
+            subjects = new CaseFoldedDictionary(this.table.subjects);
+            this.foldedSubjects = subjects;
+        }
+        return subjects;
+    }
+
+    /**
+     * audited / participants * 100 of every row, the percentage every form of searchCourses
+     * compares percentAudited with; not the rounded "% Audited" column of the dataset.
+     */
+    double[] auditedPercentages() {
+        double[] audited = this.auditedPercentages;
+        if (audited == null) {
+            CourseTable t = this.table;
+            audited = new double[t.size];
+            for (int row = 0; row < t.size; row++) {
+                audited[row] = ((double) t.audited[row] / t.participants[row]) * 100;
+            }
+            this.auditedPercentages = audited;
+        }
+        return audited;
+    }
+
+    CourseSearchIndex searchIndex() {
+        CourseSearchIndex index = this.searchIndex;
+        if (index == null) {
+            index = new CourseSearchIndex(this.table, foldedSubjects(), auditedPercentages());
+            this.searchIndex = index;
+        }
+        return index;
+    }
+
+    LaunchDateIndex launchDateIndex() {
+        LaunchDateIndex index = this.launchDateIndex;
+        if (index == null) {
+            index = new LaunchDateIndex(this.table);
+            this.launchDateIndex = index;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,114 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Launch dates as int days since 1970-01-01 (LocalDate.toEpochDay), the form the dataset
+ * stores them in: four bytes a row, ordered like the dates, and free of time zones.
+ */
+final class EpochDays {
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    private EpochDays() {
+    }
+
+    /**
+     * Parses the MM/dd/yyyy dates of the dataset (one-digit months and days included) without
+     * creating any objects. Any other text is read the way the dataset used to be, with the
+     * lenient Date(String) parser in the default time zone.
+     */
+    static int parse(char[] text, int start, int end) {
+        int slash1 = indexOf(text, '/', start, end);
+        int slash2 = slash1 < 0 ? -1 : indexOf(text, '/', slash1 + 1, end);
+        int month = slash1 < 0 ? -1 : digits(text, start, slash1, 2);
+        int day = slash2 < 0 ? -1 : digits(text, slash1 + 1, slash2, 2);
+        int year = slash2 < 0 ? -1 : digits(text, slash2 + 1, end, 4);
+        if (year < 1 || end - slash2 != 5 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return parseLegacy(new String(text, start, end - start));
+        }
+        return of(year, month, day);
+    }
+
+    static int parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int parseLegacy(String text) {
+        LocalDate date = new Date(text).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /** Same as LocalDate.of(year, month, day).toEpochDay() for a valid date with a non-negative year. */
+    static int of(int year, int month, int day) {
+        int y = year - 1;
+        int days = 365 * y + y / 4 - y / 100 + y / 400 + DAYS_BEFORE_MONTH[month - 1] + day - 1;
+        if (month > 2 && isLeapYear(year)) {
+            days++;
+        }
+        // 719162 days from 0001-01-01 to 1970-01-01
+        return days - 719162;
+    }
+
+    static int of(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /** The epoch day of date, saturated to the int range, for the bounds of a date window. */
+    static int bound(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+    static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /** Same as toLocalDate(epochDay).getYear(), without creating the LocalDate. */
+    static int year(int epochDay) {
+        // years counted from March 1st, so that leap days end a year, in 400 year eras
+        long days = epochDay + 719468L;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        // January and February belong to the next calendar year
+        boolean janOrFeb = dayOfYear >= 306;
+        return (int) (yearOfEra + era * 400 + (janOrFeb ? 1 : 0));
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static int indexOf(char[] text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // the non-negative number in [from, to) of 1 to maxDigits digits, or -1
+    private static int digits(char[] text, int from, int to, int maxDigits) {
+        if (to <= from || to - from > maxDigits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * A HyperLogLog distinct counter (Flajolet et al.) with 2^PRECISION one-byte registers.
+ * The estimate has a relative standard error of 1.04 / sqrt(2^PRECISION), 1.6%, so it is within
+ * 3.3% of the true count 95% of the time; small counts are estimated by linear counting, which
+ * is nearly exact up to a few hundred values.
+ * Values are added as 64-bit hashes, see hash.
+ */
+class HyperLogLog {
+    static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        registers = new byte[REGISTERS];
+    }
+
+    /** A copy of other that can be updated without affecting other. */
+    HyperLogLog(HyperLogLog other) {
+        registers = other.registers.clone();
+    }
+
+    /** A well mixed 64-bit hash of value (the MurmurHash3 finalizer), for values such as dictionary codes. */
+    static long hash(long value) {
+        // offset, since the finalizer maps 0 to 0
+        long h = value + 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    void addHash(long hash) {
+        int register = (int) (hash >>> (64 - PRECISION));
+        // position of the first 1 bit in the remaining bits, at most 64 - PRECISION + 1
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /** The estimated number of distinct hashes added. */
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from instructor code to the courses of the instructor, built once
+ * after loading and then updated as rows are appended. For every instructor it keeps two
+ * posting lists of title codes, one for independently responsible courses and one for
+ * co-developed courses; each list is deduplicated and sorted by alphabetical order of the titles.
+ */
+class InstructorIndex {
+    private final CourseTable table;
+    int[][] independent;
+    int[][] coDeveloped;
+
+    InstructorIndex(CourseTable table) {
+        this.table = table;
+        int names = table.instructorNames.size();
+        int[] independentCount = new int[names];
+        int[] coDevelopedCount = new int[names];
+        for (int row = 0; row < table.size; row++) {
+            int[] instructors = table.instructorNameCodes[table.instructor[row]];
+            int[] count = instructors.length == 1 ? independentCount : coDevelopedCount;
+            for (int instructor : instructors) {
+                count[instructor]++;
+            }
+        }
+        independent = new int[names][];
+        coDeveloped = new int[names][];
+        for (int instructor = 0; instructor < names; instructor++) {
+            independent[instructor] = new int[independentCount[instructor]];
+            coDeveloped[instructor] = new int[coDevelopedCount[instructor]];
+        }
+        // fill the posting lists with title ranks, then sort, dedup and turn them back into codes
+        int[] ranks = table.titles.ranks();
+        Arrays.fill(independentCount, 0);
+        Arrays.fill(coDevelopedCount, 0);
+        for (int row = 0; row < table.size; row++) {
+            int[] instructors = table.instructorNameCodes[table.instructor[row]];
+            boolean single = instructors.length == 1;
+            int rank = ranks[table.title[row]];
+            for (int instructor : instructors) {
+                if (single) {
+                    independent[instructor][independentCount[instructor]++] = rank;
+                } else {
+                    coDeveloped[instructor][coDevelopedCount[instructor]++] = rank;
+                }
+            }
+        }
+        int[] codeOfRank = new int[ranks.length];
+        for (int code = 0; code < ranks.length; code++) {
+            codeOfRank[ranks[code]] = code;
+        }
+        for (int instructor = 0; instructor < names; instructor++) {
+            independent[instructor] = distinctCodes(independent[instructor], codeOfRank);
+            coDeveloped[instructor] = distinctCodes(coDeveloped[instructor], codeOfRank);
+        }
+    }
+
+    /**
+     * A copy of other over table, a copy of the table of other, for adding rows without
+     * affecting other. Posting lists are never modified in place, so only the outer arrays are copied.
+     */
+    InstructorIndex(InstructorIndex other, CourseTable table) {
+        this.table = table;
+        this.independent = other.independent.clone();
+        this.coDeveloped = other.coDeveloped.clone();
+    }
+
+    private static int[] distinctCodes(int[] titleRanks, int[] codeOfRank) {
+        Arrays.sort(titleRanks);
+        int distinct = 0;
+        int previous = -1;
+        for (int rank : titleRanks) {
+            if (rank != previous) {
+                titleRanks[distinct++] = codeOfRank[rank];
+                previous = rank;
+            }
+        }
+        return distinct == titleRanks.length ? titleRanks : Arrays.copyOf(titleRanks, distinct);
+    }
+
+    /**
+     * Adds the titles of the rows [from, to) to the posting lists of their instructors.
+     * Each new title is inserted at its alphabetical position by binary search on the title
+     * strings, since the ranks of existing titles shift when new titles are encoded.
+     */
+    void addRows(int from, int to) {
+        int names = table.instructorNames.size();
+        if (names > independent.length) {
+            int known = independent.length;
+            independent = Arrays.copyOf(independent, names);
+            coDeveloped = Arrays.copyOf(coDeveloped, names);
+            for (int instructor = known; instructor < names; instructor++) {
+                independent[instructor] = new int[0];
+                coDeveloped[instructor] = new int[0];
+            }
+        }
+        for (int row = from; row < to; row++) {
+            int[] instructors = table.instructorNameCodes[table.instructor[row]];
+            int[][] lists = instructors.length == 1 ? independent : coDeveloped;
+            int title = table.title[row];
+            for (int instructor : instructors) {
+                lists[instructor] = insertTitle(lists[instructor], title);
+            }
+        }
+    }
+
+    private int[] insertTitle(int[] titleCodes, int title) {
+        String value = table.titles.decode(title);
+        int low = 0;
+        int high = titleCodes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int compare = table.titles.decode(titleCodes[mid]).compareTo(value);
+            if (compare == 0) {
+                return titleCodes;
+            } else if (compare < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int[] inserted = new int[titleCodes.length + 1];
+        System.arraycopy(titleCodes, 0, inserted, 0, low);
+        inserted[low] = title;
+        System.arraycopy(titleCodes, low, inserted, low + 1, titleCodes.length - low);
+        return inserted;
+    }
+
+    /** Builds the getCourseListOfInstructor result; this is the only place where strings are created. */
+    Map<String, List<List<String>>> toMap() {
+        int names = independent.length;
+        Map<String, List<List<String>>> result = new HashMap<>(names * 4 / 3 + 1);
+        for (int instructor = 0; instructor < names; instructor++) {
+            List<List<String>> courses = new ArrayList<>(2);
+            courses.add(Collections.unmodifiableList(decodeTitles(independent[instructor])));
+            courses.add(Collections.unmodifiableList(decodeTitles(coDeveloped[instructor])));
+            result.put(table.instructorNames.decode(instructor), Collections.unmodifiableList(courses));
+        }
+        return result;
+    }
+
+    private List<String> decodeTitles(int[] titleCodes) {
+        List<String> titles = new ArrayList<>(titleCodes.length);
+        for (int code : titleCodes) {
+            titles.add(table.titles.decode(code));
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Arrays;
+
+/**
+ * The rows of a table ordered by launch date, so the rows launched within a date window are
+ * one contiguous range found by binary search. Rows launched on the same day keep their
+ * table order.
+ */
+class LaunchDateIndex {
+    // launch day of rows[i], ascending
+    private final int[] days;
+    final int[] rows;
+
+    LaunchDateIndex(CourseTable table) {
+        int n = table.size;
+        // (day, row) packed into one long sorts by day, then row
+        long[] packed = new long[n];
+        for (int row = 0; row < n; row++) {
+            packed[row] = (long) table.launchDay[row] << 32 | row;
+        }
+        Arrays.sort(packed);
+        days = new int[n];
+        rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            days[i] = (int) (packed[i] >> 32);
+            rows[i] = (int) packed[i];
+        }
+    }
+
+    /** The first position of rows launched on or after day. */
+    int from(int day) {
+        return lowerBound(day);
+    }
+
+    /** The position after the last of rows launched on or before day. */
+    int to(int day) {
+        return day == Integer.MAX_VALUE ? days.length : lowerBound(day + 1);
+    }
+
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
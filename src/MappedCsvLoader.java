@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads the course dataset by memory-mapping the file, cutting it into
+ * record-aligned chunks and parsing the chunks in parallel on a fork-join pool,
+ * which also finds the chunk boundaries, see recordAlignedSplits.
+ * Chunk tables are merged in file order, so the rows end up in the same order
+ * as with the streaming loader.
+ */
+class MappedCsvLoader {
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 28;
+    private static final long SCAN_WINDOW = 1L << 30;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private MappedCsvLoader() {
+    }
+
+    static CourseTable load(Path path, ForkJoinPool pool) throws IOException {
+        return load(path, pool, new AnalyzerMetrics.LoadTimer(), null);
+    }
+
+    /**
+     * Same as load(path, pool), recording the record-aligned split scan as the read phase and
+     * the parsing and merging of the chunks as the parse phase. With rejects, records that do
+     * not parse are skipped and passed to rejects in file order once all chunks are parsed.
+     */
+    static CourseTable load(Path path, ForkJoinPool pool, AnalyzerMetrics.LoadTimer timer, RejectSink rejects)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            long size = channel.size();
+            long target = size / ((long) pool.getParallelism() * CHUNKS_PER_THREAD);
+            target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+            List<Long> lines = new ArrayList<>();
+            long[] splits = recordAlignedSplits(channel, size, target, pool, lines);
+            timer.readNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            List<ChunkTask> tasks = new ArrayList<>(splits.length);
+            for (int i = 0; i + 1 < splits.length; i++) {
+                tasks.add(new ChunkTask(channel, splits[i], splits[i + 1], lines.get(i), rejects != null));
+            }
+            CourseTable table = new CourseTable();
+            try {
+                pool.invoke(new RecursiveTask<Void>() {
+                    @Override
+                    protected Void compute() {
+                        invokeAll(tasks);
+                        return null;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (ChunkTask task : tasks) {
+                table.addAll(task.join());
+                if (rejects != null) {
+                    task.rejected.replayTo(rejects);
+                }
+            }
+            timer.parseNanos = System.nanoTime() - start;
+            return table;
+        }
+    }
+
+    /**
+     * Returns the chunk boundaries: the first one is the end of the header record,
+     * the last one is the file size, and every other one is the offset right after
+     * a line break that is not inside a quoted field. An escaped quote ("") toggles
+     * the quote state twice, and UTF-8 continuation bytes never look like '"' or
+     * '\n', so a plain byte scan is enough to stay in sync with the tokenizer.
+     * The line on which every split but the last starts is added to lines.
+     * <p>
+     * The file is cut into segments of target bytes, scanned on pool in two passes: the first
+     * counts the quotes and line breaks of every segment, which tells whether each segment starts
+     * inside a quoted field and on which line; the second finds the first record start at or
+     * after the start of every segment, which becomes a split.
+     */
+    static long[] recordAlignedSplits(FileChannel channel, long size, long target, ForkJoinPool pool,
+                                      List<Long> lines) throws IOException {
+        int segments = (int) Math.max(1, (size + target - 1) / target);
+        long[] quotes = new long[segments];
+        long[] lineBreaks = new long[segments];
+        forEachSegment(pool, segments, segment -> {
+            long start = segment * target;
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(target, size - start));
+            int limit = bytes.limit();
+            long segmentQuotes = 0;
+            long segmentLineBreaks = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = bytes.get(i);
+                if (b == '"') {
+                    segmentQuotes++;
+                } else if (b == '\n') {
+                    segmentLineBreaks++;
+                }
+            }
+            quotes[segment] = segmentQuotes;
+            lineBreaks[segment] = segmentLineBreaks;
+        });
+
+        boolean[] quotedAtStart = new boolean[segments];
+        long[] lineAtStart = new long[segments];
+        long quotesBefore = 0;
+        long line = 1;
+        for (int segment = 0; segment < segments; segment++) {
+            quotedAtStart[segment] = (quotesBefore & 1) != 0;
+            lineAtStart[segment] = line;
+            quotesBefore += quotes[segment];
+            line += lineBreaks[segment];
+        }
+        // the first record start at or after the start of every segment, and its line
+        long[] recordStarts = new long[segments];
+        long[] recordLines = new long[segments];
+        forEachSegment(pool, segments, segment -> {
+            boolean quoted = quotedAtStart[segment];
+            long recordLine = lineAtStart[segment];
+            long recordStart = size;
+            long start = segment * target;
+            if (start > 0 && !quoted && channel.map(FileChannel.MapMode.READ_ONLY, start - 1, 1).get(0) == '\n') {
+                // the segment starts with a record
+                recordStarts[segment] = start;
+                recordLines[segment] = recordLine;
+                return;
+            }
+            scan:
+            for (long base = start; base < size; base += SCAN_WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, base,
+                    Math.min(SCAN_WINDOW, size - base));
+                int limit = window.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = window.get(i);
+                    if (b == '"') {
+                        quoted = !quoted;
+                    } else if (b == '\n') {
+                        recordLine++;
+                        if (!quoted) {
+                            recordStart = base + i + 1;
+                            break scan;
+                        }
+                    }
+                }
+            }
+            recordStarts[segment] = recordStart;
+            recordLines[segment] = recordLine;
+        });
+
+        // a record longer than a segment leads several segments to the same start
+        List<Long> splits = new ArrayList<>();
+        for (int segment = 0; segment < segments; segment++) {
+            long split = recordStarts[segment];
+            if (split < size && (splits.isEmpty() || split > splits.get(splits.size() - 1))) {
+                splits.add(split);
+                lines.add(recordLines[segment]);
+            }
+        }
+        // header only, or no line break at all, leaves just the file size
+        splits.add(size);
+        long[] result = new long[splits.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = splits.get(i);
+        }
+        return result;
+    }
+
+    private interface SegmentScan {
+        void scan(int segment) throws IOException;
+    }
+
+    // runs scan for every segment on pool
+    private static void forEachSegment(ForkJoinPool pool, int segments, SegmentScan scan) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            int segment = i;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    scan.scan(segment);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        try {
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    invokeAll(tasks);
+                    return null;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<CourseTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long firstLine;
+        // records that did not parse, null when the load is strict
+        final BufferedRejects rejected;
+
+        ChunkTask(FileChannel channel, long start, long end, long firstLine, boolean lenient) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+            this.rejected = lenient ? new BufferedRejects() : null;
+        }
+
+        @Override
+        protected CourseTable compute() {
+            CourseTable table = new CourseTable();
+            try {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                CsvTokenizer csv = new CsvTokenizer(
+                    new InputStreamReader(new ByteBufferInputStream(chunk), StandardCharsets.UTF_8), firstLine);
+                table.addRecords(csv, rejected);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return table;
+        }
+    }
+
+    // keeps the rejects of a chunk until the chunks before it have been passed on
+    private static class BufferedRejects implements RejectSink {
+        private final List<Long> lines = new ArrayList<>();
+        private final List<String> reasons = new ArrayList<>();
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void reject(long line, String reason, String record) {
+            lines.add(line);
+            reasons.add(reason);
+            records.add(record);
+        }
+
+        void replayTo(RejectSink sink) {
+            for (int i = 0; i < lines.size(); i++) {
+                sink.reject(lines.get(i), reasons.get(i), records.get(i));
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
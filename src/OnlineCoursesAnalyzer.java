@@ -1,12 +1,19 @@
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.function.ToDoubleFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  *
@@ -17,41 +24,282 @@ import java.util.stream.Stream;
  */
 public class OnlineCoursesAnalyzer {
 
-    List<Course> courses = new ArrayList<>();
+    // criteria accepted by getCourses(topK, by)
+    static final Set<String> RANKING_CRITERIA = Set.of("hours", "participants", "certified", "audited");
+    // tables with at least this many rows select top K per partition in parallel
+    static final int PARALLEL_TOP_K_ROWS = 1 << 16;
+    // recommendCourses(users) splits batches into chunks of this many users
+    static final int PARALLEL_BATCH_USERS = 256;
+    static final int QUERY_CACHE_ENTRIES = 1024;
+    static final long QUERY_CACHE_WEIGHT = 1 << 20;
+    // the pools of setParallelism, by parallelism
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    // the dataset the queries answer from; replaced as a whole by reload and append, so queries
+    // never block and every query sees one consistent version
+    volatile DatasetVersion current;
+    // serializes the writers, which derive the next version from the current one
+    private final Object writeLock = new Object();
+    // runs the parallel parts of loading and of the queries, see setParallelism
+    volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    // results of the public queries, keyed by method, dataset version and arguments
+    final QueryCache cache = new QueryCache(QUERY_CACHE_ENTRIES, QUERY_CACHE_WEIGHT);
+    // latencies and row counts of the queries, load phase timings and error counters
+    final AnalyzerMetrics metrics = new AnalyzerMetrics(
+        () -> this.current == null ? null : this.current.table, this.cache::stats);
+
+    /**
+     * How the dataset file is read.
+     * STREAMING parses it sequentially on the calling thread,
+     * MAPPED_PARALLEL memory-maps it and parses record-aligned chunks on a fork-join pool, see setParallelism.
+     */
+    public enum IngestMode {
+        STREAMING,
+        MAPPED_PARALLEL
+    }
 
     public OnlineCoursesAnalyzer(String datasetPath) {
-    BufferedReader br = null;
-    String line;
-    try {
-        br = new BufferedReader(new FileReader(datasetPath, StandardCharsets.UTF_8));
-        br.readLine();
-        while ((line = br.readLine()) != null) {
-            String[] info = line.split(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
-            Course course = new Course(info[0], info[1], new Date(info[2]), info[3], info[4], info[5],
-                        Integer.parseInt(info[6]), Integer.parseInt(info[7]),
-                    Integer.parseInt(info[8]),
-                        Integer.parseInt(info[9]), Integer.parseInt(info[10]),
-                    Double.parseDouble(info[11]),
-                        Double.parseDouble(info[12]), Double.parseDouble(info[13]),
-                    Double.parseDouble(info[14]),
-                        Double.parseDouble(info[15]), Double.parseDouble(info[16]),
-                    Double.parseDouble(info[17]),
-                        Double.parseDouble(info[18]), Double.parseDouble(info[19]),
-                    Double.parseDouble(info[20]),
-                        Double.parseDouble(info[21]), Double.parseDouble(info[22]));
-                this.courses.add(course);
+        this(datasetPath, IngestMode.STREAMING);
+    }
+
+    /** Loads the dataset; an unreadable file is reported as an UncheckedIOException. */
+    public OnlineCoursesAnalyzer(String datasetPath, IngestMode mode) {
+        loadOrThrowUnchecked(datasetPath, mode, null);
+    }
+
+    /**
+     * Loads the dataset leniently: a record that does not parse (a malformed number or date, or
+     * missing fields) is passed to rejects with its line and the reason, and the load goes on
+     * with the next record. rejects.finished reports the counts once the file has been read.
+     */
+    public OnlineCoursesAnalyzer(String datasetPath, IngestMode mode, RejectSink rejects) {
+        loadOrThrowUnchecked(datasetPath, mode, Objects.requireNonNull(rejects));
+    }
+
+    private void loadOrThrowUnchecked(String datasetPath, IngestMode mode, RejectSink rejects) {
+        try {
+            load(datasetPath, mode, rejects);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private OnlineCoursesAnalyzer(String source, CourseTable table, AnalyzerMetrics.LoadTimer timer) {
+        publish(table, timer);
+        this.metrics.loaded(source, table.size, 0, timer);
+    }
+
+    /** Opens an analyzer over a snapshot previously written by writeSnapshot, without any CSV parsing. */
+    public static OnlineCoursesAnalyzer fromSnapshot(String snapshotPath) throws IOException {
+        AnalyzerMetrics.LoadTimer timer = new AnalyzerMetrics.LoadTimer();
+        long start = System.nanoTime();
+        CourseTable table = CourseSnapshot.read(Paths.get(snapshotPath));
+        timer.readNanos = System.nanoTime() - start;
+        return new OnlineCoursesAnalyzer(snapshotPath, table, timer);
+    }
+
+    /**
+     * Opens the dataset through its snapshot: the snapshot is used when it is newer than the CSV
+     * file and valid, otherwise the CSV is parsed and the snapshot (re)written for the next start.
+     */
+    public static OnlineCoursesAnalyzer open(String datasetPath, String snapshotPath) {
+        Path csv = Paths.get(datasetPath);
+        Path snapshot = Paths.get(snapshotPath);
+        try {
+            if (Files.exists(snapshot) && (!Files.exists(csv)
+                    || Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csv)) >= 0)) {
+                return fromSnapshot(snapshotPath);
             }
+        } catch (IOException e) {
+            // stale or damaged snapshot, fall back to the CSV file
+            e.printStackTrace();
+        }
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(datasetPath);
+        try {
+            analyzer.writeSnapshot(snapshotPath);
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        }
+        return analyzer;
+    }
+
+    /** Writes the current dataset as a binary snapshot, see fromSnapshot. */
+    public void writeSnapshot(String snapshotPath) throws IOException {
+        CourseSnapshot.write(this.current.table, Paths.get(snapshotPath));
+    }
+
+    /**
+     * Replaces the dataset with the content of datasetPath; cached query results are dropped.
+     * When the file cannot be read or parsed the current dataset is kept.
+     */
+    public void reload(String datasetPath, IngestMode mode) throws IOException {
+        load(datasetPath, mode, null);
+    }
+
+    /** Lenient form of reload(datasetPath, mode), see OnlineCoursesAnalyzer(datasetPath, mode, rejects). */
+    public void reload(String datasetPath, IngestMode mode, RejectSink rejects) throws IOException {
+        load(datasetPath, mode, Objects.requireNonNull(rejects));
+    }
+
+    // strict without rejects: the first record that does not parse ends the load with its exception;
+    // nothing is published unless the whole file was read
+    private void load(String datasetPath, IngestMode mode, RejectSink rejects) throws IOException {
+        AnalyzerMetrics.LoadTimer timer = new AnalyzerMetrics.LoadTimer();
+        CourseTable loaded = new CourseTable();
+        long[] rejected = new long[1];
+        RejectSink counted = countedRejects(rejects, rejected);
+        try {
+            if (mode == IngestMode.MAPPED_PARALLEL) {
+                loaded = MappedCsvLoader.load(Paths.get(datasetPath), this.pool, timer, counted);
+            } else {
+                long start = System.nanoTime();
+                try (CsvTokenizer csv = new CsvTokenizer(
+                        new AnalyzerMetrics.TimedReader(new FileReader(datasetPath, StandardCharsets.UTF_8), timer))) {
+                    csv.nextRecord(); // header
+                    loaded.addRecords(csv, counted);
                 }
+                // whatever was not spent in the file reads went into tokenizing and encoding
+                timer.parseNanos = System.nanoTime() - start - timer.readNanos;
             }
+        } catch (IOException e) {
+            this.metrics.ioError();
+            throw e;
+        } catch (RuntimeException e) {
+            this.metrics.parseError();
+            throw e;
+        }
+        if (rejects != null) {
+            rejects.finished(loaded.size, rejected[0]);
+        }
+        publish(loaded, timer);
+        this.metrics.loaded(datasetPath, loaded.size, rejected[0], timer);
+    }
+
+    // passes the rejects on to sink, counting them in rejected[0] and in the parse error metric
+    private RejectSink countedRejects(RejectSink sink, long[] rejected) {
+        if (sink == null) {
+            return null;
+        }
+        return (line, reason, record) -> {
+            rejected[0]++;
+            this.metrics.parseError();
+            sink.reject(line, reason, record);
+        };
+    }
+
+    /**
+     * Appends the course runs of csvDelta, a file in the format of the dataset (header included),
+     * to the dataset. The participant totals, the instructor index and the recommendation profiles
+     * are updated with the new rows only; the search index and the rankings are rebuilt on their
+     * next use. Queries running meanwhile keep answering from the previous version of the dataset.
+     * Nothing is appended when the file cannot be read or parsed.
+     */
+    public void append(Path csvDelta) throws IOException {
+        appendFile(csvDelta, null);
+    }
+
+    /**
+     * Lenient form of append(csvDelta): records that do not parse are passed to rejects and the
+     * others are appended, see OnlineCoursesAnalyzer(datasetPath, mode, rejects).
+     */
+    public void append(Path csvDelta, RejectSink rejects) throws IOException {
+        appendFile(csvDelta, Objects.requireNonNull(rejects));
+    }
+
+    private void appendFile(Path csvDelta, RejectSink rejects) throws IOException {
+        CourseTable delta = new CourseTable();
+        long[] rejected = new long[1];
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(csvDelta, StandardCharsets.UTF_8))) {
+            csv.nextRecord(); // header
+            delta.addRecords(csv, countedRejects(rejects, rejected));
+        } catch (IOException e) {
+            this.metrics.ioError();
+            throw e;
+        } catch (RuntimeException e) {
+            this.metrics.parseError();
+            throw e;
+        }
+        if (rejects != null) {
+            rejects.finished(delta.size, rejected[0]);
+        }
+        synchronized (this.writeLock) {
+            this.current = this.current.append(delta);
+        }
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Appends a single course run to the dataset, see append(csvDelta). Every append copies the
+     * dataset for the next version, so many runs are better appended together with append(csvDelta).
+     */
+    public void addCourse(Course course) {
+        synchronized (this.writeLock) {
+            this.current = this.current.append(course);
+        }
+        this.cache.invalidateAll();
+    }
+
+    /** Replaces the dataset with table, building everything derived from it. */
+    private void publish(CourseTable table, AnalyzerMetrics.LoadTimer timer) {
+        synchronized (this.writeLock) {
+            long start = System.nanoTime();
+            DatasetVersion previous = this.current;
+            DatasetVersion next = new DatasetVersion(previous == null ? 0 : previous.version + 1, table, this.pool);
+            ranking(next, "hours");
+            ranking(next, "participants");
+            this.current = next;
+            timer.constructNanos = System.nanoTime() - start;
         }
+        // cached results are keyed by version, older ones can no longer be hit
+        this.cache.invalidateAll();
+    }
+
+    /** Turns the query result cache on (the default) or off; turning it off drops all cached results. */
+    public void setQueryCacheEnabled(boolean enabled) {
+        this.cache.setEnabled(enabled);
+    }
+
+    /**
+     * Runs the parallel parts of loading and of the queries (MAPPED_PARALLEL parsing, the participant
+     * totals of a loaded dataset, the rankings and large recommendCourses batches) on a pool of
+     * parallelism threads instead of the common fork-join pool, e.g. to compare 1 against N threads.
+     * Applies from the next load, ranking or batch on; reload to aggregate the dataset again.
+     * There is one pool per parallelism, shared by all analyzers, so switching back and forth
+     * creates no new threads; its idle workers exit on their own.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.pool = POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    /** Hit, miss and eviction counters of the query result cache. */
+    public QueryCache.Stats cacheStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * Latency histograms, call counts and rows scanned / returned of every query method, the phase
+     * timings of the last load, the parse and IO error counters, the heap bytes per course and the
+     * query cache counters, as of now.
+     */
+    public AnalyzerMetrics.Snapshot metrics() {
+        return this.metrics.snapshot();
+    }
+
+    /**
+     * Publishes the metrics of this analyzer on the platform MBean server as
+     * OnlineCoursesAnalyzer:type=Metrics,name=&lt;name&gt;, see AnalyzerMetricsMXBean.
+     */
+    public void registerMetricsMBean(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this.metrics,
+            new ObjectName("OnlineCoursesAnalyzer:type=Metrics,name=" + ObjectName.quote(name)));
+    }
+
+    /** The dataset as Course objects, materialized from the columns on access. */
+    List<Course> courses() {
+        return this.current.table.asCourseList();
     }
 
     //1
@@ -62,17 +310,21 @@ public class OnlineCoursesAnalyzer {
     * total number of participants who have accessed the courses of the institution.
     * The map should be sorted by the alphabetical order of the institution
     * */
-        Map<String, Integer> result = new HashMap<>();
-
-        //ParticipantsByInstitution: first group the participants and count their sums
-        Map<String, Integer> PtcpCountByInst = this.courses.stream()
-            .collect(Collectors.groupingBy(Course -> Course.institution,
-                Collectors.summingInt(Course -> Course.participants)));
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_PTCP_COUNT_BY_INST);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getPtcpCountByInst", d.version),
+            () -> Collections.unmodifiableMap(computePtcpCountByInst(d, call))));
+    }
 
-        //Sort ParticipantsByInstitution by the alphabetical order of the key, and put them into a new map called result
-        PtcpCountByInst.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-                .forEachOrdered(x -> result.put(x.getKey(),x.getValue()));
+    private Map<String, Integer> computePtcpCountByInst(DatasetVersion d, AnalyzerMetrics.Call call) {
+        //ParticipantsByInstitution: the participant totals per institution code, maintained as rows are added;
+        //a TreeMap keeps them in the alphabetical order of the institution
+        CourseTable t = d.table;
+        Map<String, Integer> result = new TreeMap<>();
+        for (int code = 0; code < t.institutions.size(); code++) {
+            result.put(t.institutions.decode(code), d.participantTotals.institution(code));
+        }
+        call.scanned(t.institutions.size());
         return result;
     }
 
@@ -86,13 +338,33 @@ public class OnlineCoursesAnalyzer {
      * If two participants have the same count, then they should be sorted by the alphabetical order of the
      * institution-course Subject
      */
-        Map<String, Integer> result = new HashMap<>();
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_PTCP_COUNT_BY_INST_AND_SUBJECT);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getPtcpCountByInstAndSubject", d.version),
+            () -> Collections.unmodifiableMap(
+                computePtcpCountByInstAndSubject(d.table, d.participantTotals.byInstitutionAndSubject, call))));
+    }
 
-        //PtcpByInstAndSubject: 1)concat using '-' 2)value is # of participants
-        Map<String, Integer> PtcpByInstAndSubject = this.courses.stream()
-            .collect(Collectors.groupingBy(Course -> Course.institution.concat("-"+Course.subject),
-                Collectors.summingInt(Course -> Course.participants)));
+    private Map<String, Integer> computePtcpCountByInstAndSubject(CourseTable t, LongIntHashMap ptcpByCodes,
+                                                                  AnalyzerMetrics.Call call) {
+        //PtcpByInstAndSubject: totals grouped on (institution code, subject code) packed into one long,
+        //maintained as rows are added; the '-' concatenated key is only built once per group, and
+        //summed, since two pairs can make the same key when a name contains '-'
+        Map<String, Integer> PtcpByInstAndSubject = new HashMap<>();
+        for (int slot = 0; slot < ptcpByCodes.capacity(); slot++) {
+            if (ptcpByCodes.isUsed(slot)) {
+                long key = ptcpByCodes.keyAt(slot);
+                PtcpByInstAndSubject.merge(t.institutions.decode(LongIntHashMap.highKey(key)) + "-"
+                    + t.subjects.decode(LongIntHashMap.lowKey(key)), ptcpByCodes.valueAt(slot), Integer::sum);
+            }
+        }
+        call.scanned(ptcpByCodes.size());
+        return sortByCountDescending(PtcpByInstAndSubject);
+    }
 
+    // the order of getPtcpCountByInstAndSubject, shared with OutOfCoreAnalyzer
+    static Map<String, Integer> sortByCountDescending(Map<String, Integer> PtcpByInstAndSubject) {
+        Map<String, Integer> result;
         //Sort PtcpByInstAndSubject by descending order of value
         //Same value, sort key by alphabetical order
         result = PtcpByInstAndSubject.entrySet().stream().sorted(((o1, o2) -> {
@@ -131,6 +403,289 @@ public class OnlineCoursesAnalyzer {
         return result;
     }
 
+    /**
+     * Same as getPtcpCountByInst, counting only the course runs launched between from and to
+     * (both included); institutions without such runs are left out. It runs as an Aggregation,
+     * which finds the runs by a range scan over the rows ordered by launch date.
+     */
+    public Map<String, Integer> getPtcpCountByInst(LocalDate from, LocalDate to) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_PTCP_COUNT_BY_INST_BETWEEN);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getPtcpCountByInst", d.version, from, to), () -> {
+            AggregationResult totals = AggregationEngine.run(d, Aggregation.groupBy(CourseColumn.INSTITUTION)
+                .sum(CourseColumn.PARTICIPANTS)
+                .where(CourseColumn.LAUNCH_DATE, from, to), call);
+            Map<String, Integer> result = new TreeMap<>();
+            for (List<Object> row : totals.rows()) {
+                result.put((String) row.get(0), ((Long) row.get(1)).intValue());
+            }
+            return Collections.unmodifiableMap(result);
+        }));
+    }
+
+    /**
+     * Same as getPtcpCountByInstAndSubject, counting only the course runs launched between from
+     * and to (both included), see getPtcpCountByInst(from, to).
+     */
+    public Map<String, Integer> getPtcpCountByInstAndSubject(LocalDate from, LocalDate to) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_PTCP_COUNT_BY_INST_AND_SUBJECT_BETWEEN);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getPtcpCountByInstAndSubject", d.version, from, to), () -> {
+            AggregationResult totals = AggregationEngine.run(d,
+                Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+                    .sum(CourseColumn.PARTICIPANTS)
+                    .where(CourseColumn.LAUNCH_DATE, from, to), call);
+            Map<String, Integer> PtcpByInstAndSubject = new HashMap<>();
+            for (List<Object> row : totals.rows()) {
+                PtcpByInstAndSubject.merge(row.get(0) + "-" + row.get(1), ((Long) row.get(2)).intValue(), Integer::sum);
+            }
+            return Collections.unmodifiableMap(sortByCountDescending(PtcpByInstAndSubject));
+        }));
+    }
+
+    /**
+     * Approximate answers over the current dataset from sketches maintained at load and append
+     * time, see ApproximateAnalytics for their error bounds.
+     */
+    public ApproximateAnalytics approximate() {
+        return new ApproximateAnalytics(this.current);
+    }
+
+    /**
+     * Runs query over the dataset, see Aggregation. Results are not cached, since filters may
+     * be arbitrary predicates.
+     */
+    public AggregationResult aggregate(Aggregation query) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.AGGREGATE);
+        AggregationResult result = AggregationEngine.run(this.current, query, call);
+        call.end(result.rows());
+        return result;
+    }
+
+    /**
+     * Answers all queries of report from one dataset version, returning for each, in order,
+     * what the analyzer method of the same name returns. The queries that need the rows are
+     * answered by passes of one shared scan: the windowed participant sums (one institution and
+     * subject grouping per window, which the institution sums are rolled up from), the top K of
+     * the criteria whose ranking is not built yet, the windowed searches and the aggregations.
+     * The other queries are answered from the totals, indexes and profiles the dataset version
+     * maintains, as their methods do. The query cache is not used.
+     */
+    public List<Object> report(Report report) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.REPORT);
+        DatasetVersion d = this.current;
+        CourseTable t = d.table;
+        List<AggregationEngine.Pass> passes = new ArrayList<>();
+        AggregationEngine.Pass[] passOfQuery = new AggregationEngine.Pass[report.queries.size()];
+        Map<List<LocalDate>, AggregationEngine.Compiled> windowSums = new HashMap<>();
+        // criterion -> the largest prefix of its ranking the report reads
+        Map<String, Integer> topK = new TreeMap<>();
+        for (int i = 0; i < passOfQuery.length; i++) {
+            Report.Query q = report.queries.get(i);
+            switch (q.kind) {
+                case PTCP_COUNT_BY_INST:
+                case PTCP_COUNT_BY_INST_AND_SUBJECT:
+                    if (q.windowed()) {
+                        passOfQuery[i] = windowSums.computeIfAbsent(List.of(q.from, q.to), window -> {
+                            AggregationEngine.Compiled sums = AggregationEngine.compile(t,
+                                Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+                                    .sum(CourseColumn.PARTICIPANTS)
+                                    .where(CourseColumn.LAUNCH_DATE, q.from, q.to));
+                            passes.add(sums);
+                            return sums;
+                        });
+                    }
+                    break;
+                case COURSES:
+                    if (!d.rankings.containsKey(q.by)) {
+                        topK.merge(q.by, (int) Math.min(Integer.MAX_VALUE, (long) q.offset + q.limit), Math::max);
+                    }
+                    break;
+                case SEARCH_COURSES:
+                    if (q.windowed()) {
+                        passOfQuery[i] = new SearchPass(t, new SearchFilter(d, q.courseSubject.toLowerCase(),
+                            q.percentAudited, q.totalCourseHours, q.from, q.to));
+                        passes.add(passOfQuery[i]);
+                    }
+                    break;
+                case AGGREGATE:
+                    passOfQuery[i] = AggregationEngine.compile(t, q.aggregation);
+                    passes.add(passOfQuery[i]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        Map<String, RankingPass> rankings = new HashMap<>();
+        topK.forEach((by, k) -> {
+            RankingPass ranking = new RankingPass(t, by, k);
+            rankings.put(by, ranking);
+            passes.add(ranking);
+        });
+        if (!passes.isEmpty()) {
+            AggregationEngine.scan(t, passes);
+            call.scanned(t.size);
+        }
+
+        List<Object> results = new ArrayList<>(passOfQuery.length);
+        for (int i = 0; i < passOfQuery.length; i++) {
+            Report.Query q = report.queries.get(i);
+            switch (q.kind) {
+                case PTCP_COUNT_BY_INST:
+                    if (q.windowed()) {
+                        Map<String, Integer> result = new TreeMap<>();
+                        for (List<Object> row : ((AggregationEngine.Compiled) passOfQuery[i]).result().rows()) {
+                            result.merge((String) row.get(0), ((Long) row.get(2)).intValue(), Integer::sum);
+                        }
+                        results.add(Collections.unmodifiableMap(result));
+                    } else {
+                        results.add(Collections.unmodifiableMap(computePtcpCountByInst(d, call)));
+                    }
+                    break;
+                case PTCP_COUNT_BY_INST_AND_SUBJECT:
+                    if (q.windowed()) {
+                        Map<String, Integer> PtcpByInstAndSubject = new HashMap<>();
+                        for (List<Object> row : ((AggregationEngine.Compiled) passOfQuery[i]).result().rows()) {
+                            PtcpByInstAndSubject.merge(row.get(0) + "-" + row.get(1), ((Long) row.get(2)).intValue(), Integer::sum);
+                        }
+                        results.add(Collections.unmodifiableMap(sortByCountDescending(PtcpByInstAndSubject)));
+                    } else {
+                        results.add(Collections.unmodifiableMap(
+                            computePtcpCountByInstAndSubject(t, d.participantTotals.byInstitutionAndSubject, call)));
+                    }
+                    break;
+                case COURSE_LIST_OF_INSTRUCTOR:
+                    call.scanned(t.instructorNames.size());
+                    results.add(Collections.unmodifiableMap(d.instructorIndex.toMap()));
+                    break;
+                case COURSES:
+                    RankingPass ranking = rankings.get(q.by);
+                    results.add(Collections.unmodifiableList(ranking == null
+                        ? computeCourses(d, q.offset, q.limit, q.by, call) : ranking.titles(q.offset, q.limit)));
+                    break;
+                case SEARCH_COURSES:
+                    results.add(Collections.unmodifiableList(q.windowed()
+                        ? ((SearchPass) passOfQuery[i]).titles()
+                        : d.searchIndex().search(q.courseSubject.toLowerCase(), q.percentAudited, q.totalCourseHours, call)));
+                    break;
+                case RECOMMEND_COURSES:
+                    call.scanned(d.recommendationModel.profiles());
+                    results.add(Collections.unmodifiableList(
+                        d.recommendationModel.recommend(q.age, q.gender, q.isBachelorOrHigher)));
+                    break;
+                default:
+                    results.add(((AggregationEngine.Compiled) passOfQuery[i]).result());
+                    break;
+            }
+        }
+        return call.end(Collections.unmodifiableList(results));
+    }
+
+    /** The top K titles of a criterion, selected in a report scan; see getCourses. */
+    private static class RankingPass extends AggregationEngine.Pass {
+        private final CourseTable table;
+        private final int[] ints;
+        private final double[] doubles;
+        private final int[] ranks;
+        private final TopKSelector selector;
+        private int[] ranking;
+
+        RankingPass(CourseTable t, String by, int k) {
+            this.table = t;
+            this.ints = by.equals("hours") ? null
+                : by.equals("participants") ? t.participants : by.equals("certified") ? t.certified : t.audited;
+            this.doubles = by.equals("hours") ? t.totalHours : null;
+            this.ranks = t.titles.ranks();
+            this.selector = new TopKSelector(k, t.titles.size());
+        }
+
+        @Override
+        void accept(int[] rows, int n) {
+            CourseTable t = this.table;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                int title = t.title[row];
+                selector.offer(title, ints == null ? doubles[row] : ints[row], ranks[title]);
+            }
+        }
+
+        List<String> titles(int offset, int limit) {
+            if (ranking == null) {
+                ranking = selector.drainBestFirst();
+            }
+            int from = Math.min(offset, ranking.length);
+            int to = (int) Math.min(ranking.length, Math.max(from, (long) from + limit));
+            List<String> titles = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                titles.add(table.titles.decode(ranking[i]));
+            }
+            return titles;
+        }
+    }
+
+    /**
+     * The condition of a windowed searchCourses query, the same for searchCourses and for report
+     * scans: the audited percentage is the one the search index uses, see
+     * DatasetVersion.auditedPercentages.
+     */
+    private static class SearchFilter {
+        private final CourseTable table;
+        private final boolean[] subjectMatches;
+        private final double[] audited;
+        private final double percentAudited;
+        private final double totalCourseHours;
+        private final int fromDay;
+        private final int toDay;
+
+        /** courseSubject in lower case. */
+        SearchFilter(DatasetVersion d, String courseSubject, double percentAudited, double totalCourseHours,
+                     LocalDate from, LocalDate to) {
+            this.table = d.table;
+            this.subjectMatches = d.foldedSubjects().matches(courseSubject);
+            this.audited = d.auditedPercentages();
+            this.percentAudited = percentAudited;
+            this.totalCourseHours = totalCourseHours;
+            this.fromDay = EpochDays.bound(from);
+            this.toDay = EpochDays.bound(to);
+        }
+
+        boolean matches(int row) {
+            CourseTable t = this.table;
+            return subjectMatches[t.subject[row]] && audited[row] >= percentAudited
+                && t.totalHours[row] <= totalCourseHours && t.launchDay[row] >= fromDay
+                && t.launchDay[row] <= toDay;
+        }
+    }
+
+    /** The titles a windowed searchCourses query matches, collected in a report scan. */
+    private static class SearchPass extends AggregationEngine.Pass {
+        private final CourseTable table;
+        private final SearchFilter filter;
+        private final int[] ranks;
+        private final BitSet titleRanks;
+
+        SearchPass(CourseTable t, SearchFilter filter) {
+            this.table = t;
+            this.filter = filter;
+            this.ranks = t.titles.ranks();
+            this.titleRanks = new BitSet(ranks.length);
+        }
+
+        @Override
+        void accept(int[] rows, int n) {
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                if (filter.matches(row)) {
+                    titleRanks.set(ranks[table.title[row]]);
+                }
+            }
+        }
+
+        List<String> titles() {
+            return titlesOfRanks(table, titleRanks);
+        }
+    }
+
     //3
     public Map<String, List<List<String>>> getCourseListOfInstructor() {
         /**
@@ -143,49 +698,13 @@ public class OnlineCoursesAnalyzer {
          * the course title (without quotation marks) should be sorted by alphabetical order in the list, and the case of
          * identical names should be treated as the same person.
          */
-        Map<String, List<List<String>>> instructorsCourses = new HashMap<>();
-        Stream<String> names;
-        // group courses by instructor names
-        Map<String, List<Course>> coursesByInstructors = this.courses.stream()
-            .flatMap(course -> Stream.of(course.instructors.split(", ")))
-            .distinct()
-            .collect(Collectors.toMap(
-                instrcutor -> instrcutor,
-                instructor -> this.courses.stream()
-                    .filter(course -> Arrays.asList(course.instructors.split(", ")).contains(instructor))
-                    //we can divide Duflo's
-                    //alphabetical order
-                    .sorted(Comparator.comparing(course -> course.title))
-                    .collect(Collectors.toList()),
-                (list1, list2) -> {
-                    list1.addAll(list2);
-                    return list1;
-                }
-            ));
-
-        // create the map of instructors and their courses
-        coursesByInstructors.forEach((instructor, coursesList) -> {
-            List<String> independentlyResponsibleCourses = new ArrayList<>();
-            List<String> coDevelopedCourses = new ArrayList<>();
-            for (Course course: coursesList) {
-                if (course.instructors.split(", ").length == 1) { //String[].length == 1 -> independent
-                    if (!independentlyResponsibleCourses.contains(course.title)){
-                        independentlyResponsibleCourses.add(course.title);
-                    }
-                } else {
-                    if (!coDevelopedCourses.contains(course.title)) {
-                        coDevelopedCourses.add(course.title);
-                    }
-                }
-            }
-            List<List<String>> instructor2Courses = new ArrayList<>();
-            instructor2Courses.add(independentlyResponsibleCourses);
-            instructor2Courses.add(coDevelopedCourses);
-            instructorsCourses.put(instructor, instructor2Courses);
-        });
-
-        return instructorsCourses;
-
+        // answered from the inverted instructor index built at load time
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_COURSE_LIST_OF_INSTRUCTOR);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getCourseListOfInstructor", d.version), () -> {
+            call.scanned(d.table.instructorNames.size());
+            return Collections.unmodifiableMap(d.instructorIndex.toMap());
+        }));
     }
 
     //4
@@ -200,46 +719,119 @@ public class OnlineCoursesAnalyzer {
          * by="participants": the results should be courses sorted by descending order
          * of the number of
          * the Participants (Course Content Accessed) (from the most to the least).
+         * by="certified" / by="audited": sorted by descending number of Certified / Audited
+         * (> 50% Course Content Accessed) participants.
          * Note that the results should be a list of Course titles. If two courses have
          * the same total Course hours or
          * participants, then they should be sorted by alphabetical order of their titles.
          * The same course title can only
          * occur once in the list.
          */
-        // Sort the courses according to the given criterion
-        Comparator<Course> comparator;
-        List<Course> sortedCourses = new ArrayList<>();
-        if (by.equals("hours")) {
-            comparator = Comparator.comparingDouble((Course course) -> course.totalHours).reversed()
-                .thenComparing(course -> course.title);
-        } else if (by.equals("participants")) {
-            comparator = Comparator.comparing((Course course) -> course.participants).reversed()
-                .thenComparing(course -> course.title);
-        }
-        else {
+        // The top K is a prefix of the precomputed ranking of the criterion
+        return getCourses(0, topK, by);
+    }
+
+    /**
+     * Pages through the courses ranked by the given criterion (see getCourses(topK, by)):
+     * returns at most limit titles, starting at position offset of the ranking.
+     */
+    public List<String> getCourses(int offset, int limit, String by) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.GET_COURSES);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("getCourses", d.version, offset, limit, by),
+            () -> Collections.unmodifiableList(computeCourses(d, offset, limit, by, call))));
+    }
+
+    private List<String> computeCourses(DatasetVersion d, int offset, int limit, String by,
+                                        AnalyzerMetrics.Call call) {
+        if (!d.rankings.containsKey(by)) {
+            // the ranking of this criterion is built from every row first
+            call.scanned(d.table.size);
+        }
+        int[] ranking = ranking(d, by);
+        int from = Math.min(offset, ranking.length);
+        int to = (int) Math.min(ranking.length, Math.max(from, (long) from + limit));
+        call.scanned(to - from);
+        List<String> courses = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            courses.add(d.table.titles.decode(ranking[i]));
+        }
+        return courses;
+    }
+
+    /**
+     * Returns every distinct title code ordered by the criterion, best first. Rankings are
+     * built once per criterion and dataset version (hours and participants right after loading)
+     * and then reused.
+     */
+    private int[] ranking(DatasetVersion d, String by) {
+        if (!RANKING_CRITERIA.contains(by)) {
             //If not, we cut off the program so there won't be error warning then
             throw new IllegalArgumentException("Invalid criterion: " + by);
         }
-        sortedCourses = this.courses.stream()
-            .distinct()
-            .sorted(comparator)
-            .collect(Collectors.toList());
-
-        // Extract the top K course titles
-        List<String> topKCourses = new ArrayList<>();
-        // One title can only be in the list for once, so we can correct it out effciently
-        Set<String> courseTitles = new HashSet<>();
-        for (Course course : sortedCourses) {
-            if (topKCourses.size() >= topK) {
+        ForkJoinPool pool = this.pool;
+        return d.rankings.computeIfAbsent(by, criterion -> buildRanking(d.table, criterion, pool));
+    }
+
+    // a bounded heap as large as the number of titles, per partition of pool when the table is large
+    private static int[] buildRanking(CourseTable t, String by, ForkJoinPool pool) {
+        int titles = t.titles.size();
+        TopKSelector selector;
+        if (t.size >= PARALLEL_TOP_K_ROWS) {
+            int partitions = pool.getParallelism();
+            int partitionSize = (t.size + partitions - 1) / partitions;
+            // a parallel stream started from a task of pool runs on pool
+            selector = pool.submit(() -> IntStream.range(0, partitions).parallel()
+                .mapToObj(p -> selectTopCourses(t, titles, by, p * partitionSize, Math.min(t.size, (p + 1) * partitionSize)))
+                .reduce((left, right) -> {
+                    left.merge(right);
+                    return left;
+                })
+                .orElseThrow()).join();
+        } else {
+            selector = selectTopCourses(t, titles, by, 0, t.size);
+        }
+        return selector.drainBestFirst();
+    }
+
+    private static TopKSelector selectTopCourses(CourseTable t, int topK, String by, int from, int to) {
+        TopKSelector selector = new TopKSelector(topK, t.titles.size());
+        switch (by) {
+            case "hours":
+                offerRows(selector, t.totalHours, t, from, to);
                 break;
-            }
-            String title = course.title;
-            if (!courseTitles.contains(title)) {
-                topKCourses.add(title);
-                courseTitles.add(title);
-            }
+            case "participants":
+                offerRows(selector, t.participants, t, from, to);
+                break;
+            case "certified":
+                offerRows(selector, t.certified, t, from, to);
+                break;
+            case "audited":
+                offerRows(selector, t.audited, t, from, to);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid criterion: " + by);
+        }
+        return selector;
+    }
+
+    private static void offerRows(TopKSelector selector, double[] column, CourseTable t, int from, int to) {
+        int[] ranks = t.titles.ranks();
+        for (int row = from; row < to; row++) {
+            int title = t.title[row];
+            selector.offer(title, column[row], ranks[title]);
+        }
+    }
+
+    private static void offerRows(TopKSelector selector, int[] column, CourseTable t, int from, int to) {
+        int[] ranks = t.titles.ranks();
+        for (int row = from; row < to; row++) {
+            int title = t.title[row];
+            selector.offer(title, column[row], ranks[title]);
         }
-        return topKCourses;
     }
 
     //5
@@ -254,24 +846,64 @@ public class OnlineCoursesAnalyzer {
          * Note that the results should be a list of course titles that meet the given criteria, and sorted by alphabetical
          * order of the titles. The same course title can only occur once in the list.
          */
-        List<String> matchingCourses = new ArrayList<>();
-        for (Course course : courses) {
-            // check if the course subject matches the input subject using a case-insensitive fuzzy search
-            if (course.subject.toLowerCase().contains(courseSubject.toLowerCase())) {
-                // check if the percent audited is greater than or equal to the input percent
-                double percent = ((double) course.audited/course.participants)*100;
-                if (percent >= percentAudited) {
-                    // check if the total course hours is less than or equal to the input hours
-                    // ensure there will only be one title in the list
-                    if (course.totalHours <= totalCourseHours && !matchingCourses.contains(course.title)) {
-                        matchingCourses.add(course.title);
+        // answered from the subject / hours / audited index built on first use,
+        // the match is case insensitive so is the cache key
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.SEARCH_COURSES);
+        DatasetVersion d = this.current;
+        String query = courseSubject.toLowerCase();
+        return call.end(this.cache.get(
+            QueryCache.key("searchCourses", d.version, query, percentAudited, totalCourseHours),
+            () -> Collections.unmodifiableList(
+                d.searchIndex().search(query, percentAudited, totalCourseHours, call))));
+    }
+
+    /**
+     * Batch form of searchCourses(courseSubject, percentAudited, totalCourseHours): returns the
+     * titles found for every query, in the order of queries. The batch shares the subject
+     * matching of equal subject strings and answers repeated queries once.
+     */
+    public List<List<String>> searchCourses(List<SearchCriteria> queries) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.SEARCH_COURSES_BATCH);
+        return call.end(this.current.searchIndex().search(queries, call));
+    }
+
+    /**
+     * Same as searchCourses, matching only the course runs launched between from and to (both
+     * included). The runs are found by a range scan over the rows ordered by launch date.
+     */
+    public List<String> searchCourses(String courseSubject, double percentAudited, double totalCourseHours,
+                                      LocalDate from, LocalDate to) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.SEARCH_COURSES_BETWEEN);
+        DatasetVersion d = this.current;
+        String query = courseSubject.toLowerCase();
+        return call.end(this.cache.get(
+            QueryCache.key("searchCourses", d.version, query, percentAudited, totalCourseHours, from, to), () -> {
+                CourseTable t = d.table;
+                SearchFilter filter = new SearchFilter(d, query, percentAudited, totalCourseHours, from, to);
+                LaunchDateIndex index = d.launchDateIndex();
+                int start = index.from(EpochDays.bound(from));
+                int end = Math.max(start, index.to(EpochDays.bound(to)));
+                int[] ranks = t.titles.ranks();
+                ScratchRankSet titleRanks = ScratchRankSet.forThread(ranks.length);
+                for (int i = start; i < end; i++) {
+                    int row = index.rows[i];
+                    if (filter.matches(row)) {
+                        titleRanks.add(ranks[t.title[row]]);
                     }
                 }
-            }
+                call.scanned(end - start);
+                return Collections.unmodifiableList(titleRanks.drain(t.titles, t.titles.codesByRank()));
+            }));
+    }
+
+    // the titles of the given alphabetical ranks, in alphabetical order
+    private static List<String> titlesOfRanks(CourseTable t, BitSet titleRanks) {
+        int[] codeOfRank = t.titles.codesByRank();
+        List<String> titles = new ArrayList<>(titleRanks.cardinality());
+        for (int rank = titleRanks.nextSetBit(0); rank >= 0; rank = titleRanks.nextSetBit(rank + 1)) {
+            titles.add(t.titles.decode(codeOfRank[rank]));
         }
-        // sort the matching courses by alphabetical order and return the list
-        Collections.sort(matchingCourses);
-        return matchingCourses;
+        return titles;
     }
 
     //6
@@ -284,169 +916,32 @@ public class OnlineCoursesAnalyzer {
          The courses should be sorted by their similarity values. If two courses
          * have the same similarity values, then they should be sorted by alphabetical order of their titles
          */
-        // Calculate the average Median Age, average % Male, and average % Bachelor's Degree or Higher for each course
-        // Mark a course by its course number(unique)
-        // Group course by course number
-        Map<String, List<Course>> coursesByNumber = new HashMap<>();
-        for (Course course : this.courses) {
-            String courseNumber = course.number;
-            if (!coursesByNumber.containsKey(courseNumber)) {
-                coursesByNumber.put(courseNumber, new ArrayList<>());
-            }
-            //find key and add
-            coursesByNumber.get(courseNumber).add(course);
-        }
-
-        // every List of courses will be sorted by reversed order to put the latest at first
-        coursesByNumber.values().forEach(
-            courses -> courses.sort(
-                Comparator.comparing((Course course) -> course.launchDate).reversed()
-            ));
-
-        // Calculate similarity value by the formula provided
-        Map<String, Double> courseAvgByNumber = new HashMap<>();
-        for (Map.Entry<String, List<Course>> entry : coursesByNumber.entrySet()) {
-            String courseNumber = entry.getKey();
-            List<Course> coursesList = entry.getValue();
-            int participants = 0;
-            int cnt = coursesList.size();
-            double totalMedianAge, totalMale, totalDegree;
-            totalMedianAge = 0.0;
-            totalDegree = 0.0;
-            totalMale = 0.0;
-            for (Course course : coursesList) {
-//                int courseParticipants = course.participants;
-//                participants += courseParticipants;
-//                totalMedianAge += (course.medianAge * courseParticipants);
-//                totalMale += ((course.percentMale / 100.0) * courseParticipants);
-//                totalDegree += ((course.percentDegree / 100.0) * courseParticipants);
-                totalMedianAge += course.medianAge;
-                totalMale += course.percentMale;
-                totalDegree += course.percentDegree;
-            }
-//            double avgMedianAge = (totalMedianAge / participants);
-            // # of male / # of overall participants (units as %)
-//            double avgPercentMale = ((totalMale / participants) * 100.0);
-//            double avgPercentDegree = ((totalDegree / participants) * 100.0);
-            double avgMedianAge = totalMedianAge / cnt;
-            double avgPercentMale = totalMale / cnt;
-            double avgPercentDegree = totalDegree /cnt;
-            CourseAvg c = new CourseAvg(avgMedianAge, avgPercentMale, avgPercentDegree);
-            // Calculate similarity for each course by id(not for title)
-            // id -> similarity
-            double similarityValue =
-                Math.pow(age - c.avgMedianAge, 2) +
-                    Math.pow(gender * 100.0 - c.avgPercentMale, 2) +
-                    Math.pow(isBachelorOrHigher * 100.0 - c.avgPercentDegree, 2);
-            courseAvgByNumber.put(courseNumber, similarityValue);
-        }
-
-        // Return the top 10 courses with the smallest similarity value -> list<title>
-        // Find the latest for each id, and exchange courseID to courseTitle
-        Map<String, Double> sortedCourses = new HashMap<>();
-
-        for (Map.Entry<String, List<Course>> entry : coursesByNumber.entrySet()) {
-            String courseNumber = entry.getKey();
-            Course latestCourse = entry.getValue().get(0);
-            String latestTitle = latestCourse.title;
-            sortedCourses.put(latestTitle, courseAvgByNumber.get(courseNumber));
-        }
-        Map<String, Double> result;
-        result = sortedCourses.entrySet().stream()
-            .sorted((Comparator
-                .comparingDouble((ToDoubleFunction<Entry<String, Double>>) Entry::getValue)
-                .thenComparing(Entry::getKey)))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
-
-
-        // same similarity -> sort by alphabetical orders of their titles
-
-        List<String> top10Courses = new ArrayList<>();
-        for(Map.Entry<String, Double> entry:result.entrySet()) {
-//            System.out.println(entry.getKey()+" "+entry.getValue());
-            if (top10Courses.size() < 10){
-                top10Courses.add(entry.getKey());
-            } else {
-                break;
-            }
-        }
-        return top10Courses;
+        // scored against the per-course-number profiles precomputed at load time
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.RECOMMEND_COURSES);
+        DatasetVersion d = this.current;
+        return call.end(this.cache.get(QueryCache.key("recommendCourses", d.version, age, gender, isBachelorOrHigher), () -> {
+            call.scanned(d.recommendationModel.profiles());
+            return Collections.unmodifiableList(d.recommendationModel.recommend(age, gender, isBachelorOrHigher));
+        }));
     }
-}
-
-class CourseAvg{
-    double avgMedianAge;
-    double avgPercentMale;
-    double avgPercentDegree;
 
-    public CourseAvg(double avgMedianAge, double avgPercentMale, double avgPercentDegree) {
-        this.avgPercentDegree = avgPercentDegree;
-        this.avgMedianAge = avgMedianAge;
-        this.avgPercentMale = avgPercentMale;
+    /**
+     * Batch form of recommendCourses(age, gender, isBachelorOrHigher): returns the 10 recommended
+     * titles of every user, in the order of users. Large batches are split over the fork-join pool
+     * of this analyzer, see setParallelism.
+     */
+    public List<List<String>> recommendCourses(List<UserProfile> users) {
+        AnalyzerMetrics.Call call = this.metrics.begin(AnalyzerMetrics.Query.RECOMMEND_COURSES_BATCH);
+        RecommendationModel model = this.current.recommendationModel;
+        call.scanned((long) model.profiles() * users.size());
+        if (users.size() < PARALLEL_BATCH_USERS) {
+            return call.end(model.recommend(users));
+        }
+        int chunks = (users.size() + PARALLEL_BATCH_USERS - 1) / PARALLEL_BATCH_USERS;
+        return call.end(this.pool.submit(() -> IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> model.recommend(users.subList(c * PARALLEL_BATCH_USERS,
+                Math.min(users.size(), (c + 1) * PARALLEL_BATCH_USERS))))
+            .flatMap(List::stream)
+            .collect(Collectors.toList())).join());
     }
 }
-class Course {
-    String institution;
-    String number;
-    Date launchDate;
-    String title;
-    String instructors;
-    String subject;
-    int year;
-    int honorCode;
-    int participants;
-    int audited;
-    int certified;
-    double percentAudited;
-    double percentCertified;
-    double percentCertified50;
-    double percentVideo;
-    double percentForum;
-    double gradeHigherZero;
-    double totalHours;
-    double medianHoursCertification;
-    double medianAge;
-    double percentMale;
-    double percentFemale;
-    double percentDegree;
-
-    public Course(String institution, String number, Date launchDate,
-                  String title, String instructors, String subject,
-                  int year, int honorCode, int participants,
-                  int audited, int certified, double percentAudited,
-                  double percentCertified, double percentCertified50,
-                  double percentVideo, double percentForum, double gradeHigherZero,
-                  double totalHours, double medianHoursCertification,
-                  double medianAge, double percentMale, double percentFemale,
-                  double percentDegree) {
-        this.institution = institution;
-        this.number = number;
-        this.launchDate = launchDate;
-        if (title.startsWith("\"")) title = title.substring(1);
-        if (title.endsWith("\"")) title = title.substring(0, title.length() - 1);
-        this.title = title;
-        if (instructors.startsWith("\"")) instructors = instructors.substring(1); //already left double quotation marks behind
-        if (instructors.endsWith("\"")) instructors = instructors.substring(0, instructors.length() - 1);
-        this.instructors = instructors;
-        if (subject.startsWith("\"")) subject = subject.substring(1);
-        if (subject.endsWith("\"")) subject = subject.substring(0, subject.length() - 1);
-        this.subject = subject;
-        this.year = year;
-        this.honorCode = honorCode;
-        this.participants = participants;
-        this.audited = audited;
-        this.certified = certified;
-        this.percentAudited = percentAudited;
-        this.percentCertified = percentCertified;
-        this.percentCertified50 = percentCertified50;
-        this.percentVideo = percentVideo;
-        this.percentForum = percentForum;
-        this.gradeHigherZero = gradeHigherZero;
-        this.totalHours = totalHours;
-        this.medianHoursCertification = medianHoursCertification;
-        this.medianAge = medianAge;
-        this.percentMale = percentMale;
-        this.percentFemale = percentFemale;
-        this.percentDegree = percentDegree;
-    }
-}
\ No newline at end of file
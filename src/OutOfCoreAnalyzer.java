@@ -0,0 +1,174 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Answers getPtcpCountByInst, getPtcpCountByInstAndSubject and getCourses of
+ * OnlineCoursesAnalyzer, with the same results, over datasets larger than the heap.
+ * The columns these queries need are kept in memory-mapped segments on disk (see
+ * SegmentStore); every query streams over the segments, aggregating one segment at a time
+ * into a group table that spills to disk when it holds more than groupTableEntries groups
+ * (see SpillingGroupTable), and getCourses keeps only the best offset + limit titles.
+ * The heap holds one segment's strings, the group tables and the answer itself.
+ * <p>
+ * Only the institution, subject, title, participants, audited, certified and total hours
+ * fields are parsed. Nothing is cached, every call reads the segments again.
+ */
+public class OutOfCoreAnalyzer implements Closeable {
+    static final int GROUP_TABLE_ENTRIES = 1 << 20;
+    // the criteria of getCourses, see OnlineCoursesAnalyzer.RANKING_CRITERIA
+    private static final List<String> CRITERIA = List.of("hours", "participants", "certified", "audited");
+
+    private final Path workDirectory;
+    private final int groupTableEntries;
+    private final SegmentStore store;
+
+    /** Loads datasetPath into segments in a new file of workDirectory, removed again by close. */
+    public OutOfCoreAnalyzer(String datasetPath, String workDirectory) throws IOException {
+        this(Paths.get(datasetPath), Paths.get(workDirectory), GROUP_TABLE_ENTRIES);
+    }
+
+    OutOfCoreAnalyzer(Path dataset, Path workDirectory, int groupTableEntries) throws IOException {
+        this.workDirectory = workDirectory;
+        this.groupTableEntries = groupTableEntries;
+        this.store = new SegmentStore(Files.createTempFile(workDirectory, "courses-", ".segments"));
+        try {
+            this.store.load(Files.newBufferedReader(dataset, StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            this.store.close();
+            throw e;
+        }
+    }
+
+    /** The number of course runs in the dataset. */
+    public long size() {
+        return store.rows();
+    }
+
+    /** Same contract as OnlineCoursesAnalyzer.getPtcpCountByInst. */
+    public Map<String, Integer> getPtcpCountByInst() {
+        Map<String, Integer> result = new TreeMap<>();
+        try (SpillingGroupTable totals = new SpillingGroupTable(workDirectory, groupTableEntries, Double::sum)) {
+            for (int i = 0; i < store.segments(); i++) {
+                SegmentStore.Segment segment = store.segment(i);
+                // summed per segment-local code first, so each institution is added once per segment
+                long[] sums = new long[segment.institutions.length];
+                for (int row = 0; row < segment.rows; row++) {
+                    sums[segment.institution.get(row)] += segment.participants.get(row);
+                }
+                for (int code = 0; code < sums.length; code++) {
+                    totals.add(segment.institutions[code], sums[code]);
+                }
+            }
+            totals.forEach((institution, total) -> result.put(institution, (int) (long) total));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** Same contract as OnlineCoursesAnalyzer.getPtcpCountByInstAndSubject. */
+    public Map<String, Integer> getPtcpCountByInstAndSubject() {
+        Map<String, Integer> entries = new HashMap<>();
+        try (SpillingGroupTable totals = new SpillingGroupTable(workDirectory, groupTableEntries, Double::sum)) {
+            for (int i = 0; i < store.segments(); i++) {
+                SegmentStore.Segment segment = store.segment(i);
+                LongIntHashMap sums = new LongIntHashMap(segment.institutions.length);
+                for (int row = 0; row < segment.rows; row++) {
+                    sums.addTo(LongIntHashMap.compositeKey(segment.institution.get(row), segment.subject.get(row)),
+                        segment.participants.get(row));
+                }
+                for (int slot = 0; slot < sums.capacity(); slot++) {
+                    if (sums.isUsed(slot)) {
+                        long key = sums.keyAt(slot);
+                        totals.add(segment.institutions[LongIntHashMap.highKey(key)] + "-"
+                            + segment.subjects[LongIntHashMap.lowKey(key)], sums.valueAt(slot));
+                    }
+                }
+            }
+            totals.forEach((key, total) -> entries.put(key, (int) (long) total));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableMap(OnlineCoursesAnalyzer.sortByCountDescending(entries));
+    }
+
+    /** Same contract as OnlineCoursesAnalyzer.getCourses(topK, by). */
+    public List<String> getCourses(int topK, String by) {
+        return getCourses(0, topK, by);
+    }
+
+    /** Same contract as OnlineCoursesAnalyzer.getCourses(offset, limit, by). */
+    public List<String> getCourses(int offset, int limit, String by) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+        if (!CRITERIA.contains(by)) {
+            throw new IllegalArgumentException("Invalid criterion: " + by);
+        }
+        int criterion = CRITERIA.indexOf(by);
+        int k = (int) Math.min(Integer.MAX_VALUE, Math.max(0, (long) offset + limit));
+        // orders titles from worst to best, so the head of the queue is the worst selected title
+        Comparator<Map.Entry<String, Double>> better = (o1, o2) -> {
+            int compare = Double.compare(o1.getValue(), o2.getValue());
+            return compare != 0 ? compare : o2.getKey().compareTo(o1.getKey());
+        };
+        PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(better);
+        try (SpillingGroupTable maxima = new SpillingGroupTable(workDirectory, groupTableEntries, Math::max)) {
+            for (int i = 0; i < store.segments(); i++) {
+                SegmentStore.Segment segment = store.segment(i);
+                double[] segmentMaxima = new double[segment.titles.length];
+                Arrays.fill(segmentMaxima, Double.NEGATIVE_INFINITY);
+                for (int row = 0; row < segment.rows; row++) {
+                    int title = segment.title.get(row);
+                    segmentMaxima[title] = Math.max(segmentMaxima[title], value(segment, row, criterion));
+                }
+                for (int title = 0; title < segmentMaxima.length; title++) {
+                    maxima.add(segment.titles[title], segmentMaxima[title]);
+                }
+            }
+            maxima.forEach((title, value) -> {
+                Map.Entry<String, Double> entry = Map.entry(title, value);
+                if (best.size() < k) {
+                    best.add(entry);
+                } else if (k > 0 && better.compare(entry, best.peek()) > 0) {
+                    best.poll();
+                    best.add(entry);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String[] ranked = new String[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = best.poll().getKey();
+        }
+        int from = Math.min(offset, ranked.length);
+        return Collections.unmodifiableList(Arrays.asList(ranked).subList(from, ranked.length));
+    }
+
+    // criterion is an index into CRITERIA
+    private static double value(SegmentStore.Segment segment, int row, int criterion) {
+        switch (criterion) {
+            case 0:
+                return segment.totalHours.get(row);
+            case 1:
+                return segment.participants.get(row);
+            case 2:
+                return segment.certified.get(row);
+            default:
+                return segment.audited.get(row);
+        }
+    }
+
+    /** Deletes the segment file. */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
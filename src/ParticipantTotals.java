@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Participant sums behind getPtcpCountByInst and getPtcpCountByInstAndSubject, kept up to
+ * date as rows are appended: one counter per institution code and one per
+ * (institution code, subject code) pair.
+ * The initial sums over a whole table can be computed in parallel, see aggregate.
+ */
+class ParticipantTotals {
+    // smallest number of rows worth summing on a thread of its own
+    static final int MIN_CHUNK_ROWS = 1 << 14;
+
+    private final CourseTable table;
+    private int[] byInstitution;
+    final LongIntHashMap byInstitutionAndSubject;
+
+    ParticipantTotals(CourseTable table) {
+        this(table, 0, table.size);
+    }
+
+    // the sums of the rows [from, to) of table
+    private ParticipantTotals(CourseTable table, int from, int to) {
+        this.table = table;
+        this.byInstitution = new int[16];
+        this.byInstitutionAndSubject = new LongIntHashMap();
+        addRows(from, to);
+    }
+
+    /** A copy of other over table, a copy of the table of other, for adding rows without affecting other. */
+    ParticipantTotals(ParticipantTotals other, CourseTable table) {
+        this.table = table;
+        this.byInstitution = other.byInstitution.clone();
+        this.byInstitutionAndSubject = new LongIntHashMap(other.byInstitutionAndSubject);
+    }
+
+    /**
+     * Sums the whole table on pool: the rows are cut into one contiguous chunk per thread,
+     * each chunk is summed into accumulators of its own, and the accumulators are merged at the
+     * end. A pool with parallelism 1, or a table too small to split, is summed on the calling thread.
+     */
+    static ParticipantTotals aggregate(CourseTable table, ForkJoinPool pool) {
+        int chunks = Math.min(pool.getParallelism(), table.size / MIN_CHUNK_ROWS);
+        if (chunks <= 1) {
+            return new ParticipantTotals(table);
+        }
+        int chunkSize = (table.size + chunks - 1) / chunks;
+        List<ChunkTask> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < table.size; from += chunkSize) {
+            tasks.add(new ChunkTask(table, from, Math.min(table.size, from + chunkSize)));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        ParticipantTotals totals = tasks.get(0).join();
+        for (int i = 1; i < tasks.size(); i++) {
+            totals.merge(tasks.get(i).join());
+        }
+        return totals;
+    }
+
+    private static class ChunkTask extends RecursiveTask<ParticipantTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final CourseTable table;
+        private final int from;
+        private final int to;
+
+        ChunkTask(CourseTable table, int from, int to) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ParticipantTotals compute() {
+            return new ParticipantTotals(table, from, to);
+        }
+    }
+
+    // adds the sums of other, over the same table, to these sums
+    private void merge(ParticipantTotals other) {
+        for (int code = 0; code < other.byInstitution.length && code < byInstitution.length; code++) {
+            byInstitution[code] += other.byInstitution[code];
+        }
+        byInstitutionAndSubject.addAll(other.byInstitutionAndSubject);
+    }
+
+    /** Adds the rows [from, to) of the table to the sums. */
+    void addRows(int from, int to) {
+        CourseTable t = this.table;
+        if (t.institutions.size() > byInstitution.length) {
+            byInstitution = Arrays.copyOf(byInstitution, Math.max(t.institutions.size(), byInstitution.length * 2));
+        }
+        for (int row = from; row < to; row++) {
+            byInstitution[t.institution[row]] += t.participants[row];
+            byInstitutionAndSubject.addTo(LongIntHashMap.compositeKey(t.institution[row], t.subject[row]),
+                t.participants[row]);
+        }
+    }
+
+    /** Total participants of the institution with the given code. */
+    int institution(int code) {
+        return byInstitution[code];
+    }
+}
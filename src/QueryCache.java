@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Approximately LRU cache of query results, keyed by method name and arguments.
+ * A hit takes no lock: it looks its entry up in a ConcurrentHashMap, stamps the entry with the
+ * time of the read and counts itself in a LongAdder. Eviction runs on the miss path only: when an
+ * insert leaves either the entry count or the total weight (roughly the number of strings held by
+ * the cached results) over its limit, the inserting thread takes the eviction lock and drops the
+ * least recently read entries until both are back under seven eighths of their limits, so one
+ * eviction pass pays for many inserts.
+ * Cached results are shared between callers, so they must be unmodifiable.
+ * The owner calls invalidateAll() whenever the underlying dataset changes.
+ * A disabled cache computes every result and holds nothing, which benchmarks use to measure
+ * the queries themselves.
+ */
+public class QueryCache {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ConcurrentHashMap<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // serializes eviction passes; never taken by a hit
+    final Object evictionLock = new Object();
+    private volatile boolean enabled = true;
+
+    private static class Entry {
+        final Object value;
+        final long weight;
+        // System.nanoTime() of the last read, or of the insert
+        volatile long lastRead = System.nanoTime();
+
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // an entry with its read time fixed for sorting, since lastRead may move meanwhile
+    private static class Victim {
+        final List<Object> key;
+        final Entry entry;
+        final long lastRead;
+
+        Victim(List<Object> key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastRead = entry.lastRead;
+        }
+    }
+
+    /**
+     * Counters and occupancy of a cache. The counters are read one after another without
+     * stopping concurrent queries, so under load they may be off by the queries in flight.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int entries;
+        private final long weight;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int entries, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.weight = weight;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Calls of invalidateAll, one per change of the dataset. */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        /** Roughly the number of strings held by the cached results. */
+        public long getWeight() {
+            return weight;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, hitRate=%.3f, evictions=%d, invalidations=%d, entries=%d, weight=%d",
+                hits, misses, getHitRate(), evictions, invalidations, entries, weight);
+        }
+    }
+
+    QueryCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    static List<Object> key(String method, Object... args) {
+        Object[] key = Arrays.copyOf(new Object[] {method}, args.length + 1);
+        System.arraycopy(args, 0, key, 1, args.length);
+        return List.of(key);
+    }
+
+    /**
+     * Returns the cached result for key, or computes, caches and returns it.
+     * The computation runs outside any lock, so two threads missing on the same key
+     * may both compute it; the later result replaces the earlier one.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(List<Object> key, Supplier<T> compute) {
+        if (!enabled) {
+            return compute.get();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastRead = System.nanoTime();
+            hits.increment();
+            return (T) entry.value;
+        }
+        misses.increment();
+        T value = compute.get();
+        long valueWeight = weigh(value);
+        if (valueWeight <= maxWeight) {
+            // each entry's weight is subtracted once, by whichever put or remove takes it out
+            Entry previous = entries.put(key, new Entry(value, valueWeight));
+            weight.addAndGet(previous == null ? valueWeight : valueWeight - previous.weight);
+            if (overLimit(maxEntries, maxWeight)) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    void invalidateAll() {
+        for (Map.Entry<List<Object>, Entry> e : entries.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+        invalidations.increment();
+    }
+
+    Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(), weight.get());
+    }
+
+    private boolean overLimit(int entryLimit, long weightLimit) {
+        return entries.size() > entryLimit || weight.get() > weightLimit;
+    }
+
+    private boolean remove(List<Object> key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        weight.addAndGet(-entry.weight);
+        return true;
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            // another thread's pass may have made room already
+            if (!overLimit(maxEntries, maxWeight)) {
+                return;
+            }
+            List<Victim> victims = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> victims.add(new Victim(key, entry)));
+            victims.sort((a, b) -> Long.compare(a.lastRead, b.lastRead));
+            int entryTarget = maxEntries - maxEntries / 8;
+            long weightTarget = maxWeight - maxWeight / 8;
+            for (Victim victim : victims) {
+                if (!overLimit(entryTarget, weightTarget)) {
+                    break;
+                }
+                if (remove(victim.key, victim.entry)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    // one unit per element, nested collections included
+    private static long weigh(Object value) {
+        if (value instanceof Collection) {
+            long total = 1;
+            for (Object element : (Collection<?>) value) {
+                total += weigh(element);
+            }
+            return total;
+        }
+        if (value instanceof Map) {
+            long total = 1;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                total += 1 + weigh(entry.getValue());
+            }
+            return total;
+        }
+        return 1;
+    }
+}
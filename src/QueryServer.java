@@ -0,0 +1,339 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embedded HTTP endpoint for the queries of an OnlineCoursesAnalyzer, on the JDK's own
+ * com.sun.net.httpserver. Answers are JSON. A bad request is answered with status 400 and
+ * {"error": message}; any other failure with status 500 and a generic message, its details
+ * going to the server's standard error rather than to the client. Non-finite numbers, which
+ * JSON cannot represent, are written as null.
+ * <pre>
+ * GET  /ptcpCountByInst[?from=2014-01-01&amp;to=2014-12-31]
+ * GET  /ptcpCountByInstAndSubject[?from=...&amp;to=...]
+ * GET  /courseListOfInstructor
+ * GET  /courses?topK=10&amp;by=hours  or  /courses?offset=20&amp;limit=10&amp;by=hours
+ * GET  /searchCourses?subject=science&amp;percentAudited=20&amp;totalCourseHours=700[&amp;from=...&amp;to=...]
+ * GET  /recommendCourses?age=30&amp;gender=0&amp;isBachelorOrHigher=1
+ * POST /batch/recommendCourses  one "age,gender,isBachelorOrHigher" line per user
+ * POST /batch/searchCourses     one "subject,percentAudited,totalCourseHours" line per query
+ * GET  /metrics                 the analyzer metrics as text
+ * </pre>
+ * A batch is answered by one call of the analyzer's batch query, in the order of its lines.
+ * Every request runs on its own virtual thread where the JDK has them (21 and later), and
+ * on a cached thread pool before that. Identical requests in flight at the same time are
+ * coalesced: the first one runs the query and the others share its response.
+ */
+public class QueryServer {
+    private static final int BACKLOG = 1024;
+
+    private final OnlineCoursesAnalyzer analyzer;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // request -> the response of the request that is running it
+    private final Map<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    private static class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** A server for analyzer on address (port 0 picks a free port); start() starts serving. */
+    public QueryServer(OnlineCoursesAnalyzer analyzer, InetSocketAddress address) throws IOException {
+        this.analyzer = analyzer;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = newRequestExecutor();
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /** Usage: QueryServer datasetPath [port], serves until the process is stopped. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: QueryServer datasetPath [port]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8209;
+        QueryServer server = new QueryServer(new OnlineCoursesAnalyzer(args[0]), new InetSocketAddress(port));
+        server.start();
+        System.out.println("Serving " + args[0] + " on http://localhost:" + server.port() + "/");
+    }
+
+    // virtual threads through reflection, so that the server still compiles and runs on JDK 17
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "query-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests, waits up to delaySeconds for running ones, and stops. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Requests that were answered with the response of an identical request in flight. */
+    public long coalescedRequests() {
+        return coalesced.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String key = exchange.getRequestMethod() + " " + exchange.getRequestURI() + "\n" + body;
+            CompletableFuture<Response> mine = new CompletableFuture<>();
+            CompletableFuture<Response> running = inFlight.putIfAbsent(key, mine);
+            Response response;
+            if (running == null) {
+                try {
+                    mine.complete(respond(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                        parameters(exchange.getRequestURI().getRawQuery()), body));
+                } catch (IllegalArgumentException e) {
+                    // NumberFormatException included
+                    mine.complete(new Response(400, "application/json", "{\"error\":" + json(String.valueOf(e.getMessage())) + "}"));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    mine.complete(new Response(500, "application/json", "{\"error\":\"Internal server error\"}"));
+                } catch (Error e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, mine);
+                }
+                response = mine.join();
+            } else {
+                coalesced.increment();
+                response = running.join();
+            }
+            exchange.getResponseHeaders().set("Content-Type", response.contentType + "; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, response.body.length == 0 ? -1 : response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        }
+    }
+
+    private Response respond(String method, String path, Map<String, String> p, String body) {
+        if (path.startsWith("/batch/")) {
+            if (!method.equals("POST")) {
+                return new Response(405, "application/json", "{\"error\":\"batches are POSTed\"}");
+            }
+            switch (path) {
+                case "/batch/recommendCourses":
+                    List<UserProfile> users = new ArrayList<>();
+                    for (String[] fields : lines(body, 3)) {
+                        users.add(new UserProfile(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()),
+                            Integer.parseInt(fields[2].trim())));
+                    }
+                    return ok(json(analyzer.recommendCourses(users)));
+                case "/batch/searchCourses":
+                    List<SearchCriteria> queries = new ArrayList<>();
+                    for (String[] fields : lines(body, 3)) {
+                        queries.add(new SearchCriteria(fields[0], Double.parseDouble(fields[1].trim()),
+                            Double.parseDouble(fields[2].trim())));
+                    }
+                    return ok(json(analyzer.searchCourses(queries)));
+                default:
+                    return notFound(path);
+            }
+        }
+        if (!method.equals("GET")) {
+            return new Response(405, "application/json", "{\"error\":\"queries are GETs\"}");
+        }
+        switch (path) {
+            case "/ptcpCountByInst":
+                return ok(json(p.containsKey("from") || p.containsKey("to")
+                    ? analyzer.getPtcpCountByInst(date(p, "from"), date(p, "to"))
+                    : analyzer.getPtcpCountByInst()));
+            case "/ptcpCountByInstAndSubject":
+                return ok(json(p.containsKey("from") || p.containsKey("to")
+                    ? analyzer.getPtcpCountByInstAndSubject(date(p, "from"), date(p, "to"))
+                    : analyzer.getPtcpCountByInstAndSubject()));
+            case "/courseListOfInstructor":
+                return ok(json(analyzer.getCourseListOfInstructor()));
+            case "/courses":
+                return ok(json(p.containsKey("topK")
+                    ? analyzer.getCourses(integer(p, "topK"), required(p, "by"))
+                    : analyzer.getCourses(integer(p, "offset"), integer(p, "limit"), required(p, "by"))));
+            case "/searchCourses":
+                return ok(json(p.containsKey("from") || p.containsKey("to")
+                    ? analyzer.searchCourses(required(p, "subject"), decimal(p, "percentAudited"),
+                        decimal(p, "totalCourseHours"), date(p, "from"), date(p, "to"))
+                    : analyzer.searchCourses(required(p, "subject"), decimal(p, "percentAudited"),
+                        decimal(p, "totalCourseHours"))));
+            case "/recommendCourses":
+                return ok(json(analyzer.recommendCourses(integer(p, "age"), integer(p, "gender"),
+                    integer(p, "isBachelorOrHigher"))));
+            case "/metrics":
+                return new Response(200, "text/plain", analyzer.metrics() + "coalescedRequests=" + coalescedRequests() + "\n");
+            default:
+                return notFound(path);
+        }
+    }
+
+    private static Response ok(String json) {
+        return new Response(200, "application/json", json);
+    }
+
+    private static Response notFound(String path) {
+        return new Response(404, "application/json", "{\"error\":" + json("No query at " + path) + "}");
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int integer(Map<String, String> parameters, String name) {
+        return Integer.parseInt(required(parameters, name));
+    }
+
+    private static double decimal(Map<String, String> parameters, String name) {
+        return Double.parseDouble(required(parameters, name));
+    }
+
+    // an absent bound leaves the window open on that side
+    private static LocalDate date(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return name.equals("from") ? LocalDate.MIN : LocalDate.MAX;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date for " + name + ": " + value);
+        }
+    }
+
+    // the non-empty lines of a batch, split into fields; the first field may contain commas
+    private static List<String[]> lines(String body, int fields) {
+        List<String[]> lines = new ArrayList<>();
+        for (String line : body.split("\r?\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] split = new String[fields];
+            int end = line.length();
+            for (int i = fields - 1; i > 0; i--) {
+                int comma = line.lastIndexOf(',', end - 1);
+                if (comma < 0) {
+                    throw new IllegalArgumentException("Expected " + fields + " fields: " + line);
+                }
+                split[i] = line.substring(comma + 1, end);
+                end = comma;
+            }
+            split[0] = line.substring(0, end);
+            lines.add(split);
+        }
+        return lines;
+    }
+
+    static String json(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendJson(StringBuilder sb, Object value) {
+        if (value == null || value instanceof Double && !Double.isFinite((Double) value)
+                || value instanceof Float && !Float.isFinite((Float) value)) {
+            sb.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendJson(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                appendJson(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendJson(sb, element);
+            }
+            sb.append(']');
+        } else {
+            String s = value.toString();
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The per-course-number audience profiles recommendCourses scores users against,
+ * precomputed after loading and kept up to date as rows are appended.
+ * Every course number becomes one slot holding its average median age, average % male and
+ * average % bachelor's degree or higher, in three packed arrays. Slots are ordered so that
+ * course numbers whose latest run has the same title are adjacent; such a group is recommended
+ * once, with its best similarity.
+ * Scoring a user is a straight loop over the arrays, which C2 compiles to SIMD code; the
+ * jdk.incubator.vector API is not used since it would require --add-modules on every launch.
+ */
+class RecommendationModel {
+    static final int RECOMMENDATIONS = 10;
+
+    private final CourseTable table;
+    // per course number: number of runs, column totals and the row of the latest run
+    private int[] count = new int[0];
+    private double[] totalMedianAge = new double[0];
+    private double[] totalMale = new double[0];
+    private double[] totalDegree = new double[0];
+    private int[] latestRow = new int[0];
+    private int[] slotOfNumber = new int[0];
+    // packed profiles, in slot order
+    private double[] avgMedianAge;
+    private double[] avgPercentMale;
+    private double[] avgPercentDegree;
+    // the slots of group g are [groupStart[g], groupStart[g + 1])
+    private int[] groupStart;
+    private int[] groupTitle;
+    private int[] groupTitleRank;
+    private int packedTitles;
+
+    RecommendationModel(CourseTable table) {
+        this.table = table;
+        addRows(0, table.size);
+    }
+
+    /**
+     * A copy of other over table, a copy of the table of other, for adding rows without
+     * affecting other. The group arrays are only ever replaced, never modified, so they are shared.
+     */
+    RecommendationModel(RecommendationModel other, CourseTable table) {
+        this.table = table;
+        count = other.count.clone();
+        totalMedianAge = other.totalMedianAge.clone();
+        totalMale = other.totalMale.clone();
+        totalDegree = other.totalDegree.clone();
+        latestRow = other.latestRow.clone();
+        slotOfNumber = other.slotOfNumber;
+        avgMedianAge = other.avgMedianAge.clone();
+        avgPercentMale = other.avgPercentMale.clone();
+        avgPercentDegree = other.avgPercentDegree.clone();
+        groupStart = other.groupStart;
+        groupTitle = other.groupTitle;
+        groupTitleRank = other.groupTitleRank;
+        packedTitles = other.packedTitles;
+    }
+
+    /**
+     * Adds the rows [from, to) to the per-course-number totals. Profiles of course numbers that
+     * keep their latest title are updated in place; the slots are only regrouped, from the
+     * totals and not from the rows, when a course number or title is new or a latest title changes.
+     */
+    void addRows(int from, int to) {
+        int numbers = table.numbers.size();
+        boolean regroup = avgMedianAge == null || numbers > count.length || table.titles.size() != packedTitles;
+        if (numbers > count.length) {
+            count = Arrays.copyOf(count, numbers);
+            totalMedianAge = Arrays.copyOf(totalMedianAge, numbers);
+            totalMale = Arrays.copyOf(totalMale, numbers);
+            totalDegree = Arrays.copyOf(totalDegree, numbers);
+            latestRow = Arrays.copyOf(latestRow, numbers);
+        }
+        for (int row = from; row < to; row++) {
+            int number = table.number[row];
+            // the first of several runs launched on the same latest date wins
+            if (count[number] == 0 || table.launchDay[row] > table.launchDay[latestRow[number]]) {
+                if (count[number] > 0 && table.title[row] != table.title[latestRow[number]]) {
+                    regroup = true;
+                }
+                latestRow[number] = row;
+            }
+            count[number]++;
+            totalMedianAge[number] += table.medianAge[row];
+            totalMale[number] += table.percentMale[row];
+            totalDegree[number] += table.percentDegree[row];
+            if (!regroup) {
+                int slot = slotOfNumber[number];
+                avgMedianAge[slot] = totalMedianAge[number] / count[number];
+                avgPercentMale[slot] = totalMale[number] / count[number];
+                avgPercentDegree[slot] = totalDegree[number] / count[number];
+            }
+        }
+        if (regroup) {
+            pack();
+        }
+    }
+
+    // lays the profiles out grouped by the title of their latest run, by counting sort on title codes
+    private void pack() {
+        int numbers = count.length;
+        int titles = table.titles.size();
+        int[] titleStart = new int[titles + 1];
+        for (int number = 0; number < numbers; number++) {
+            titleStart[table.title[latestRow[number]] + 1]++;
+        }
+        for (int title = 0; title < titles; title++) {
+            titleStart[title + 1] += titleStart[title];
+        }
+        int[] fill = Arrays.copyOf(titleStart, titles);
+        slotOfNumber = new int[numbers];
+        avgMedianAge = new double[numbers];
+        avgPercentMale = new double[numbers];
+        avgPercentDegree = new double[numbers];
+        for (int number = 0; number < numbers; number++) {
+            int slot = fill[table.title[latestRow[number]]]++;
+            slotOfNumber[number] = slot;
+            avgMedianAge[slot] = totalMedianAge[number] / count[number];
+            avgPercentMale[slot] = totalMale[number] / count[number];
+            avgPercentDegree[slot] = totalDegree[number] / count[number];
+        }
+        int[] ranks = table.titles.ranks();
+        int groups = 0;
+        for (int title = 0; title < titles; title++) {
+            if (titleStart[title + 1] > titleStart[title]) {
+                groups++;
+            }
+        }
+        groupStart = new int[groups + 1];
+        groupTitle = new int[groups];
+        groupTitleRank = new int[groups];
+        int group = 0;
+        for (int title = 0; title < titles; title++) {
+            if (titleStart[title + 1] > titleStart[title]) {
+                groupStart[group] = titleStart[title];
+                groupTitle[group] = title;
+                groupTitleRank[group] = ranks[title];
+                group++;
+            }
+        }
+        groupStart[groups] = numbers;
+        packedTitles = titles;
+    }
+
+    /** The number of course number profiles every recommendation scores. */
+    int profiles() {
+        return avgMedianAge.length;
+    }
+
+    /** Same contract as OnlineCoursesAnalyzer.recommendCourses. */
+    List<String> recommend(int age, int gender, int isBachelorOrHigher) {
+        return recommend(age, gender, isBachelorOrHigher, new double[avgMedianAge.length],
+            new TopKSelector(RECOMMENDATIONS, groupTitle.length));
+    }
+
+    /** Recommends for every user, reusing the scratch arrays of a worker across its users. */
+    List<List<String>> recommend(List<UserProfile> users) {
+        List<List<String>> result = new ArrayList<>(users.size());
+        double[] similarity = new double[avgMedianAge.length];
+        TopKSelector selector = new TopKSelector(RECOMMENDATIONS, groupTitle.length);
+        for (UserProfile user : users) {
+            result.add(recommend(user.age, user.gender, user.isBachelorOrHigher, similarity, selector));
+        }
+        return result;
+    }
+
+    private List<String> recommend(int age, int gender, int isBachelorOrHigher,
+                                   double[] similarity, TopKSelector selector) {
+        score(age, gender * 100.0, isBachelorOrHigher * 100.0, similarity);
+        selector.clear();
+        for (int group = 0; group < groupTitle.length; group++) {
+            double best = similarity[groupStart[group]];
+            for (int slot = groupStart[group] + 1; slot < groupStart[group + 1]; slot++) {
+                best = Math.min(best, similarity[slot]);
+            }
+            // the smallest similarity is the best one, so it is offered negated
+            selector.offer(group, -best, groupTitleRank[group]);
+        }
+        List<String> titles = new ArrayList<>(RECOMMENDATIONS);
+        for (int group : selector.drainBestFirst()) {
+            titles.add(table.titles.decode(groupTitle[group]));
+        }
+        return titles;
+    }
+
+    // squared euclidean distance between the user and every course number profile
+    private void score(double age, double percentMale, double percentDegree, double[] similarity) {
+        for (int slot = 0; slot < similarity.length; slot++) {
+            double dAge = age - avgMedianAge[slot];
+            double dMale = percentMale - avgPercentMale[slot];
+            double dDegree = percentDegree - avgPercentDegree[slot];
+            similarity[slot] = dAge * dAge + dMale * dMale + dDegree * dDegree;
+        }
+    }
+}
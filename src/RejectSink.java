@@ -0,0 +1,19 @@
+/**
+ * Receives the records a lenient load skips because they could not be parsed, see
+ * OnlineCoursesAnalyzer(datasetPath, mode, rejects). Records arrive in file order, from the
+ * loading thread only, so implementations need not be thread-safe.
+ */
+public interface RejectSink {
+
+    /**
+     * Called for every skipped record.
+     * @param line the line of the dataset file on which the record starts (1-based, the header is line 1)
+     * @param reason why the record could not be parsed
+     * @param record the record as one CSV line, which can be fixed and loaded again with append
+     */
+    void reject(long line, String reason, String record);
+
+    /** Called once the whole file has been read, with the number of loaded and of skipped records. */
+    default void finished(long loaded, long rejected) {
+    }
+}
@@ -0,0 +1,133 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A list of queries for OnlineCoursesAnalyzer.report to answer together, such as a nightly
+ * report. Each method adds the query of the analyzer method of the same name and returns this
+ * report; the results come back in the order the queries were added.
+ */
+public final class Report {
+
+    enum Kind {
+        PTCP_COUNT_BY_INST,
+        PTCP_COUNT_BY_INST_AND_SUBJECT,
+        COURSE_LIST_OF_INSTRUCTOR,
+        COURSES,
+        SEARCH_COURSES,
+        RECOMMEND_COURSES,
+        AGGREGATE
+    }
+
+    /** One query and its arguments; the fields a kind does not use are left at their defaults. */
+    static final class Query {
+        final Kind kind;
+        // launch date window, null for queries over all course runs
+        LocalDate from;
+        LocalDate to;
+        int offset;
+        int limit;
+        String by;
+        String courseSubject;
+        double percentAudited;
+        double totalCourseHours;
+        int age;
+        int gender;
+        int isBachelorOrHigher;
+        Aggregation aggregation;
+
+        Query(Kind kind) {
+            this.kind = kind;
+        }
+
+        boolean windowed() {
+            return from != null;
+        }
+    }
+
+    final List<Query> queries = new ArrayList<>();
+
+    public Report getPtcpCountByInst() {
+        return add(new Query(Kind.PTCP_COUNT_BY_INST));
+    }
+
+    public Report getPtcpCountByInst(LocalDate from, LocalDate to) {
+        return add(window(new Query(Kind.PTCP_COUNT_BY_INST), from, to));
+    }
+
+    public Report getPtcpCountByInstAndSubject() {
+        return add(new Query(Kind.PTCP_COUNT_BY_INST_AND_SUBJECT));
+    }
+
+    public Report getPtcpCountByInstAndSubject(LocalDate from, LocalDate to) {
+        return add(window(new Query(Kind.PTCP_COUNT_BY_INST_AND_SUBJECT), from, to));
+    }
+
+    public Report getCourseListOfInstructor() {
+        return add(new Query(Kind.COURSE_LIST_OF_INSTRUCTOR));
+    }
+
+    public Report getCourses(int topK, String by) {
+        return getCourses(0, topK, by);
+    }
+
+    public Report getCourses(int offset, int limit, String by) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+        if (!OnlineCoursesAnalyzer.RANKING_CRITERIA.contains(by)) {
+            throw new IllegalArgumentException("Invalid criterion: " + by);
+        }
+        Query query = new Query(Kind.COURSES);
+        query.offset = offset;
+        query.limit = limit;
+        query.by = by;
+        return add(query);
+    }
+
+    public Report searchCourses(String courseSubject, double percentAudited, double totalCourseHours) {
+        Query query = new Query(Kind.SEARCH_COURSES);
+        query.courseSubject = Objects.requireNonNull(courseSubject);
+        query.percentAudited = percentAudited;
+        query.totalCourseHours = totalCourseHours;
+        return add(query);
+    }
+
+    public Report searchCourses(String courseSubject, double percentAudited, double totalCourseHours,
+                                LocalDate from, LocalDate to) {
+        searchCourses(courseSubject, percentAudited, totalCourseHours);
+        window(queries.get(queries.size() - 1), from, to);
+        return this;
+    }
+
+    public Report recommendCourses(int age, int gender, int isBachelorOrHigher) {
+        Query query = new Query(Kind.RECOMMEND_COURSES);
+        query.age = age;
+        query.gender = gender;
+        query.isBachelorOrHigher = isBachelorOrHigher;
+        return add(query);
+    }
+
+    public Report aggregate(Aggregation aggregation) {
+        Query query = new Query(Kind.AGGREGATE);
+        query.aggregation = Objects.requireNonNull(aggregation);
+        return add(query);
+    }
+
+    /** The number of queries. */
+    public int size() {
+        return queries.size();
+    }
+
+    private static Query window(Query query, LocalDate from, LocalDate to) {
+        query.from = Objects.requireNonNull(from);
+        query.to = Objects.requireNonNull(to);
+        return query;
+    }
+
+    private Report add(Query query) {
+        queries.add(query);
+        return this;
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of alphabetical ranks of a StringDictionary's values, reused by every query of a thread
+ * so that collecting matches allocates nothing but the result. A query takes the set with
+ * forThread, adds ranks and empties it with drain, which clears only the words between the
+ * lowest and highest rank added.
+ */
+final class ScratchRankSet {
+    private static final ThreadLocal<ScratchRankSet> OF_THREAD = ThreadLocal.withInitial(ScratchRankSet::new);
+
+    private long[] words = new long[0];
+    private int low = Integer.MAX_VALUE;
+    private int high = -1;
+    private int count;
+
+    /** The empty set of the calling thread, able to hold ranks in [0, capacity). */
+    static ScratchRankSet forThread(int capacity) {
+        ScratchRankSet set = OF_THREAD.get();
+        int words = (capacity + 63) >>> 6;
+        if (set.count > 0) {
+            // left over by a query that failed before draining
+            set.clear();
+        }
+        if (set.words.length < words) {
+            set.words = new long[words];
+        }
+        return set;
+    }
+
+    void add(int rank) {
+        int word = rank >>> 6;
+        long bit = 1L << rank;
+        long bits = words[word];
+        if ((bits & bit) == 0) {
+            words[word] = bits | bit;
+            count++;
+            low = Math.min(low, word);
+            high = Math.max(high, word);
+        }
+    }
+
+    /** The values of the ranks added, in alphabetical order, leaving the set empty. */
+    List<String> drain(StringDictionary dictionary, int[] codesByRank) {
+        List<String> values = new ArrayList<>(count);
+        for (int word = low; word <= high; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                values.add(dictionary.decode(codesByRank[(word << 6) + Long.numberOfTrailingZeros(bits)]));
+                bits &= bits - 1;
+            }
+        }
+        clear();
+        return values;
+    }
+
+    private void clear() {
+        for (int word = low; word <= high; word++) {
+            words[word] = 0;
+        }
+        low = Integer.MAX_VALUE;
+        high = -1;
+        count = 0;
+    }
+}
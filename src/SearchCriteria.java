@@ -0,0 +1,25 @@
+/**
+ * The three criteria of one searchCourses query, for running many searches in one batch.
+ */
+public class SearchCriteria {
+    final String courseSubject;
+    final double percentAudited;
+    final double totalCourseHours;
+
+    /**
+     * @param courseSubject part of the course subject, matched case insensitively
+     * @param percentAudited the least percent audited
+     * @param totalCourseHours the most total course hours (thousands)
+     */
+    public SearchCriteria(String courseSubject, double percentAudited, double totalCourseHours) {
+        this.courseSubject = courseSubject;
+        this.percentAudited = percentAudited;
+        this.totalCourseHours = totalCourseHours;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCriteria{courseSubject=" + courseSubject + ", percentAudited=" + percentAudited
+            + ", totalCourseHours=" + totalCourseHours + '}';
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Out-of-core storage of the columns OutOfCoreAnalyzer reads: the dataset is cut into segments
+ * of SEGMENT_ROWS rows, written one after the other to a file and memory-mapped back one at a
+ * time, so the heap only ever holds one segment's strings however large the dataset is.
+ * <pre>
+ * segment (little endian): row count,
+ *          institution, subject and title as a segment-local dictionary (count, then UTF-8 length
+ *          and bytes per value) followed by one int code per row,
+ *          participants, audited and certified as int per row, totalHours as double per row
+ * </pre>
+ */
+class SegmentStore implements Closeable {
+    static final int SEGMENT_ROWS = 1 << 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    // start offset of every segment, and the file size at the end
+    private final List<Long> offsets = new ArrayList<>();
+    private long rows;
+
+    /** One mapped segment; the numeric columns are views of the mapping, not copies. */
+    static class Segment {
+        final int rows;
+        final String[] institutions;
+        final IntBuffer institution;
+        final String[] subjects;
+        final IntBuffer subject;
+        final String[] titles;
+        final IntBuffer title;
+        final IntBuffer participants;
+        final IntBuffer audited;
+        final IntBuffer certified;
+        final DoubleBuffer totalHours;
+
+        Segment(ByteBuffer in) {
+            rows = in.getInt();
+            institutions = strings(in);
+            institution = ints(in, rows);
+            subjects = strings(in);
+            subject = ints(in, rows);
+            titles = strings(in);
+            title = ints(in, rows);
+            participants = ints(in, rows);
+            audited = ints(in, rows);
+            certified = ints(in, rows);
+            totalHours = in.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().limit(rows);
+        }
+
+        private static String[] strings(ByteBuffer in) {
+            String[] values = new String[in.getInt()];
+            for (int i = 0; i < values.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+
+        private static IntBuffer ints(ByteBuffer in, int rows) {
+            IntBuffer view = in.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().limit(rows);
+            in.position(in.position() + 4 * rows);
+            return view;
+        }
+    }
+
+    /** A store in file, which is created or truncated. */
+    SegmentStore(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        offsets.add(0L);
+    }
+
+    /** Appends the records of csv (header included) as segments. */
+    void load(Reader in) throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(in)) {
+            csv.nextRecord(); // header
+            SegmentBuilder builder = new SegmentBuilder();
+            while (csv.nextRecord()) {
+                builder.add(csv);
+                if (builder.rows == SEGMENT_ROWS) {
+                    write(builder);
+                    builder = new SegmentBuilder();
+                }
+            }
+            if (builder.rows > 0) {
+                write(builder);
+            }
+        }
+    }
+
+    private void write(SegmentBuilder builder) throws IOException {
+        ByteBuffer out = builder.encode();
+        long offset = offsets.get(offsets.size() - 1);
+        while (out.hasRemaining()) {
+            offset += channel.write(out, offset);
+        }
+        offsets.add(offset);
+        rows += builder.rows;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    int segments() {
+        return offsets.size() - 1;
+    }
+
+    /** Maps segment i; the mapping is released once the segment is no longer referenced. */
+    Segment segment(int i) throws IOException {
+        long start = offsets.get(i);
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, offsets.get(i + 1) - start);
+        return new Segment(mapped.order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /** Closes and deletes the store file. */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    // the segment being parsed, in heap until it is written
+    private static class SegmentBuilder {
+        final StringDictionary institutions = new StringDictionary();
+        final StringDictionary subjects = new StringDictionary();
+        final StringDictionary titles = new StringDictionary();
+        final int[] institution = new int[SEGMENT_ROWS];
+        final int[] subject = new int[SEGMENT_ROWS];
+        final int[] title = new int[SEGMENT_ROWS];
+        final int[] participants = new int[SEGMENT_ROWS];
+        final int[] audited = new int[SEGMENT_ROWS];
+        final int[] certified = new int[SEGMENT_ROWS];
+        final double[] totalHours = new double[SEGMENT_ROWS];
+        int rows;
+
+        // numbers first, so a record that does not parse leaves no strings behind
+        void add(CsvTokenizer csv) {
+            participants[rows] = csv.intField(8);
+            audited[rows] = csv.intField(9);
+            certified[rows] = csv.intField(10);
+            totalHours[rows] = csv.doubleField(17);
+            institution[rows] = institutions.encode(csv.field(0));
+            subject[rows] = subjects.encode(csv.field(5));
+            title[rows] = titles.encode(csv.field(3));
+            rows++;
+        }
+
+        ByteBuffer encode() {
+            byte[][] institutionBytes = utf8(institutions);
+            byte[][] subjectBytes = utf8(subjects);
+            byte[][] titleBytes = utf8(titles);
+            long size = 4 + length(institutionBytes) + length(subjectBytes) + length(titleBytes) + 32L * rows;
+            ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(size)).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(rows);
+            putStrings(out, institutionBytes);
+            out.asIntBuffer().put(institution, 0, rows);
+            out.position(out.position() + 4 * rows);
+            putStrings(out, subjectBytes);
+            out.asIntBuffer().put(subject, 0, rows);
+            out.position(out.position() + 4 * rows);
+            putStrings(out, titleBytes);
+            for (int[] column : new int[][] {title, participants, audited, certified}) {
+                out.asIntBuffer().put(column, 0, rows);
+                out.position(out.position() + 4 * rows);
+            }
+            out.asDoubleBuffer().put(totalHours, 0, rows);
+            out.position(out.position() + 8 * rows);
+            out.flip();
+            return out;
+        }
+
+        private static byte[][] utf8(StringDictionary dictionary) {
+            byte[][] values = new byte[dictionary.size()][];
+            for (int code = 0; code < values.length; code++) {
+                values[code] = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+
+        private static long length(byte[][] values) {
+            long length = 4;
+            for (byte[] value : values) {
+                length += 4 + value.length;
+            }
+            return length;
+        }
+
+        private static void putStrings(ByteBuffer out, byte[][] values) {
+            out.putInt(values.length);
+            for (byte[] value : values) {
+                out.putInt(value.length);
+                out.put(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * The streaming sketches behind ApproximateAnalytics, kept up to date as rows are appended:
+ * Space-Saving heavy hitters of participants per institution and per (institution code, subject
+ * code) pair, HyperLogLog counts of the distinct titles and instructors of every institution,
+ * and t-digests of the total course hours and median age of all course runs.
+ * Every sketch has a fixed size, independent of the number of rows.
+ */
+class Sketches {
+    static final int HEAVY_HITTER_COUNTERS = 1024;
+    static final double DIGEST_COMPRESSION = 200;
+
+    private final CourseTable table;
+    final SpaceSaving participantsByInstitution;
+    final SpaceSaving participantsByInstitutionAndSubject;
+    // indexed by institution code
+    HyperLogLog[] titlesByInstitution;
+    HyperLogLog[] instructorsByInstitution;
+    final TDigest totalHours;
+    final TDigest medianAge;
+
+    Sketches(CourseTable table) {
+        this.table = table;
+        participantsByInstitution = new SpaceSaving(HEAVY_HITTER_COUNTERS);
+        participantsByInstitutionAndSubject = new SpaceSaving(HEAVY_HITTER_COUNTERS);
+        titlesByInstitution = new HyperLogLog[0];
+        instructorsByInstitution = new HyperLogLog[0];
+        totalHours = new TDigest(DIGEST_COMPRESSION);
+        medianAge = new TDigest(DIGEST_COMPRESSION);
+        addRows(0, table.size);
+    }
+
+    /** A copy of other over table, a copy of the table of other, for adding rows without affecting other. */
+    Sketches(Sketches other, CourseTable table) {
+        this.table = table;
+        participantsByInstitution = new SpaceSaving(other.participantsByInstitution);
+        participantsByInstitutionAndSubject = new SpaceSaving(other.participantsByInstitutionAndSubject);
+        titlesByInstitution = copy(other.titlesByInstitution);
+        instructorsByInstitution = copy(other.instructorsByInstitution);
+        totalHours = new TDigest(other.totalHours);
+        medianAge = new TDigest(other.medianAge);
+    }
+
+    private static HyperLogLog[] copy(HyperLogLog[] sketches) {
+        HyperLogLog[] copy = new HyperLogLog[sketches.length];
+        for (int i = 0; i < sketches.length; i++) {
+            copy[i] = sketches[i] == null ? null : new HyperLogLog(sketches[i]);
+        }
+        return copy;
+    }
+
+    /** Adds the rows [from, to) of the table to the sketches. */
+    void addRows(int from, int to) {
+        CourseTable t = this.table;
+        int institutions = t.institutions.size();
+        if (institutions > titlesByInstitution.length) {
+            titlesByInstitution = Arrays.copyOf(titlesByInstitution, institutions);
+            instructorsByInstitution = Arrays.copyOf(instructorsByInstitution, institutions);
+        }
+        for (int row = from; row < to; row++) {
+            int institution = t.institution[row];
+            long participants = Math.max(0, t.participants[row]);
+            participantsByInstitution.add(institution, participants);
+            participantsByInstitutionAndSubject.add(LongIntHashMap.compositeKey(institution, t.subject[row]), participants);
+            if (titlesByInstitution[institution] == null) {
+                titlesByInstitution[institution] = new HyperLogLog();
+                instructorsByInstitution[institution] = new HyperLogLog();
+            }
+            titlesByInstitution[institution].addHash(HyperLogLog.hash(t.title[row]));
+            for (int name : t.instructorNameCodes[t.instructor[row]]) {
+                instructorsByInstitution[institution].addHash(HyperLogLog.hash(name));
+            }
+            totalHours.add(t.totalHours[row]);
+            medianAge.add(t.medianAge[row]);
+        }
+        // compressed, so that readers of a published version only ever read the digests
+        totalHours.compress();
+        medianAge.compress();
+    }
+}
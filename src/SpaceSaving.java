@@ -0,0 +1,137 @@
+/**
+ * The weighted Space-Saving heavy hitter sketch (Metwally et al.) over long keys: a fixed number
+ * of counters, each holding a key, its estimated weight and the most that estimate may exceed
+ * the true weight. A key without a counter takes over the smallest one.
+ * <p>
+ * Every estimate is at least the true weight of its key and at most total() / capacity more;
+ * every key weighing more than total() / capacity holds a counter. While there are at most
+ * capacity distinct keys every estimate is exact. The counters are kept in a binary min-heap,
+ * so an update costs O(log capacity).
+ */
+class SpaceSaving {
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // key -> heap slot + 1, so that 0 means no counter
+    private final LongIntHashMap slots;
+    private int size;
+    private long total;
+
+    SpaceSaving(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        slots = new LongIntHashMap(capacity);
+    }
+
+    /** A copy of other that can be updated without affecting other. */
+    SpaceSaving(SpaceSaving other) {
+        keys = other.keys.clone();
+        counts = other.counts.clone();
+        errors = other.errors.clone();
+        slots = new LongIntHashMap(other.slots);
+        size = other.size;
+        total = other.total;
+    }
+
+    /** Adds weight, which must not be negative, to key. */
+    void add(long key, long weight) {
+        total += weight;
+        int slot = slots.get(key) - 1;
+        if (slot >= 0) {
+            counts[slot] += weight;
+            siftDown(slot);
+        } else if (size < keys.length) {
+            slot = size++;
+            keys[slot] = key;
+            counts[slot] = weight;
+            errors[slot] = 0;
+            slots.put(key, slot + 1);
+            siftUp(slot);
+        } else {
+            // the key replaces the one with the smallest count, inheriting that count as error
+            slots.remove(keys[0]);
+            keys[0] = key;
+            errors[0] = counts[0];
+            counts[0] += weight;
+            slots.put(key, 1);
+            siftDown(0);
+        }
+    }
+
+    /** The sum of all weights added. */
+    long total() {
+        return total;
+    }
+
+    /** The bound on how much any estimate may exceed the true weight. */
+    long maxError() {
+        return size < keys.length ? 0 : counts[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long keyAt(int i) {
+        return keys[i];
+    }
+
+    /** The estimated weight of the key at i, i in [0, size()). */
+    long countAt(int i) {
+        return counts[i];
+    }
+
+    /** How much countAt(i) may exceed the true weight of the key at i. */
+    long errorAt(int i) {
+        return errors[i];
+    }
+
+    /** The estimated weight of key, 0 when it has no counter (its true weight is then at most maxError()). */
+    long estimate(long key) {
+        int slot = slots.get(key) - 1;
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (counts[parent] <= counts[slot]) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[slot] <= counts[child]) {
+                return;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        long count = counts[a];
+        long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        slots.put(keys[a], a + 1);
+        slots.put(keys[b], b + 1);
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A group table from string keys to double values, combined with an associative function
+ * such as sum or max, that spills to disk instead of outgrowing the heap. Once it holds
+ * maxEntries groups, every group is written to one of PARTITIONS files chosen by the hash
+ * of its key and the table starts over; at the end each partition is read back and combined
+ * on its own, so at most about (distinct keys / PARTITIONS) groups are in memory at a time.
+ */
+class SpillingGroupTable implements Closeable {
+    static final int PARTITIONS = 64;
+
+    private final Path directory;
+    private final int maxEntries;
+    private final DoubleBinaryOperator combine;
+    private Map<String, double[]> groups = new HashMap<>();
+    // created by the first spill
+    private Path[] partitionFiles;
+    private DataOutputStream[] partitions;
+    private long spilled;
+
+    SpillingGroupTable(Path directory, int maxEntries, DoubleBinaryOperator combine) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.combine = combine;
+    }
+
+    void add(String key, double value) throws IOException {
+        double[] group = groups.get(key);
+        if (group != null) {
+            group[0] = combine.applyAsDouble(group[0], value);
+            return;
+        }
+        if (groups.size() >= maxEntries) {
+            spill();
+        }
+        groups.put(key, new double[] {value});
+    }
+
+    /** Groups written to disk so far. */
+    long spilled() {
+        return spilled;
+    }
+
+    private void spill() throws IOException {
+        if (partitions == null) {
+            partitionFiles = new Path[PARTITIONS];
+            partitions = new DataOutputStream[PARTITIONS];
+            for (int p = 0; p < PARTITIONS; p++) {
+                partitionFiles[p] = Files.createTempFile(directory, "groups-" + p + "-", ".spill");
+                partitions[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partitionFiles[p])));
+            }
+        }
+        for (Map.Entry<String, double[]> group : groups.entrySet()) {
+            DataOutputStream out = partitions[partition(group.getKey())];
+            out.writeUTF(group.getKey());
+            out.writeDouble(group.getValue()[0]);
+        }
+        spilled += groups.size();
+        groups = new HashMap<>();
+    }
+
+    private static int partition(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % PARTITIONS;
+    }
+
+    /** Passes every group with its combined value to action, in no particular order; ends the table. */
+    void forEach(ObjDoubleConsumer<String> action) throws IOException {
+        if (partitions == null) {
+            groups.forEach((key, group) -> action.accept(key, group[0]));
+            groups = new HashMap<>();
+            return;
+        }
+        spill();
+        for (DataOutputStream out : partitions) {
+            out.close();
+        }
+        for (Path file : partitionFiles) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                while (true) {
+                    String key;
+                    try {
+                        key = in.readUTF();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    double value = in.readDouble();
+                    groups.merge(key, new double[] {value}, (group, added) -> {
+                        group[0] = combine.applyAsDouble(group[0], added[0]);
+                        return group;
+                    });
+                }
+            }
+            Files.delete(file);
+            groups.forEach((key, group) -> action.accept(key, group[0]));
+            groups = new HashMap<>();
+        }
+        partitions = null;
+        partitionFiles = null;
+    }
+
+    /** Deletes the partition files that are left. */
+    @Override
+    public void close() throws IOException {
+        if (partitions == null) {
+            return;
+        }
+        for (int p = 0; p < PARTITIONS; p++) {
+            partitions[p].close();
+            Files.deleteIfExists(partitionFiles[p]);
+        }
+        partitions = null;
+        partitionFiles = null;
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int codes (0, 1, 2, ...) to distinct strings in order of first appearance.
+ * Codes are stable: once assigned, a string keeps its code for the lifetime of the dictionary.
+ */
+class StringDictionary {
+    // concurrent, since an extension may add codes while readers of this dictionary look values up
+    private final Map<String, Integer> codes;
+    private String[] values;
+    private int size;
+    // whether an extension shares codes and values, so this dictionary must not encode any more
+    private boolean extended;
+    // computed on demand, possibly by concurrent readers of a published dictionary
+    private volatile int[] ranks;
+    private volatile int[] codesByRank;
+
+    StringDictionary() {
+        codes = new ConcurrentHashMap<>();
+        values = new String[16];
+    }
+
+    /**
+     * The values of other, extendable without affecting what other decodes or looks up. The first
+     * extension of a dictionary shares its map and value array and only ever writes past its
+     * size; later extensions of the same dictionary, e.g. after a failed append, copy it.
+     * Extensions of one dictionary must not be created concurrently.
+     */
+    StringDictionary(StringDictionary other) {
+        size = other.size;
+        ranks = other.ranks;
+        codesByRank = other.codesByRank;
+        if (!other.extended) {
+            other.extended = true;
+            codes = other.codes;
+            values = other.values;
+        } else {
+            codes = new ConcurrentHashMap<>();
+            values = Arrays.copyOf(other.values, other.values.length);
+            for (int code = 0; code < size; code++) {
+                codes.put(values[code], code);
+            }
+        }
+    }
+
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /** Returns the code of value, or -1 if it has never been encoded. */
+    int codeOf(String value) {
+        Integer code = codes.get(value);
+        // a code an extension has added is not one of ours
+        return code == null || code >= size ? -1 : code;
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the alphabetical rank of every code: ranks()[a] < ranks()[b] exactly when
+     * decode(a).compareTo(decode(b)) < 0. Computed once and reused until new values are encoded.
+     */
+    int[] ranks() {
+        int[] current = ranks;
+        if (current != null && current.length == size) {
+            return current;
+        }
+        Integer[] codesInOrder = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            codesInOrder[i] = i;
+        }
+        String[] strings = values;
+        Arrays.sort(codesInOrder, (a, b) -> strings[a].compareTo(strings[b]));
+        current = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            current[codesInOrder[rank]] = rank;
+        }
+        ranks = current;
+        return current;
+    }
+
+    /**
+     * Returns the codes in alphabetical order of their values, the inverse of ranks().
+     * Computed once and reused until new values are encoded.
+     */
+    int[] codesByRank() {
+        int[] current = codesByRank;
+        if (current != null && current.length == size) {
+            return current;
+        }
+        int[] ranks = ranks();
+        current = new int[ranks.length];
+        for (int code = 0; code < ranks.length; code++) {
+            current[ranks[code]] = code;
+        }
+        codesByRank = current;
+        return current;
+    }
+
+    /**
+     * Encodes every value of other into this dictionary.
+     * @return an array mapping the codes of other to the codes of this dictionary
+     */
+    int[] encodeAll(StringDictionary other) {
+        int[] remap = new int[other.size];
+        for (int i = 0; i < other.size; i++) {
+            remap[i] = encode(other.values[i]);
+        }
+        return remap;
+    }
+
+    /**
+     * Estimated heap footprint with compressed oops: the value array, every string with its
+     * Latin-1 byte array, and a HashMap node, table slot and boxed code per entry.
+     */
+    long estimatedHeapBytes() {
+        long bytes = 16 + 4L * values.length;
+        for (int i = 0; i < size; i++) {
+            bytes += 24 + 16 + values[i].length() + 32 + 4 + 16;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.Arrays;
+
+/**
+ * A merging t-digest (Dunning and Ertl) summarizing a distribution of doubles in at most about
+ * 2 * compression centroids. Added values are buffered and merged into the centroids by compress,
+ * using the arcsine scale function, so centroids are small near the tails and quantiles there
+ * are the most accurate: the rank error is roughly proportional to sqrt(q * (1 - q)) / compression.
+ * compress must be called after adding and before querying; a compressed digest is only read by
+ * quantile and cdf, so it can be shared between threads.
+ */
+class TDigest {
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] buffer;
+    private int buffered;
+    private double total;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 8;
+        means = new double[capacity];
+        weights = new double[capacity];
+        buffer = new double[capacity * 4];
+    }
+
+    /** A copy of other that can be updated without affecting other. */
+    TDigest(TDigest other) {
+        compression = other.compression;
+        means = other.means.clone();
+        weights = other.weights.clone();
+        centroids = other.centroids;
+        buffer = other.buffer.clone();
+        buffered = other.buffered;
+        total = other.total;
+        min = other.min;
+        max = other.max;
+    }
+
+    /** Adds value; NaN is ignored. */
+    void add(double value) {
+        if (value != value) {
+            return;
+        }
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+    }
+
+    /** Merges the buffered values into the centroids. */
+    void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        min = Math.min(min, buffer[0]);
+        max = Math.max(max, buffer[buffered - 1]);
+        double newTotal = total + buffered;
+        double[] mergedMeans = new double[means.length];
+        double[] mergedWeights = new double[weights.length];
+        int merged = 0;
+        // the weight of the centroids before the one being filled, and the most weight the
+        // centroids up to and including it may have
+        double before = 0;
+        double limit = 0;
+        int c = 0;
+        int b = 0;
+        while (c < centroids || b < buffered) {
+            double mean;
+            double weight;
+            if (b == buffered || (c < centroids && means[c] <= buffer[b])) {
+                mean = means[c];
+                weight = weights[c++];
+            } else {
+                mean = buffer[b++];
+                weight = 1;
+            }
+            if (merged > 0 && before + mergedWeights[merged - 1] + weight <= limit) {
+                int last = merged - 1;
+                mergedWeights[last] += weight;
+                mergedMeans[last] += (mean - mergedMeans[last]) * weight / mergedWeights[last];
+            } else {
+                if (merged > 0) {
+                    before += mergedWeights[merged - 1];
+                }
+                if (merged == mergedMeans.length) {
+                    mergedMeans = Arrays.copyOf(mergedMeans, merged * 2);
+                    mergedWeights = Arrays.copyOf(mergedWeights, merged * 2);
+                }
+                mergedMeans[merged] = mean;
+                mergedWeights[merged] = weight;
+                merged++;
+                limit = newTotal * quantileOfScale(scale(before / newTotal) + 1);
+            }
+        }
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroids = merged;
+        total = newTotal;
+        buffered = 0;
+    }
+
+    // the arcsine scale function k1, a centroid may span at most 1 of its units
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    // the inverse of scale
+    private double quantileOfScale(double k) {
+        return (Math.sin(Math.min(Math.PI / 2, k * 2 * Math.PI / compression)) + 1) / 2;
+    }
+
+    /** The number of values added. */
+    long size() {
+        return (long) total;
+    }
+
+    /**
+     * The estimated value at quantile q in [0, 1], interpolating between the centroid means,
+     * or NaN when the digest is empty.
+     */
+    double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile out of [0, 1]: " + q);
+        }
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        double target = q * total;
+        // each centroid is taken to sit at the middle of its weight
+        double center = weights[0] / 2;
+        if (target <= center) {
+            return weights[0] == 1 ? means[0] : min + (means[0] - min) * (target / center);
+        }
+        for (int i = 0; i + 1 < centroids; i++) {
+            double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+            if (target <= nextCenter) {
+                return means[i] + (means[i + 1] - means[i]) * (target - center) / (nextCenter - center);
+            }
+            center = nextCenter;
+        }
+        int last = centroids - 1;
+        return weights[last] == 1 ? means[last] : means[last] + (max - means[last]) * (target - center) / (total - center);
+    }
+
+    /** The estimated fraction of the values that are at most value. */
+    double cdf(double value) {
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value >= max) {
+            return 1;
+        }
+        double center = weights[0] / 2;
+        if (value < means[0]) {
+            return center * (value - min) / (means[0] - min) / total;
+        }
+        for (int i = 0; i + 1 < centroids; i++) {
+            double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+            if (value < means[i + 1]) {
+                return (center + (nextCenter - center) * (value - means[i]) / (means[i + 1] - means[i])) / total;
+            }
+            center = nextCenter;
+        }
+        int last = centroids - 1;
+        return (center + (total - center) * (value - means[last]) / (max - means[last])) / total;
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the best k distinct keys out of a stream of (key, score, tieRank) offers in a
+ * bounded binary heap, so selecting from n offers costs O(n log k).
+ * A key is kept at most once, with its best score; higher scores are better, and equal
+ * scores are ordered by ascending tieRank. Keys are codes in [0, keySpace), in this
+ * analyzer title codes, with the alphabetical title rank as tieRank.
+ */
+class TopKSelector {
+    // heap slots, the worst entry is at slot 0
+    private final int[] keys;
+    private final double[] scores;
+    private final int[] tieRanks;
+    // heap slot of every key, or -1 when the key is not in the heap
+    private final int[] slotOfKey;
+    private int size;
+
+    TopKSelector(int k, int keySpace) {
+        int capacity = Math.max(0, Math.min(k, keySpace));
+        keys = new int[capacity];
+        scores = new double[capacity];
+        tieRanks = new int[capacity];
+        slotOfKey = new int[keySpace];
+        Arrays.fill(slotOfKey, -1);
+    }
+
+    void offer(int key, double score, int tieRank) {
+        int slot = slotOfKey[key];
+        if (slot >= 0) {
+            // the key is already selected, keep whichever offer is better
+            if (better(score, tieRank, scores[slot], tieRanks[slot])) {
+                scores[slot] = score;
+                siftDown(slot);
+            }
+            return;
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            scores[size] = score;
+            tieRanks[size] = tieRank;
+            slotOfKey[key] = size;
+            siftUp(size++);
+        } else if (size > 0 && better(score, tieRank, scores[0], tieRanks[0])) {
+            slotOfKey[keys[0]] = -1;
+            keys[0] = key;
+            scores[0] = score;
+            tieRanks[0] = tieRank;
+            slotOfKey[key] = 0;
+            siftDown(0);
+        }
+    }
+
+    /** Offers every selected entry of other, e.g. the result of another partition. */
+    void merge(TopKSelector other) {
+        for (int slot = 0; slot < other.size; slot++) {
+            offer(other.keys[slot], other.scores[slot], other.tieRanks[slot]);
+        }
+    }
+
+    /** Empties the selector so it can be reused, in O(k). */
+    void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            slotOfKey[keys[slot]] = -1;
+        }
+        size = 0;
+    }
+
+    /** Returns the selected keys, best first. The selector is empty afterwards. */
+    int[] drainBestFirst() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = keys[0];
+            slotOfKey[keys[0]] = -1;
+            size--;
+            if (size > 0) {
+                move(size, 0);
+                siftDown(0);
+            }
+        }
+        return result;
+    }
+
+    private static boolean better(double score, int tieRank, double otherScore, int otherTieRank) {
+        int compare = Double.compare(score, otherScore);
+        return compare > 0 || (compare == 0 && tieRank < otherTieRank);
+    }
+
+    private boolean better(int slot, int otherSlot) {
+        return better(scores[slot], tieRanks[slot], scores[otherSlot], tieRanks[otherSlot]);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!better(parent, slot)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && better(worst, left)) {
+                worst = left;
+            }
+            if (right < size && better(worst, right)) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        scores[to] = scores[from];
+        tieRanks[to] = tieRanks[from];
+        slotOfKey[keys[to]] = to;
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        double score = scores[a];
+        int tieRank = tieRanks[a];
+        move(b, a);
+        keys[b] = key;
+        scores[b] = score;
+        tieRanks[b] = tieRank;
+        slotOfKey[key] = b;
+    }
+}
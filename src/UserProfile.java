@@ -0,0 +1,24 @@
+/**
+ * The user attributes recommendCourses compares the course audiences with.
+ */
+public class UserProfile {
+    final int age;
+    final int gender;
+    final int isBachelorOrHigher;
+
+    /**
+     * @param age age of the user
+     * @param gender 0-female, 1-male
+     * @param isBachelorOrHigher 0-Not get bachelor degree, 1- Bachelor degree or higher
+     */
+    public UserProfile(int age, int gender, int isBachelorOrHigher) {
+        this.age = age;
+        this.gender = gender;
+        this.isBachelorOrHigher = isBachelorOrHigher;
+    }
+
+    @Override
+    public String toString() {
+        return "UserProfile{age=" + age + ", gender=" + gender + ", isBachelorOrHigher=" + isBachelorOrHigher + '}';
+    }
+}
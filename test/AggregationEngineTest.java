@@ -0,0 +1,259 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OnlineCoursesAnalyzer.aggregate against a brute-force group-by over the loaded courses:
+ * every aggregate function, composite keys, each kind of filter, and order and limit.
+ */
+public class AggregationEngineTest {
+    private static OnlineCoursesAnalyzer analyzer;
+    private static List<Course> courses;
+
+    @BeforeAll
+    static void setUp() {
+        analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        courses = analyzer.courses();
+    }
+
+    // the value of column in course, typed as in an aggregation result
+    private static Object value(Course c, CourseColumn column) {
+        switch (column) {
+            case INSTITUTION: return c.institution;
+            case NUMBER: return c.number;
+            case LAUNCH_DATE: return c.launchDate;
+            case LAUNCH_YEAR: return c.launchDate.getYear();
+            case TITLE: return c.title;
+            case INSTRUCTORS: return c.instructors;
+            case SUBJECT: return c.subject;
+            case YEAR: return c.year;
+            case HONOR_CODE: return c.honorCode;
+            case PARTICIPANTS: return c.participants;
+            case AUDITED: return c.audited;
+            case CERTIFIED: return c.certified;
+            case PERCENT_AUDITED: return c.percentAudited;
+            case PERCENT_CERTIFIED: return c.percentCertified;
+            case PERCENT_CERTIFIED_50: return c.percentCertified50;
+            case PERCENT_VIDEO: return c.percentVideo;
+            case PERCENT_FORUM: return c.percentForum;
+            case GRADE_HIGHER_ZERO: return c.gradeHigherZero;
+            case TOTAL_HOURS: return c.totalHours;
+            case MEDIAN_HOURS_CERTIFICATION: return c.medianHoursCertification;
+            case MEDIAN_AGE: return c.medianAge;
+            case PERCENT_MALE: return c.percentMale;
+            case PERCENT_FEMALE: return c.percentFemale;
+            default: return c.percentDegree;
+        }
+    }
+
+    private static double number(Course c, CourseColumn column) {
+        return ((Number) value(c, column)).doubleValue();
+    }
+
+    /** One aggregate of the brute-force query. */
+    private interface Reducer {
+        Object reduce(List<Course> group);
+    }
+
+    private static Reducer count() {
+        return group -> (long) group.size();
+    }
+
+    private static Reducer sum(CourseColumn column) {
+        if (column.isIntValued()) {
+            return group -> group.stream().mapToLong(c -> (Integer) value(c, column)).sum();
+        }
+        return group -> group.stream().mapToDouble(c -> number(c, column)).sum();
+    }
+
+    private static Reducer avg(CourseColumn column) {
+        return group -> group.stream().mapToDouble(c -> number(c, column)).sum() / group.size();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Reducer extreme(CourseColumn column, boolean max) {
+        return group -> {
+            Comparable best = null;
+            for (Course c : group) {
+                Comparable v = (Comparable) value(c, column);
+                if (best == null || (max ? v.compareTo(best) > 0 : v.compareTo(best) < 0)) {
+                    best = v;
+                }
+            }
+            return best;
+        };
+    }
+
+    private static Reducer percentile(CourseColumn column, double p) {
+        return group -> {
+            double[] values = group.stream().mapToDouble(c -> number(c, column)).sorted().toArray();
+            int rank = (int) Math.max(1, Math.ceil(p / 100 * values.length));
+            return values[rank - 1];
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<List<Object>> bruteForce(List<Course> rows, List<CourseColumn> keys, Predicate<Course> filter,
+                                                 List<Reducer> reducers, Comparator<List<Object>> order, int limit) {
+        Map<List<Object>, List<Course>> groups = new HashMap<>();
+        for (Course c : rows) {
+            if (filter.test(c)) {
+                List<Object> key = new ArrayList<>();
+                for (CourseColumn column : keys) {
+                    key.add(value(c, column));
+                }
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(c);
+            }
+        }
+        List<List<Object>> result = new ArrayList<>();
+        groups.forEach((key, group) -> {
+            List<Object> row = new ArrayList<>(key);
+            for (Reducer reducer : reducers) {
+                row.add(reducer.reduce(group));
+            }
+            result.add(row);
+        });
+        Comparator<List<Object>> byKeys = (a, b) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                int compare = ((Comparable) a.get(i)).compareTo(b.get(i));
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return 0;
+        };
+        result.sort(order == null ? byKeys : order.thenComparing(byKeys));
+        return result.subList(0, Math.min(limit, result.size()));
+    }
+
+    private static void assertRowsEqual(List<List<Object>> expected, AggregationResult actual) {
+        assertEquals(expected.size(), actual.size(), actual.toString());
+        for (int r = 0; r < expected.size(); r++) {
+            List<Object> want = expected.get(r);
+            List<Object> got = actual.rows().get(r);
+            assertEquals(want.size(), got.size());
+            for (int i = 0; i < want.size(); i++) {
+                if (want.get(i) instanceof Double) {
+                    double w = (Double) want.get(i);
+                    assertEquals(w, (Double) got.get(i), 1e-9 * Math.max(1, Math.abs(w)), "row " + r + " column " + i);
+                } else {
+                    assertEquals(want.get(i), got.get(i), "row " + r + " column " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAllFunctionsOverCompositeKey() {
+        List<CourseColumn> keys = List.of(CourseColumn.INSTITUTION, CourseColumn.SUBJECT);
+        AggregationResult result = analyzer.aggregate(Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+            .count()
+            .sum(CourseColumn.PARTICIPANTS).sum(CourseColumn.TOTAL_HOURS)
+            .avg(CourseColumn.CERTIFIED).avg(CourseColumn.MEDIAN_AGE)
+            .min(CourseColumn.AUDITED).max(CourseColumn.PERCENT_FEMALE)
+            .min(CourseColumn.LAUNCH_DATE).max(CourseColumn.LAUNCH_DATE)
+            .percentile(CourseColumn.TOTAL_HOURS, 50).percentile(CourseColumn.PARTICIPANTS, 90)
+            .percentile(CourseColumn.MEDIAN_AGE, 100));
+        assertEquals(List.of("institution", "subject", "count", "sum(participants)", "sum(totalHours)",
+            "avg(certified)", "avg(medianAge)", "min(audited)", "max(percentFemale)", "min(launchDate)",
+            "max(launchDate)", "p50(totalHours)", "p90(participants)", "p100(medianAge)"), result.columns());
+        assertRowsEqual(bruteForce(courses, keys, c -> true, List.of(count(),
+            sum(CourseColumn.PARTICIPANTS), sum(CourseColumn.TOTAL_HOURS),
+            avg(CourseColumn.CERTIFIED), avg(CourseColumn.MEDIAN_AGE),
+            extreme(CourseColumn.AUDITED, false), extreme(CourseColumn.PERCENT_FEMALE, true),
+            extreme(CourseColumn.LAUNCH_DATE, false), extreme(CourseColumn.LAUNCH_DATE, true),
+            percentile(CourseColumn.TOTAL_HOURS, 50), percentile(CourseColumn.PARTICIPANTS, 90),
+            percentile(CourseColumn.MEDIAN_AGE, 100)), null, Integer.MAX_VALUE), result);
+    }
+
+    @Test
+    void testThreeKeysWithDerivedAndDateKeys() {
+        List<CourseColumn> keys = List.of(CourseColumn.LAUNCH_YEAR, CourseColumn.HONOR_CODE, CourseColumn.INSTITUTION);
+        AggregationResult result = analyzer.aggregate(Aggregation.groupBy(
+                CourseColumn.LAUNCH_YEAR, CourseColumn.HONOR_CODE, CourseColumn.INSTITUTION)
+            .count().sum(CourseColumn.CERTIFIED).percentile(CourseColumn.PERCENT_DEGREE, 25));
+        assertRowsEqual(bruteForce(courses, keys, c -> true, List.of(count(), sum(CourseColumn.CERTIFIED),
+            percentile(CourseColumn.PERCENT_DEGREE, 25)), null, Integer.MAX_VALUE), result);
+
+        keys = List.of(CourseColumn.LAUNCH_DATE);
+        result = analyzer.aggregate(Aggregation.groupBy(CourseColumn.LAUNCH_DATE).count());
+        assertRowsEqual(bruteForce(courses, keys, c -> true, List.of(count()), null, Integer.MAX_VALUE), result);
+    }
+
+    @Test
+    void testWithoutKeys() {
+        AggregationResult result = analyzer.aggregate(Aggregation.groupBy().count().sum(CourseColumn.PARTICIPANTS)
+            .max(CourseColumn.TOTAL_HOURS));
+        assertRowsEqual(bruteForce(courses, List.of(), c -> true, List.of(count(), sum(CourseColumn.PARTICIPANTS),
+            extreme(CourseColumn.TOTAL_HOURS, true)), null, Integer.MAX_VALUE), result);
+    }
+
+    @Test
+    void testFilters() {
+        LocalDate from = LocalDate.of(2013, 3, 1);
+        LocalDate to = LocalDate.of(2015, 10, 31);
+        List<CourseColumn> keys = List.of(CourseColumn.SUBJECT, CourseColumn.YEAR);
+        AggregationResult result = analyzer.aggregate(Aggregation.groupBy(CourseColumn.SUBJECT, CourseColumn.YEAR)
+            .count().sum(CourseColumn.PARTICIPANTS).avg(CourseColumn.TOTAL_HOURS)
+            .where(CourseColumn.SUBJECT, s -> s.contains("Science"))
+            .where(CourseColumn.PARTICIPANTS, 1000, 50000)
+            .where(CourseColumn.TOTAL_HOURS, 10, 500)
+            .where(CourseColumn.LAUNCH_DATE, from, to));
+        Predicate<Course> filter = c -> c.subject.contains("Science")
+            && c.participants >= 1000 && c.participants <= 50000
+            && c.totalHours >= 10 && c.totalHours <= 500
+            && !c.launchDate.isBefore(from) && !c.launchDate.isAfter(to);
+        List<List<Object>> expected = bruteForce(courses, keys, filter, List.of(count(), sum(CourseColumn.PARTICIPANTS),
+            avg(CourseColumn.TOTAL_HOURS)), null, Integer.MAX_VALUE);
+        assertFalse(expected.isEmpty());
+        assertRowsEqual(expected, result);
+
+        result = analyzer.aggregate(Aggregation.groupBy(CourseColumn.SUBJECT)
+            .count().whereEquals(CourseColumn.INSTITUTION, "MITx").where(CourseColumn.LAUNCH_YEAR, 2014, 2015));
+        assertRowsEqual(bruteForce(courses, List.of(CourseColumn.SUBJECT),
+            c -> c.institution.equals("MITx") && c.launchDate.getYear() >= 2014 && c.launchDate.getYear() <= 2015,
+            List.of(count()), null, Integer.MAX_VALUE), result);
+    }
+
+    @Test
+    void testOrderAndLimit() {
+        List<CourseColumn> keys = List.of(CourseColumn.INSTITUTION, CourseColumn.SUBJECT);
+        AggregationResult result = analyzer.aggregate(Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+            .count().sum(CourseColumn.PARTICIPANTS)
+            .orderBy("count", true).orderBy("sum(participants)", false).limit(5));
+        Comparator<List<Object>> order = Comparator.<List<Object>, Long>comparing(row -> (Long) row.get(2)).reversed()
+            .thenComparing(row -> (Long) row.get(3));
+        assertRowsEqual(bruteForce(courses, keys, c -> true, List.of(count(), sum(CourseColumn.PARTICIPANTS)),
+            order, 5), result);
+
+        assertEquals(0, analyzer.aggregate(Aggregation.groupBy(CourseColumn.SUBJECT).count().limit(0)).size());
+    }
+
+    @Test
+    void testPercentilesAreExactForLargeGroups() throws IOException {
+        // more rows per group than the 4096 values the percentiles used to be sampled from
+        Path generated = Files.createTempFile("generated", ".csv");
+        generated.toFile().deleteOnExit();
+        DatasetGenerator.generate(Paths.get("resources", "local.csv"), generated, 30_000, 7);
+        OnlineCoursesAnalyzer large = new OnlineCoursesAnalyzer(generated.toString());
+        List<Course> rows = large.courses();
+        List<CourseColumn> keys = List.of(CourseColumn.HONOR_CODE);
+        AggregationResult result = large.aggregate(Aggregation.groupBy(CourseColumn.HONOR_CODE)
+            .count().percentile(CourseColumn.TOTAL_HOURS, 50).percentile(CourseColumn.MEDIAN_AGE, 99)
+            .percentile(CourseColumn.PARTICIPANTS, 1));
+        List<List<Object>> expected = bruteForce(rows, keys, c -> true, List.of(count(),
+            percentile(CourseColumn.TOTAL_HOURS, 50), percentile(CourseColumn.MEDIAN_AGE, 99),
+            percentile(CourseColumn.PARTICIPANTS, 1)), null, Integer.MAX_VALUE);
+        assertTrue(expected.stream().anyMatch(row -> (Long) row.get(1) > 4096));
+        assertRowsEqual(expected, result);
+    }
+}
@@ -0,0 +1,210 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * After append or addCourse, every query must answer like a fresh load of the combined data,
+ * also when its previous answer was cached.
+ */
+public class AppendTest {
+    private static final int HEAD_ROWS = 200;
+    private static final LocalDate FROM = LocalDate.of(2014, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2015, 6, 30);
+
+    private static Path head;
+    private static Path tail;
+    private static OnlineCoursesAnalyzer full;
+    private static List<Object> expected;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        head = Files.createTempFile("head", ".csv");
+        tail = Files.createTempFile("tail", ".csv");
+        Files.write(head, lines.subList(0, HEAD_ROWS + 1), StandardCharsets.UTF_8);
+        List<String> rest = new ArrayList<>();
+        rest.add(lines.get(0));
+        rest.addAll(lines.subList(HEAD_ROWS + 1, lines.size()));
+        Files.write(tail, rest, StandardCharsets.UTF_8);
+        full = new OnlineCoursesAnalyzer("resources/local.csv");
+        expected = answers(full);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        Files.deleteIfExists(head);
+        Files.deleteIfExists(tail);
+    }
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        List<Object> answers = new ArrayList<>();
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInst(FROM, TO).entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInstAndSubject(FROM, TO).entrySet()));
+        answers.add(new ArrayList<>(analyzer.getCourseListOfInstructor().entrySet()));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            answers.add(analyzer.getCourses(10, by));
+            answers.add(analyzer.getCourses(5, 20, by));
+        }
+        answers.add(analyzer.searchCourses("computer", 20.0, 700));
+        answers.add(analyzer.searchCourses("SCIENCE", 25.0, 200));
+        answers.add(analyzer.searchCourses("science", 10.0, 50, FROM, TO));
+        answers.add(analyzer.searchCourses(List.of(new SearchCriteria("e", 0, 400),
+            new SearchCriteria("history", 15.0, 100))));
+        answers.add(analyzer.recommendCourses(30, 0, 1));
+        answers.add(analyzer.recommendCourses(List.of(new UserProfile(25, 1, 0), new UserProfile(50, 0, 1))));
+        AggregationResult aggregate = analyzer.aggregate(Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+            .count().sum(CourseColumn.PARTICIPANTS).max(CourseColumn.TOTAL_HOURS)
+            .orderBy("count", true).limit(15));
+        answers.add(List.of(aggregate.columns(), aggregate.rows()));
+        for (Course c : analyzer.courses()) {
+            answers.add(List.of(c.institution, c.number, c.launchDate, c.title, c.instructors, c.subject, c.year,
+                c.honorCode, c.participants, c.audited, c.certified, c.percentAudited, c.percentCertified,
+                c.percentCertified50, c.percentVideo, c.percentForum, c.gradeHigherZero, c.totalHours,
+                c.medianHoursCertification, c.medianAge, c.percentMale, c.percentFemale, c.percentDegree));
+        }
+        return answers;
+    }
+
+    @Test
+    void testAppendAnswersLikeFreshLoad() throws IOException {
+        for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString(), mode);
+            List<Object> before = answers(analyzer);
+            analyzer.append(tail);
+            assertEquals(expected, answers(analyzer), mode.name());
+            assertNotEquals(before, expected);
+        }
+    }
+
+    @Test
+    void testAddCourseAnswersLikeFreshLoad() {
+        List<Course> courses = full.courses();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString());
+        answers(analyzer);
+        for (Course course : courses.subList(HEAD_ROWS, courses.size())) {
+            analyzer.addCourse(course);
+        }
+        assertEquals(expected, answers(analyzer));
+    }
+
+    @Test
+    void testAppendInSteps() throws IOException {
+        // a course at a time and a file at a time, with queries (and cached answers) in between
+        List<Course> courses = full.courses();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString());
+        answers(analyzer);
+        analyzer.addCourse(courses.get(HEAD_ROWS));
+        answers(analyzer);
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        Path rest = Files.createTempFile("rest", ".csv");
+        try {
+            List<String> restLines = new ArrayList<>();
+            restLines.add(lines.get(0));
+            restLines.addAll(lines.subList(HEAD_ROWS + 2, lines.size()));
+            Files.write(rest, restLines, StandardCharsets.UTF_8);
+            analyzer.append(rest);
+        } finally {
+            Files.delete(rest);
+        }
+        assertEquals(expected, answers(analyzer));
+    }
+
+    private static List<Object> rows(CourseTable table) {
+        List<Object> rows = new ArrayList<>();
+        for (Course c : table.asCourseList()) {
+            rows.add(List.of(c.institution, c.number, c.launchDate, c.title, c.instructors, c.subject, c.participants,
+                c.totalHours));
+        }
+        return rows;
+    }
+
+    @Test
+    void testSingleAppendsShareColumnsAndKeepOlderVersions() {
+        List<Course> courses = full.courses();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString());
+        DatasetVersion first = analyzer.current;
+        List<Object> firstRows = rows(first.table);
+        int firstInstitutions = first.table.institutions.size();
+        Set<int[]> columns = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Course course : courses.subList(HEAD_ROWS, courses.size())) {
+            analyzer.addCourse(course);
+            columns.add(analyzer.current.table.participants);
+        }
+        // the columns are only copied when they grow, to twice their capacity
+        assertTrue(columns.size() <= 2 + Integer.numberOfTrailingZeros(Integer.highestOneBit(courses.size())),
+            columns.size() + " column arrays");
+        assertEquals(HEAD_ROWS, first.table.size);
+        assertEquals(firstRows, rows(first.table));
+        assertEquals(firstInstitutions, first.table.institutions.size());
+        String added = analyzer.current.table.institutions.decode(analyzer.current.table.institutions.size() - 1);
+        if (analyzer.current.table.institutions.size() > firstInstitutions) {
+            assertEquals(-1, first.table.institutions.codeOf(added));
+        }
+        assertEquals(expected, answers(analyzer));
+    }
+
+    @Test
+    void testFailedAddCourseLeavesNoTrace() {
+        List<Course> courses = full.courses();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString());
+        Course course = courses.get(HEAD_ROWS);
+        // encodes its institution and number, then fails on the missing launch date
+        Course broken = new Course("Nowhere University", "X.000", null, "A failed title", "Nobody", "Nothing",
+            2015, 1, 10, 5, 1, 50, 10, 1, 50, 10, 20, 30, 4, 30, 50, 50, 60);
+        assertThrows(RuntimeException.class, () -> analyzer.addCourse(broken));
+        assertEquals(HEAD_ROWS, analyzer.current.table.size);
+        assertEquals(-1, analyzer.current.table.institutions.codeOf("Nowhere University"));
+        for (Course next : courses.subList(HEAD_ROWS, courses.size())) {
+            analyzer.addCourse(next);
+        }
+        assertEquals(-1, analyzer.current.table.institutions.codeOf("Nowhere University"));
+        assertEquals(course.institution, analyzer.current.table.course(HEAD_ROWS).institution);
+        assertEquals(expected, answers(analyzer));
+    }
+
+    @Test
+    void testCachedAnswerIsNotServedAfterAppend() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(head.toString());
+        long version = analyzer.current.version;
+        Object cached = analyzer.getPtcpCountByInst();
+        assertSame(cached, analyzer.getPtcpCountByInst());
+        QueryCache.Stats before = analyzer.cacheStats();
+        assertTrue(before.getEntries() > 0);
+
+        analyzer.append(tail);
+        assertEquals(version + 1, analyzer.current.version);
+        QueryCache.Stats afterAppend = analyzer.cacheStats();
+        assertEquals(before.getInvalidations() + 1, afterAppend.getInvalidations());
+        assertEquals(0, afterAppend.getEntries());
+        assertEquals(full.getPtcpCountByInst(), analyzer.getPtcpCountByInst());
+        assertEquals(before.getMisses() + 1, analyzer.cacheStats().getMisses());
+        assertEquals(before.getHits(), analyzer.cacheStats().getHits());
+
+        Course course = full.courses().get(0);
+        analyzer.addCourse(course);
+        assertEquals(version + 2, analyzer.current.version);
+        Integer participants = analyzer.getPtcpCountByInst().get(course.institution);
+        assertEquals(full.getPtcpCountByInst().get(course.institution) + course.participants, participants);
+
+        AnalyzerMetrics.Snapshot metrics = analyzer.metrics();
+        assertEquals(analyzer.current.table.size, metrics.getRows());
+        assertEquals(analyzer.cacheStats().getMisses(), metrics.getCache().getMisses());
+        assertEquals(analyzer.cacheStats().getInvalidations(), metrics.getCache().getInvalidations());
+    }
+}
@@ -0,0 +1,189 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The estimates of ApproximateAnalytics must be within the error bounds its class comment
+ * documents of the exact answers on local.csv, and each sketch within its own bound on streams
+ * large enough to leave its exact range.
+ */
+public class ApproximateAnalyticsTest {
+    // HyperLogLog: within 3.3% 95% of the time; 5% is more than three standard errors
+    private static final double DISTINCT_TOLERANCE = 0.05;
+    // t-digest: well under 1% of rank
+    private static final double RANK_TOLERANCE = 0.01;
+
+    private static OnlineCoursesAnalyzer analyzer;
+    private static ApproximateAnalytics approximate;
+
+    @BeforeAll
+    static void setUp() {
+        analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        approximate = analyzer.approximate();
+    }
+
+    @Test
+    void testParticipantCountsAreExactBelowCapacity() {
+        assertEquals(0, approximate.ptcpCountByInstMaxError());
+        assertEquals(0, approximate.ptcpCountByInstAndSubjectMaxError());
+        Map<String, Long> byInstitution = new TreeMap<>();
+        analyzer.getPtcpCountByInst().forEach((institution, count) -> byInstitution.put(institution, (long) count));
+        assertEquals(byInstitution, approximate.getPtcpCountByInst());
+
+        Map<String, Long> byPair = new HashMap<>();
+        analyzer.getPtcpCountByInstAndSubject().forEach((pair, count) -> byPair.put(pair, (long) count));
+        assertEquals(byPair, new HashMap<>(approximate.getPtcpCountByInstAndSubject(Integer.MAX_VALUE)));
+        Map<String, Long> top = approximate.getPtcpCountByInstAndSubject(5);
+        assertEquals(5, top.size());
+        long[] sorted = byPair.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        assertArrayEquals(new long[] {sorted[sorted.length - 1], sorted[sorted.length - 2], sorted[sorted.length - 3],
+            sorted[sorted.length - 4], sorted[sorted.length - 5]}, top.values().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Test
+    void testDistinctCounts() {
+        CourseTable t = analyzer.current.table;
+        Map<String, Set<Integer>> titles = new TreeMap<>();
+        Map<String, Set<Integer>> instructors = new TreeMap<>();
+        for (int row = 0; row < t.size; row++) {
+            String institution = t.institutions.decode(t.institution[row]);
+            titles.computeIfAbsent(institution, key -> new HashSet<>()).add(t.title[row]);
+            for (int name : t.instructorNameCodes[t.instructor[row]]) {
+                instructors.computeIfAbsent(institution, key -> new HashSet<>()).add(name);
+            }
+        }
+        assertDistinctCounts(titles, approximate.distinctTitlesByInst());
+        assertDistinctCounts(instructors, approximate.distinctInstructorsByInst());
+    }
+
+    private static void assertDistinctCounts(Map<String, Set<Integer>> exact, Map<String, Long> estimates) {
+        assertEquals(exact.keySet(), estimates.keySet());
+        exact.forEach((institution, values) ->
+            assertEquals(values.size(), estimates.get(institution), values.size() * DISTINCT_TOLERANCE, institution));
+    }
+
+    @Test
+    void testQuantilesAndCdf() {
+        CourseTable t = analyzer.current.table;
+        assertRankErrors(Arrays.copyOf(t.totalHours, t.size), approximate::totalHoursQuantile, approximate::totalHoursCdf);
+        assertRankErrors(Arrays.copyOf(t.medianAge, t.size), approximate::medianAgeQuantile, approximate::medianAgeCdf);
+    }
+
+    private static void assertRankErrors(double[] values, DoubleUnaryOperator quantile, DoubleUnaryOperator cdf) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q = 0; q <= 1.0001; q += 0.01) {
+            double estimate = quantile.applyAsDouble(Math.min(q, 1));
+            // an estimate interpolated between two adjacent values may stand for either of them
+            int above = firstIndex(sorted, estimate, true);
+            int below = firstIndex(sorted, estimate, false);
+            double lower = below > 0 && above == below ? rankBelow(sorted, sorted[below - 1]) : rankBelow(sorted, estimate);
+            double upper = above < sorted.length && above == below ? rankAtMost(sorted, sorted[above]) : rankAtMost(sorted, estimate);
+            assertTrue(lower - RANK_TOLERANCE <= q && q <= upper + RANK_TOLERANCE, "quantile " + q + " = " + estimate);
+        }
+        for (double value : sorted) {
+            double estimate = cdf.applyAsDouble(value);
+            assertTrue(rankBelow(sorted, value) - RANK_TOLERANCE <= estimate
+                && estimate <= rankAtMost(sorted, value) + RANK_TOLERANCE, "cdf " + value + " = " + estimate);
+        }
+    }
+
+    // the fraction of sorted below value
+    private static double rankBelow(double[] sorted, double value) {
+        return (double) firstIndex(sorted, value, false) / sorted.length;
+    }
+
+    // the fraction of sorted at most value
+    private static double rankAtMost(double[] sorted, double value) {
+        return (double) firstIndex(sorted, value, true) / sorted.length;
+    }
+
+    // the first index whose value is above value (at or above it unless inclusive)
+    private static int firstIndex(double[] sorted, double value, boolean inclusive) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value || inclusive && sorted[middle] == value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Test
+    void testSpaceSavingBeyondCapacity() {
+        // a few heavy keys in a long tail of ten times as many keys as counters
+        SplittableRandom random = new SplittableRandom(7);
+        SpaceSaving sketch = new SpaceSaving(Sketches.HEAVY_HITTER_COUNTERS);
+        Map<Long, Long> exact = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(10) == 0 ? random.nextInt(8) : 100 + random.nextInt(10 * Sketches.HEAVY_HITTER_COUNTERS);
+            long weight = 1 + random.nextInt(1000);
+            sketch.add(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.total());
+        assertTrue(sketch.maxError() > 0);
+        assertTrue(sketch.maxError() <= total / Sketches.HEAVY_HITTER_COUNTERS);
+        for (int i = 0; i < sketch.size(); i++) {
+            long trueWeight = exact.get(sketch.keyAt(i));
+            assertTrue(sketch.countAt(i) >= trueWeight);
+            assertTrue(sketch.countAt(i) - trueWeight <= sketch.errorAt(i));
+            assertTrue(sketch.errorAt(i) <= sketch.maxError());
+        }
+        exact.forEach((key, weight) -> {
+            if (weight > sketch.maxError()) {
+                assertTrue(sketch.estimate(key) >= weight, "heavy key " + key + " has no counter");
+            } else {
+                assertTrue(sketch.estimate(key) == 0 || sketch.estimate(key) >= weight);
+            }
+        });
+    }
+
+    @Test
+    void testHyperLogLogBeyondLinearCounting() {
+        for (int distinct : new int[] {100, 1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long value = 0; value < distinct; value++) {
+                // every value twice, duplicates must not count
+                sketch.addHash(HyperLogLog.hash(value));
+                sketch.addHash(HyperLogLog.hash(value));
+            }
+            assertEquals(distinct, sketch.estimate(), distinct * DISTINCT_TOLERANCE, "distinct " + distinct);
+        }
+    }
+
+    @Test
+    void testTDigestBeyondCompression() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int n : new int[] {1, 10, 1_000, 100_000}) {
+            TDigest digest = new TDigest(Sketches.DIGEST_COMPRESSION);
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                // skewed, with ties
+                values[i] = Math.floor(Math.exp(random.nextGaussian() * 2) * 100) / 100;
+                digest.add(values[i]);
+            }
+            digest.compress();
+            assertEquals(n, digest.size());
+            assertRankErrors(values, digest::quantile, digest::cdf);
+        }
+        TDigest empty = new TDigest(Sketches.DIGEST_COMPRESSION);
+        empty.compress();
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+    }
+}
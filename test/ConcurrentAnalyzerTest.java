@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Queries one shared analyzer from many threads while another thread keeps replacing the
+ * dataset with the first part of local.csv and appending the rest. Every answer must match
+ * the single-threaded answer of one of the two datasets, never a mix of both.
+ */
+public class ConcurrentAnalyzerTest {
+    private static final int READERS = 8;
+    private static final int ROUNDS = 200;
+
+    private static Path prefix;
+    private static Path rest;
+    // answers for the whole of local.csv and for its first part only
+    private static List<Object> fullAnswers;
+    private static List<Object> prefixAnswers;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        int split = lines.size() * 2 / 3;
+        prefix = Files.createTempFile("local-prefix", ".csv");
+        rest = Files.createTempFile("local-rest", ".csv");
+        prefix.toFile().deleteOnExit();
+        rest.toFile().deleteOnExit();
+        Files.write(prefix, lines.subList(0, split), StandardCharsets.UTF_8);
+        List<String> restLines = new ArrayList<>();
+        restLines.add(lines.get(0));
+        restLines.addAll(lines.subList(split, lines.size()));
+        Files.write(rest, restLines, StandardCharsets.UTF_8);
+
+        fullAnswers = answers(new OnlineCoursesAnalyzer("resources/local.csv"));
+        prefixAnswers = answers(new OnlineCoursesAnalyzer(prefix.toString()));
+        assertNotEquals(fullAnswers, prefixAnswers);
+    }
+
+    // Q1 to Q6 with the arguments of LocalAnalyzerTest; ordered maps are compared as entry lists
+    private static final List<Function<OnlineCoursesAnalyzer, Object>> QUERIES = List.of(
+            a -> new ArrayList<>(a.getPtcpCountByInst().entrySet()),
+            a -> new ArrayList<>(a.getPtcpCountByInstAndSubject().entrySet()),
+            a -> a.getCourseListOfInstructor(),
+            a -> a.getCourses(10, "hours"),
+            a -> a.getCourses(15, "participants"),
+            a -> a.searchCourses("computer", 20.0, 700),
+            a -> a.searchCourses("SCIENCE", 25.0, 400),
+            a -> a.recommendCourses(30, 0, 1),
+            a -> a.recommendCourses(35, 1, 0));
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        List<Object> answers = new ArrayList<>();
+        for (Function<OnlineCoursesAnalyzer, Object> query : QUERIES) {
+            answers.add(query.apply(analyzer));
+        }
+        return answers;
+    }
+
+    private static String lines(List<?> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            sb.append(value instanceof Map.Entry ? ((Map.Entry<?, ?>) value).getKey() + " == "
+                    + ((Map.Entry<?, ?>) value).getValue() : value).append("\n");
+        }
+        return sb.toString().strip();
+    }
+
+    private static String expected(String file) throws IOException {
+        return Files.readString(Paths.get("resources", "local_answer", file), StandardCharsets.UTF_8)
+                .replace("\r", "").strip();
+    }
+
+    @Test
+    void testFullAnswersMatchLocalAnswers() throws IOException {
+        assertEquals(expected("Q1.txt"), lines((List<?>) fullAnswers.get(0)));
+        assertEquals(expected("Q2.txt"), lines((List<?>) fullAnswers.get(1)));
+        assertEquals(expected("Q4_1.txt"), lines((List<?>) fullAnswers.get(3)));
+        assertEquals(expected("Q4_2.txt"), lines((List<?>) fullAnswers.get(4)));
+        assertEquals(expected("Q5_1.txt"), lines((List<?>) fullAnswers.get(5)));
+        assertEquals(expected("Q5_2.txt"), lines((List<?>) fullAnswers.get(6)));
+        assertEquals(expected("Q6_2.txt"), lines((List<?>) fullAnswers.get(7)));
+        assertEquals(expected("Q6_3.txt"), lines((List<?>) fullAnswers.get(8)));
+    }
+
+    @Test
+    void testConcurrentQueriesDuringAppends() throws Exception {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong queries = new AtomicLong();
+        try {
+            Future<Integer> writer = pool.submit(() -> {
+                int versions = 0;
+                while (!done.get()) {
+                    analyzer.reload(prefix.toString(), OnlineCoursesAnalyzer.IngestMode.STREAMING);
+                    analyzer.append(rest);
+                    versions += 2;
+                }
+                return versions;
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int q = 0; q < QUERIES.size(); q++) {
+                            Object answer = QUERIES.get(q).apply(analyzer);
+                            if (!answer.equals(fullAnswers.get(q)) && !answer.equals(prefixAnswers.get(q))) {
+                                fail("Query " + q + " returned an inconsistent result: " + answer);
+                            }
+                            queries.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get(5, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            done.set(true);
+            int versions = writer.get(1, TimeUnit.MINUTES);
+            System.out.printf("%d queries from %d threads in %.2f s (%.0f queries/s) over %d dataset versions%n",
+                    queries.get(), READERS, seconds, queries.get() / seconds, versions);
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+        // the writer stopped after an append, so the analyzer ends on the whole dataset again
+        assertEquals(fullAnswers, answers(analyzer));
+    }
+}
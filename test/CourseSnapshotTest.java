@@ -0,0 +1,178 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A snapshot must read back as the table it was written from, and a damaged one must be
+ * rejected rather than loaded. A write that fails must leave the previous snapshot in place.
+ */
+public class CourseSnapshotTest {
+    private Path directory;
+    private Path snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        snapshot = directory.resolve("local.snapshot");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static CourseTable loadCsv() throws IOException {
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(Paths.get("resources", "local.csv"),
+                StandardCharsets.UTF_8))) {
+            csv.nextRecord(); // header
+            while (csv.nextRecord()) {
+                table.add(csv);
+            }
+        }
+        return table;
+    }
+
+    private static List<String> values(StringDictionary dictionary) {
+        List<String> values = new ArrayList<>();
+        for (int code = 0; code < dictionary.size(); code++) {
+            values.add(dictionary.decode(code));
+        }
+        return values;
+    }
+
+    private static void assertTablesEqual(CourseTable expected, CourseTable actual) {
+        int n = expected.size;
+        assertEquals(n, actual.size);
+        assertEquals(values(expected.institutions), values(actual.institutions));
+        assertEquals(values(expected.numbers), values(actual.numbers));
+        assertEquals(values(expected.titles), values(actual.titles));
+        assertEquals(values(expected.instructors), values(actual.instructors));
+        assertEquals(values(expected.subjects), values(actual.subjects));
+        assertEquals(values(expected.instructorNames), values(actual.instructorNames));
+        for (int code = 0; code < expected.instructors.size(); code++) {
+            assertArrayEquals(expected.instructorNameCodes[code], actual.instructorNameCodes[code]);
+        }
+        int[][] expectedInts = {expected.institution, expected.number, expected.launchDay, expected.title,
+            expected.instructor, expected.subject, expected.year, expected.honorCode, expected.participants,
+            expected.audited, expected.certified};
+        int[][] actualInts = {actual.institution, actual.number, actual.launchDay, actual.title,
+            actual.instructor, actual.subject, actual.year, actual.honorCode, actual.participants,
+            actual.audited, actual.certified};
+        for (int i = 0; i < expectedInts.length; i++) {
+            assertArrayEquals(Arrays.copyOf(expectedInts[i], n), Arrays.copyOf(actualInts[i], n), "int column " + i);
+        }
+        double[][] expectedDoubles = {expected.percentAudited, expected.percentCertified, expected.percentCertified50,
+            expected.percentVideo, expected.percentForum, expected.gradeHigherZero, expected.totalHours,
+            expected.medianHoursCertification, expected.medianAge, expected.percentMale, expected.percentFemale,
+            expected.percentDegree};
+        double[][] actualDoubles = {actual.percentAudited, actual.percentCertified, actual.percentCertified50,
+            actual.percentVideo, actual.percentForum, actual.gradeHigherZero, actual.totalHours,
+            actual.medianHoursCertification, actual.medianAge, actual.percentMale, actual.percentFemale,
+            actual.percentDegree};
+        for (int i = 0; i < expectedDoubles.length; i++) {
+            assertArrayEquals(Arrays.copyOf(expectedDoubles[i], n), Arrays.copyOf(actualDoubles[i], n),
+                "double column " + i);
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        CourseTable table = loadCsv();
+        CourseSnapshot.write(table, snapshot);
+        assertTablesEqual(table, CourseSnapshot.read(snapshot));
+    }
+
+    @Test
+    void testAnalyzerFromSnapshotAnswersLikeCsv() throws IOException {
+        OnlineCoursesAnalyzer csv = new OnlineCoursesAnalyzer("resources/local.csv");
+        csv.writeSnapshot(snapshot.toString());
+        OnlineCoursesAnalyzer restored = OnlineCoursesAnalyzer.fromSnapshot(snapshot.toString());
+        assertEquals(new ArrayList<>(csv.getPtcpCountByInst().entrySet()),
+            new ArrayList<>(restored.getPtcpCountByInst().entrySet()));
+        assertEquals(new ArrayList<>(csv.getPtcpCountByInstAndSubject().entrySet()),
+            new ArrayList<>(restored.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(csv.getCourseListOfInstructor(), restored.getCourseListOfInstructor());
+        assertEquals(csv.getCourses(10, "hours"), restored.getCourses(10, "hours"));
+        assertEquals(csv.searchCourses("computer", 20.0, 700), restored.searchCourses("computer", 20.0, 700));
+        assertEquals(csv.recommendCourses(30, 0, 1), restored.recommendCourses(30, 0, 1));
+    }
+
+    private IOException assertRejected(byte[] bytes) throws IOException {
+        Path damaged = directory.resolve("damaged.snapshot");
+        Files.write(damaged, bytes);
+        return assertThrows(IOException.class, () -> CourseSnapshot.read(damaged));
+    }
+
+    @Test
+    void testFlippedPayloadByteIsRejected() throws IOException {
+        CourseSnapshot.write(loadCsv(), snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        for (int position : new int[] {32, bytes.length / 2, bytes.length - 1}) {
+            byte[] damaged = bytes.clone();
+            damaged[position] ^= 0x10;
+            assertTrue(assertRejected(damaged).getMessage().startsWith("Checksum mismatch"), "byte " + position);
+        }
+    }
+
+    @Test
+    void testTruncatedFileIsRejected() throws IOException {
+        CourseSnapshot.write(loadCsv(), snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        assertTrue(assertRejected(Arrays.copyOf(bytes, bytes.length - 1)).getMessage().startsWith("Truncated"));
+        assertTrue(assertRejected(Arrays.copyOf(bytes, 40)).getMessage().startsWith("Truncated"));
+        assertTrue(assertRejected(Arrays.copyOf(bytes, 10)).getMessage().startsWith("Not a course snapshot"));
+        assertTrue(assertRejected(new byte[0]).getMessage().startsWith("Not a course snapshot"));
+    }
+
+    @Test
+    void testWrongMagicOrVersionIsRejected() throws IOException {
+        CourseSnapshot.write(loadCsv(), snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        byte[] wrongMagic = bytes.clone();
+        ByteBuffer.wrap(wrongMagic).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0x12345678);
+        assertTrue(assertRejected(wrongMagic).getMessage().startsWith("Not a course snapshot"));
+
+        byte[] wrongVersion = bytes.clone();
+        ByteBuffer.wrap(wrongVersion).order(ByteOrder.LITTLE_ENDIAN).putInt(4, CourseSnapshot.VERSION - 1);
+        assertTrue(assertRejected(wrongVersion).getMessage().startsWith("Unsupported snapshot version"));
+
+        // a CSV file is not a snapshot either
+        assertTrue(assertRejected(Files.readAllBytes(Paths.get("resources", "local.csv")))
+            .getMessage().startsWith("Not a course snapshot"));
+    }
+
+    @Test
+    void testFailedWriteKeepsPreviousSnapshot() throws IOException {
+        CourseSnapshot.write(loadCsv(), snapshot);
+        byte[] before = Files.readAllBytes(snapshot);
+        // more rows than the columns hold: the write fails after the dictionaries
+        CourseTable broken = loadCsv();
+        broken.size = broken.institution.length + 1;
+        assertThrows(RuntimeException.class, () -> CourseSnapshot.write(broken, snapshot));
+        assertArrayEquals(before, Files.readAllBytes(snapshot));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(snapshot), files.toList());
+        }
+        assertTablesEqual(loadCsv(), CourseSnapshot.read(snapshot));
+    }
+}
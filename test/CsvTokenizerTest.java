@@ -0,0 +1,198 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The quoting rules of CsvTokenizer, with the input delivered whole and one char per read (so
+ * that every quote, CR and LF also falls on a buffer boundary), and its in-place number parsing
+ * against Integer.parseInt and Double.parseDouble.
+ */
+public class CsvTokenizerTest {
+
+    // hands out one char per read call
+    private static final class OneCharReader extends FilterReader {
+        OneCharReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(1, length));
+        }
+    }
+
+    private static List<List<String>> records(String csv, boolean oneCharReads) throws IOException {
+        Reader reader = oneCharReads ? new OneCharReader(new StringReader(csv)) : new StringReader(csv);
+        List<List<String>> records = new ArrayList<>();
+        try (CsvTokenizer tokenizer = new CsvTokenizer(reader)) {
+            while (tokenizer.nextRecord()) {
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    fields.add(tokenizer.field(i));
+                }
+                records.add(fields);
+            }
+        }
+        return records;
+    }
+
+    private static void assertRecords(List<List<String>> expected, String csv) throws IOException {
+        assertEquals(expected, records(csv, false));
+        assertEquals(expected, records(csv, true));
+    }
+
+    @Test
+    void testQuotedFieldsWithCommas() throws IOException {
+        assertRecords(List.of(List.of("MITx", "Science, Technology, Engineering, and Mathematics", "1")),
+            "MITx,\"Science, Technology, Engineering, and Mathematics\",1\n");
+    }
+
+    @Test
+    void testEscapedQuotes() throws IOException {
+        assertRecords(List.of(List.of("say \"hi\"", "\"", "x")),
+            "\"say \"\"hi\"\"\",\"\"\"\",x\n");
+    }
+
+    @Test
+    void testLineBreaksInsideQuotes() throws IOException {
+        assertRecords(List.of(List.of("a", "line 1\nline 2\r\nline 3", "b"), List.of("c")),
+            "a,\"line 1\nline 2\r\nline 3\",b\nc\n");
+    }
+
+    @Test
+    void testLineEndings() throws IOException {
+        List<List<String>> expected = List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"));
+        assertRecords(expected, "a,b\r\nc,d\r\ne,f\r\n");
+        assertRecords(expected, "a,b\nc,d\re,f");
+        assertRecords(expected, "a,b\r\nc,d\ne,f\r");
+    }
+
+    @Test
+    void testEmptyFields() throws IOException {
+        assertRecords(List.of(List.of("", "a", "", ""), List.of("", ""), List.of("b", "")),
+            ",a,,\n,\n\"b\",\"\"\n");
+    }
+
+    @Test
+    void testMissingFinalNewline() throws IOException {
+        assertRecords(List.of(List.of("a", "b"), List.of("c", "d")), "a,b\nc,d");
+        assertRecords(List.of(List.of("a", "quoted")), "a,\"quoted\"");
+        assertRecords(List.of(List.of("a", "")), "a,");
+    }
+
+    @Test
+    void testEmptyLinesAreSkipped() throws IOException {
+        assertRecords(List.of(List.of("a"), List.of("b")), "\na\n\r\n\nb\n\n");
+        assertRecords(List.of(), "");
+    }
+
+    @Test
+    void testRecordLines() throws IOException {
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("h\n\"x\ny\",z\r\n\nlast\n"))) {
+            List<Long> lines = new ArrayList<>();
+            while (tokenizer.nextRecord()) {
+                lines.add(tokenizer.recordLine());
+            }
+            assertEquals(List.of(1L, 2L, 5L), lines);
+        }
+    }
+
+    @Test
+    void testRecordTextRoundTrips() throws IOException {
+        String csv = "plain,\"with, comma\",\"with \"\"quote\"\"\",\"with\nbreak\",\n";
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(csv))) {
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(csv.substring(0, csv.length() - 1), tokenizer.recordText());
+        }
+    }
+
+    // a record with text as its second field, so that an empty text is still a record
+    private static CsvTokenizer single(String text) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("x," + text));
+        assertTrue(tokenizer.nextRecord());
+        return tokenizer;
+    }
+
+    private static void assertSameInt(String text) throws IOException {
+        Integer expected;
+        try {
+            expected = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        try (CsvTokenizer tokenizer = single(text)) {
+            if (expected == null) {
+                assertThrows(NumberFormatException.class, () -> tokenizer.intField(1), text);
+            } else {
+                assertEquals(expected, tokenizer.intField(1), text);
+            }
+        }
+    }
+
+    private static void assertSameDouble(String text) throws IOException {
+        Double expected;
+        try {
+            expected = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        try (CsvTokenizer tokenizer = single(text)) {
+            if (expected == null) {
+                assertThrows(NumberFormatException.class, () -> tokenizer.doubleField(1), text);
+            } else {
+                // bit for bit, so that -0.0 and the last digit of the rounding are checked too
+                assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(tokenizer.doubleField(1)), text);
+            }
+        }
+    }
+
+    @Test
+    void testNumbersOfLocalDataset() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        int checked = 0;
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(Paths.get("resources", "local.csv"),
+                StandardCharsets.UTF_8))) {
+            csv.nextRecord(); // header
+            while (csv.nextRecord()) {
+                for (int i = 6; i <= 10; i++) {
+                    assertEquals(Integer.parseInt(csv.field(i)), csv.intField(i), csv.field(i));
+                    checked++;
+                }
+                for (int i = 11; i <= 22; i++) {
+                    assertEquals(Double.doubleToLongBits(Double.parseDouble(csv.field(i))),
+                        Double.doubleToLongBits(csv.doubleField(i)), csv.field(i));
+                    checked++;
+                }
+            }
+        }
+        assertEquals((lines.size() - 1) * 17, checked);
+    }
+
+    @Test
+    void testIntEdgeCases() throws IOException {
+        for (String text : new String[] {"0", "7", "-7", "+7", "007", "-0", "999999999", "1000000000",
+                "2147483647", "-2147483648", "2147483648", "-2147483649", "12a", "", "-", "+", "1.5", " 1"}) {
+            assertSameInt(text);
+        }
+    }
+
+    @Test
+    void testDoubleEdgeCases() throws IOException {
+        for (String text : new String[] {"0", "0.0", "-0.0", "-0", "+1.5", "418.94", "0.1", "0.000001234",
+                ".5", "5.", "100", "123456789012345", "1234567890123456", "12345678901234567890",
+                "0.123456789012345", "0.1234567890123456", "1e5", "1.5E-3", "NaN", "Infinity", "-Infinity",
+                "0.00000000000000000000001", "1.2.3", "abc", "", "-", ".", "1;5", "1 "}) {
+            assertSameDouble(text);
+        }
+    }
+}
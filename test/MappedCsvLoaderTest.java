@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The record-aligned splits found in parallel must be the first record start of every segment,
+ * as a serial scan of the whole file finds them, also when quoted fields hold line breaks and
+ * span segments; and the mapped load must equal the streaming one.
+ */
+public class MappedCsvLoaderTest {
+    private static ForkJoinPool pool;
+    private static Path quoted;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pool = new ForkJoinPool(4);
+        quoted = Files.createTempFile("quoted", ".csv");
+        StringBuilder csv = new StringBuilder("\"a\nheader\",b\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"").append("x\n\"\"y\"\"\n".repeat(i % 7)).append("\",").append("z".repeat(i % 50))
+                .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Files.writeString(quoted, csv, StandardCharsets.UTF_8);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(quoted);
+    }
+
+    // the splits of a serial scan: the first record start at or after every multiple of target
+    private static List<List<Long>> expectedSplits(byte[] bytes, long target) {
+        List<Long> starts = new ArrayList<>();
+        List<Long> startLines = new ArrayList<>();
+        boolean inQuotes = false;
+        long line = 1;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '"') {
+                inQuotes = !inQuotes;
+            } else if (bytes[i] == '\n') {
+                line++;
+                if (!inQuotes) {
+                    starts.add((long) i + 1);
+                    startLines.add(line);
+                }
+            }
+        }
+        List<Long> splits = new ArrayList<>();
+        List<Long> lines = new ArrayList<>();
+        for (long nominal = 0; nominal < Math.max(1, bytes.length); nominal += target) {
+            for (int s = 0; s < starts.size(); s++) {
+                long start = starts.get(s);
+                if (start >= nominal) {
+                    if (start < bytes.length && (splits.isEmpty() || start > splits.get(splits.size() - 1))) {
+                        splits.add(start);
+                        lines.add(startLines.get(s));
+                    }
+                    break;
+                }
+            }
+        }
+        splits.add((long) bytes.length);
+        return List.of(splits, lines);
+    }
+
+    private static void assertSplits(Path file, long target) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        List<Long> lines = new ArrayList<>();
+        long[] splits;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            splits = MappedCsvLoader.recordAlignedSplits(channel, channel.size(), target, pool, lines);
+        }
+        List<Long> actual = new ArrayList<>();
+        for (long split : splits) {
+            actual.add(split);
+        }
+        assertEquals(expectedSplits(bytes, target), List.of(actual, lines), file + ", target " + target);
+    }
+
+    @Test
+    void testSplitsOfLocalDataset() throws IOException {
+        for (long target : new long[] {97, 1000, 4096, 1 << 20}) {
+            assertSplits(Paths.get("resources", "local.csv"), target);
+        }
+    }
+
+    @Test
+    void testSplitsWithQuotedLineBreaks() throws IOException {
+        for (long target : new long[] {1, 13, 64, 500, 1 << 20}) {
+            assertSplits(quoted, target);
+        }
+    }
+
+    @Test
+    void testSplitsOfDegenerateFiles() throws IOException {
+        Path file = Files.createTempFile("degenerate", ".csv");
+        try {
+            for (String content : new String[] {"", "header", "header\n", "header\nrow", "\"open\nquote,never closed\n"}) {
+                Files.writeString(file, content, StandardCharsets.UTF_8);
+                for (long target : new long[] {1, 3, 1 << 20}) {
+                    assertSplits(file, target);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testMappedLoadEqualsStreaming() throws IOException {
+        CourseTable mapped = MappedCsvLoader.load(Paths.get("resources", "local.csv"), pool);
+        OnlineCoursesAnalyzer streaming = new OnlineCoursesAnalyzer("resources/local.csv");
+        assertEquals(streaming.current.table.size, mapped.size);
+        List<Course> expected = streaming.courses();
+        List<Course> actual = mapped.asCourseList();
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.get(row).title, actual.get(row).title);
+            assertEquals(expected.get(row).launchDate, actual.get(row).launchDate);
+            assertEquals(expected.get(row).participants, actual.get(row).participants);
+        }
+        assertTrue(Arrays.equals(Arrays.copyOf(streaming.current.table.totalHours, mapped.size),
+            Arrays.copyOf(mapped.totalHours, mapped.size)));
+    }
+}
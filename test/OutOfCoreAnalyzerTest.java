@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OutOfCoreAnalyzer must answer the queries it supports (getPtcpCountByInst,
+ * getPtcpCountByInstAndSubject and getCourses) exactly like OnlineCoursesAnalyzer, in the same
+ * order, also when counts tie and when its group tables spill to disk.
+ */
+public class OutOfCoreAnalyzerTest {
+    private static final String HEADER = "Institution,Course Number,Launch Date,Course Title,Instructors,"
+        + "Course Subject,Year,Honor Code Certificates,Participants,Audited,Certified,% Audited,% Certified,"
+        + "% Certified of > 50% Course Content Accessed,% Played Video,% Posted in Forum,"
+        + "% Grade Higher Than Zero,Total Course Hours (Thousands),Median Hours for Certification,Median Age,"
+        + "% Male,% Female,% Bachelor's Degree or Higher";
+
+    private static Path workDirectory;
+    private static Path ties;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        workDirectory = Files.createTempDirectory("out-of-core-test");
+        ties = workDirectory.resolve("ties.csv");
+        // every institution-subject total, title hours and title participants ties with another
+        Files.write(ties, List.of(HEADER,
+            row("HarvardX", "Math", "Course B", 100, 50.0),
+            row("HarvardX", "Mathematics", "Course A", 100, 50.0),
+            row("MITx", "Art", "Course C", 100, 50.0),
+            row("MITx", "Biology", "Course AB", 50, 50.0),
+            row("MITx", "Art History", "Course", 50, 20.0)), StandardCharsets.UTF_8);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        Files.deleteIfExists(ties);
+        Files.deleteIfExists(workDirectory);
+    }
+
+    private static String row(String institution, String subject, String title, int participants, double hours) {
+        return institution + ",X1,01/01/2014," + title + ",Some Instructor," + subject + ",1,1," + participants
+            + ",10,5,10.0,5.0,50.0,60.0,5.0,30.0," + hours + ",10.0,28,50.0,50.0,60.0";
+    }
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        List<Object> answers = new ArrayList<>();
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            answers.add(analyzer.getCourses(10, by));
+            answers.add(analyzer.getCourses(3, 7, by));
+        }
+        return answers;
+    }
+
+    private static List<Object> answers(OutOfCoreAnalyzer analyzer) {
+        List<Object> answers = new ArrayList<>();
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            answers.add(analyzer.getCourses(10, by));
+            answers.add(analyzer.getCourses(3, 7, by));
+        }
+        return answers;
+    }
+
+    private static void assertSameAnswers(Path dataset, int groupTableEntries) throws IOException {
+        List<Object> expected = answers(new OnlineCoursesAnalyzer(dataset.toString()));
+        try (OutOfCoreAnalyzer analyzer = new OutOfCoreAnalyzer(dataset, workDirectory, groupTableEntries)) {
+            assertEquals(expected, answers(analyzer));
+        }
+    }
+
+    @Test
+    void testLocalDataset() throws IOException {
+        assertSameAnswers(Paths.get("resources", "local.csv"), OutOfCoreAnalyzer.GROUP_TABLE_ENTRIES);
+    }
+
+    @Test
+    void testLocalDatasetWithSpilling() throws IOException {
+        assertSameAnswers(Paths.get("resources", "local.csv"), 8);
+    }
+
+    @Test
+    void testTies() throws IOException {
+        assertSameAnswers(ties, OutOfCoreAnalyzer.GROUP_TABLE_ENTRIES);
+        assertSameAnswers(ties, 2);
+        Map<String, Integer> bySubject = new OnlineCoursesAnalyzer(ties.toString()).getPtcpCountByInstAndSubject();
+        assertEquals(5, bySubject.size());
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loading and querying on 1 thread and on several must give the same answers. The dataset is
+ * large enough for the parallel participant totals, rankings and recommendation batches.
+ */
+public class ParallelismTest {
+    private static Path generated;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        // the rows of local.csv over and over
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        List<String> repeated = new ArrayList<>();
+        repeated.add(lines.get(0));
+        for (int row = 0; row < OnlineCoursesAnalyzer.PARALLEL_TOP_K_ROWS + 1000; row++) {
+            repeated.add(lines.get(1 + row % (lines.size() - 1)));
+        }
+        generated = Files.createTempFile("parallelism", ".csv");
+        Files.write(generated, repeated, StandardCharsets.UTF_8);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        Files.deleteIfExists(generated);
+    }
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        List<Object> answers = new ArrayList<>();
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()));
+        answers.add(new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            answers.add(analyzer.getCourses(10, by));
+            answers.add(analyzer.getCourses(100, 50, by));
+        }
+        List<UserProfile> users = new ArrayList<>();
+        for (int i = 0; i < 3 * OnlineCoursesAnalyzer.PARALLEL_BATCH_USERS; i++) {
+            users.add(new UserProfile(18 + i % 50, i % 2, i / 2 % 2));
+        }
+        answers.add(analyzer.recommendCourses(users));
+        answers.add(analyzer.courses().size());
+        return answers;
+    }
+
+    @Test
+    void testOneAndSeveralThreadsAgree() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        List<Object> expected = null;
+        for (int parallelism : new int[] {1, 4, 2}) {
+            analyzer.setParallelism(parallelism);
+            for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+                analyzer.reload(generated.toString(), mode);
+                List<Object> answers = answers(analyzer);
+                if (expected == null) {
+                    expected = answers;
+                } else {
+                    assertEquals(expected, answers, parallelism + " threads, " + mode);
+                }
+            }
+        }
+        assertEquals(expected, answers(new OnlineCoursesAnalyzer(generated.toString())));
+    }
+
+    @Test
+    void testPoolPerParallelismIsReused() {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        OnlineCoursesAnalyzer other = new OnlineCoursesAnalyzer("resources/local.csv");
+        analyzer.setParallelism(3);
+        ForkJoinPool three = analyzer.pool;
+        assertEquals(3, three.getParallelism());
+        analyzer.setParallelism(5);
+        assertNotSame(three, analyzer.pool);
+        analyzer.setParallelism(3);
+        other.setParallelism(3);
+        assertSame(three, analyzer.pool);
+        assertSame(three, other.pool);
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        assertThrows(IllegalArgumentException.class, () -> analyzer.setParallelism(0));
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * getPtcpCountByInstAndSubject groups on (institution, subject) codes but keys its answer by
+ * "institution-subject", so two pairs whose keys collide because a name contains '-' must be
+ * summed into one entry, like a grouping on the key itself would.
+ */
+public class ParticipantTotalsTest {
+    private static final String HEADER = "Institution,Course Number,Launch Date,Course Title,Instructors,"
+        + "Course Subject,Year,Honor Code Certificates,Participants,Audited,Certified,% Audited,% Certified,"
+        + "% Certified of > 50% Course Content Accessed,% Played Video,% Posted in Forum,"
+        + "% Grade Higher Than Zero,Total Course Hours (Thousands),Median Hours for Certification,Median Age,"
+        + "% Male,% Female,% Bachelor's Degree or Higher";
+
+    private static Path dataset;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        dataset = Files.createTempFile("collisions", ".csv");
+        Files.write(dataset, List.of(HEADER,
+            row("A-B", "C", 100),
+            row("A", "B-C", 30),
+            row("A", "D", 120),
+            row("A-B", "C", 5)), StandardCharsets.UTF_8);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        Files.deleteIfExists(dataset);
+    }
+
+    private static String row(String institution, String subject, int participants) {
+        return institution + ",X1,01/01/2014,Course " + institution + subject + ",Some Instructor," + subject
+            + ",1,1," + participants + ",10,5,10.0,5.0,50.0,60.0,5.0,30.0,40.0,10.0,28,50.0,50.0,60.0";
+    }
+
+    @Test
+    void testCollidingKeysAreSummed() {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(dataset.toString());
+        Map<String, Integer> expected = Map.of("A-B-C", 135, "A-D", 120);
+        assertEquals(List.of(Map.entry("A-B-C", 135), Map.entry("A-D", 120)),
+            new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()));
+        LocalDate from = LocalDate.of(2013, 1, 1);
+        LocalDate to = LocalDate.of(2015, 1, 1);
+        assertEquals(expected, analyzer.getPtcpCountByInstAndSubject(from, to));
+        List<Object> report = analyzer.report(new Report().getPtcpCountByInstAndSubject()
+            .getPtcpCountByInstAndSubject(from, to));
+        assertEquals(expected, report.get(0));
+        assertEquals(expected, report.get(1));
+        assertEquals(Map.of("A-B-C", 135L, "A-D", 120L), analyzer.approximate().getPtcpCountByInstAndSubject(10));
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A QueryCache must count hits and misses, evict least recently read entries first, hold no
+ * entries after invalidateAll, and serve hits from many threads while an eviction holds its lock.
+ */
+public class QueryCacheTest {
+    @Test
+    void testHitsAndMisses() {
+        QueryCache cache = new QueryCache(16, 1 << 10);
+        AtomicInteger computed = new AtomicInteger();
+        List<Object> key = QueryCache.key("answer", 42);
+        assertEquals("a", cache.get(key, () -> { computed.incrementAndGet(); return "a"; }));
+        assertEquals("a", cache.get(key, () -> { computed.incrementAndGet(); return "b"; }));
+        assertEquals("c", cache.get(QueryCache.key("answer", 43), () -> "c"));
+        assertEquals(1, computed.get());
+        QueryCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(2, stats.getEntries());
+        assertEquals(2, stats.getWeight());
+
+        cache.setEnabled(false);
+        assertEquals("b", cache.get(key, () -> "b"));
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyRead() throws InterruptedException {
+        QueryCache cache = new QueryCache(8, 1 << 10);
+        for (int i = 0; i < 8; i++) {
+            cache.get(QueryCache.key("q", i), () -> "v");
+            Thread.sleep(1);
+        }
+        // reading 0 makes 1 the least recently read
+        cache.get(QueryCache.key("q", 0), () -> "stale");
+        cache.get(QueryCache.key("q", 8), () -> "v");
+        QueryCache.Stats stats = cache.stats();
+        assertTrue(stats.getEntries() <= 7, stats.toString());
+        assertEquals(9 - stats.getEntries(), stats.getEvictions());
+        assertEquals(stats.getEntries(), stats.getWeight());
+        assertEquals("v", cache.get(QueryCache.key("q", 0), () -> "stale"));
+        assertEquals("v", cache.get(QueryCache.key("q", 8), () -> "stale"));
+        assertEquals("fresh", cache.get(QueryCache.key("q", 1), () -> "fresh"));
+    }
+
+    @Test
+    void testEvictsByWeight() {
+        QueryCache cache = new QueryCache(1024, 100);
+        for (int i = 0; i < 10; i++) {
+            cache.get(QueryCache.key("q", i), () -> List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19));
+        }
+        QueryCache.Stats stats = cache.stats();
+        assertTrue(stats.getWeight() <= 100, stats.toString());
+        assertEquals(20L * stats.getEntries(), stats.getWeight());
+        // a result heavier than the whole cache is not kept
+        cache.get(QueryCache.key("huge"), () -> Collections.nCopies(200, "v"));
+        assertEquals(stats.getEntries(), cache.stats().getEntries());
+    }
+
+    @Test
+    void testInvalidateAll() {
+        QueryCache cache = new QueryCache(16, 1 << 10);
+        cache.get(QueryCache.key("q", 1), () -> "v");
+        cache.invalidateAll();
+        QueryCache.Stats stats = cache.stats();
+        assertEquals(0, stats.getEntries());
+        assertEquals(0, stats.getWeight());
+        assertEquals(1, stats.getInvalidations());
+        assertEquals("w", cache.get(QueryCache.key("q", 1), () -> "w"));
+    }
+
+    @Test
+    void testHitsDoNotWaitForEviction() throws Exception {
+        QueryCache cache = new QueryCache(64, 1 << 10);
+        for (int i = 0; i < 32; i++) {
+            int value = i;
+            cache.get(QueryCache.key("q", i), () -> value);
+        }
+        int threads = 8;
+        int readsPerThread = 100_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            // with the eviction lock held, only a hit path that takes no lock can finish
+            synchronized (cache.evictionLock) {
+                CountDownLatch start = new CountDownLatch(1);
+                for (int t = 0; t < threads; t++) {
+                    readers.add(pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < readsPerThread; i++) {
+                            int key = i % 32;
+                            assertEquals(key, (int) cache.get(QueryCache.key("q", key), () -> -1));
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> reader : readers) {
+                    reader.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        QueryCache.Stats stats = cache.stats();
+        assertEquals((long) threads * readsPerThread, stats.getHits());
+        assertEquals(32, stats.getMisses());
+    }
+}
@@ -0,0 +1,180 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every endpoint of a QueryServer on an ephemeral port must answer with the JSON of the direct
+ * analyzer call, batches included, and concurrent identical requests must all get that answer.
+ * Bad requests get a 400 with their reason; failures of the analyzer a 500 that does not leak it.
+ */
+public class QueryServerTest {
+    private static OnlineCoursesAnalyzer analyzer;
+    private static QueryServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        server = new QueryServer(analyzer, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        server.stop(0);
+    }
+
+    private static URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + server.port() + pathAndQuery);
+    }
+
+    private static HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(pathAndQuery)).GET().build(),
+            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)).build(),
+            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static void assertAnswer(Object expected, HttpResponse<String> response) {
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        assertEquals(QueryServer.json(expected), response.body());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSingleQueries() throws IOException, InterruptedException {
+        LocalDate from = LocalDate.of(2014, 1, 1);
+        LocalDate to = LocalDate.of(2015, 6, 30);
+        assertAnswer(analyzer.getPtcpCountByInst(), get("/ptcpCountByInst"));
+        assertAnswer(analyzer.getPtcpCountByInst(from, to), get("/ptcpCountByInst?from=2014-01-01&to=2015-06-30"));
+        assertAnswer(analyzer.getPtcpCountByInst(from, LocalDate.MAX), get("/ptcpCountByInst?from=2014-01-01"));
+        assertAnswer(analyzer.getPtcpCountByInstAndSubject(), get("/ptcpCountByInstAndSubject"));
+        assertAnswer(analyzer.getPtcpCountByInstAndSubject(from, to),
+            get("/ptcpCountByInstAndSubject?from=2014-01-01&to=2015-06-30"));
+        assertAnswer(analyzer.getCourseListOfInstructor(), get("/courseListOfInstructor"));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            assertAnswer(analyzer.getCourses(10, by), get("/courses?topK=10&by=" + by));
+            assertAnswer(analyzer.getCourses(20, 10, by), get("/courses?offset=20&limit=10&by=" + by));
+        }
+        assertAnswer(analyzer.searchCourses("computer", 20.0, 700),
+            get("/searchCourses?subject=computer&percentAudited=20&totalCourseHours=700"));
+        assertAnswer(analyzer.searchCourses("Science, Technology", 10.0, 50),
+            get("/searchCourses?subject=" + encode("Science, Technology") + "&percentAudited=10&totalCourseHours=50"));
+        assertAnswer(analyzer.searchCourses("science", 10.0, 50, from, to),
+            get("/searchCourses?subject=science&percentAudited=10&totalCourseHours=50&from=2014-01-01&to=2015-06-30"));
+        assertAnswer(analyzer.recommendCourses(30, 0, 1), get("/recommendCourses?age=30&gender=0&isBachelorOrHigher=1"));
+    }
+
+    @Test
+    void testBatches() throws IOException, InterruptedException {
+        assertAnswer(analyzer.recommendCourses(List.of(new UserProfile(30, 0, 1), new UserProfile(25, 1, 0),
+                new UserProfile(60, 1, 1))),
+            post("/batch/recommendCourses", "30,0,1\n25, 1, 0\r\n\n60,1,1\n"));
+        assertAnswer(analyzer.searchCourses(List.of(new SearchCriteria("computer", 20.0, 700),
+                new SearchCriteria("Science, Technology", 10.0, 50), new SearchCriteria("e", 0, 400))),
+            post("/batch/searchCourses", "computer,20,700\nScience, Technology,10,50\ne,0,400"));
+        assertAnswer(List.of(), post("/batch/recommendCourses", ""));
+    }
+
+    @Test
+    void testErrors() throws IOException, InterruptedException {
+        assertEquals(400, get("/courses?topK=10").statusCode());
+        assertEquals("{\"error\":\"Missing parameter: by\"}", get("/courses?topK=10").body());
+        assertEquals(400, get("/courses?topK=ten&by=hours").statusCode());
+        assertEquals(400, get("/ptcpCountByInst?from=yesterday").statusCode());
+        assertEquals(400, post("/batch/searchCourses", "computer,20").statusCode());
+        assertEquals(404, get("/nothing").statusCode());
+        assertEquals(405, get("/batch/recommendCourses").statusCode());
+        assertEquals(405, post("/courses?topK=10&by=hours", "").statusCode());
+        assertEquals(400, get("/courses?topK=10&by=popularity").statusCode());
+        assertEquals("{\"error\":\"Invalid criterion: popularity\"}", get("/courses?topK=10&by=popularity").body());
+    }
+
+    @Test
+    void testInternalErrorsDoNotLeak() throws IOException, InterruptedException {
+        OnlineCoursesAnalyzer failing = new OnlineCoursesAnalyzer("resources/local.csv") {
+            @Override
+            public Map<String, List<List<String>>> getCourseListOfInstructor() {
+                throw new IllegalStateException("internal detail");
+            }
+        };
+        QueryServer failingServer = new QueryServer(failing, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        failingServer.start();
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + failingServer.port() + "/courseListOfInstructor")).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            assertEquals(500, response.statusCode());
+            assertEquals("{\"error\":\"Internal server error\"}", response.body());
+        } finally {
+            failingServer.stop(0);
+        }
+    }
+
+    @Test
+    void testNonFiniteNumbersAreNull() {
+        assertEquals("[null,null,null,1.5,null]",
+            QueryServer.json(Arrays.asList(Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 1.5, null)));
+        assertEquals("{\"median\":null}", QueryServer.json(Map.of("median", Double.NaN)));
+    }
+
+    @Test
+    void testConcurrentIdenticalRequests() throws Exception {
+        int clients = 32;
+        String expected = QueryServer.json(analyzer.getCourseListOfInstructor());
+        String expectedBatch = QueryServer.json(analyzer.recommendCourses(List.of(new UserProfile(30, 0, 1),
+            new UserProfile(25, 1, 0))));
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                boolean batch = i % 2 == 1;
+                Callable<HttpResponse<String>> request = () -> {
+                    start.await();
+                    return batch ? post("/batch/recommendCourses", "30,0,1\n25,1,0\n") : get("/courseListOfInstructor");
+                };
+                responses.add(pool.submit(request));
+            }
+            start.countDown();
+            for (int i = 0; i < clients; i++) {
+                HttpResponse<String> response = responses.get(i).get();
+                assertEquals(200, response.statusCode());
+                assertEquals(i % 2 == 1 ? expectedBatch : expected, response.body());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
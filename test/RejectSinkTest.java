@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A lenient load must skip exactly the records that do not parse, report each with the line it
+ * starts on and its text, and load the rest; a strict load of the same file must fail.
+ * The dataset is large enough for the mapped loader to cut it into several chunks.
+ */
+public class RejectSinkTest {
+    private static final int COPIES = 80;
+
+    private static Path dataset;
+    private static Path clean;
+    private static final List<Long> expectedLines = new ArrayList<>();
+    private static final List<String> expectedRecords = new ArrayList<>();
+    private static long expectedLoaded;
+
+    private static final class RecordingSink implements RejectSink {
+        final List<Long> lines = new ArrayList<>();
+        final List<String> records = new ArrayList<>();
+        long finishedLoaded = -1;
+        long finishedRejected = -1;
+        int finishedCalls;
+
+        @Override
+        public void reject(long line, String reason, String record) {
+            assertNotNull(reason);
+            lines.add(line);
+            records.add(record);
+        }
+
+        @Override
+        public void finished(long loaded, long rejected) {
+            finishedLoaded = loaded;
+            finishedRejected = rejected;
+            finishedCalls++;
+        }
+    }
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        String header = lines.get(0);
+        List<String> rows = lines.subList(1, lines.size());
+        String[] bad = {
+            "too,few,fields",
+            rows.get(0).replaceFirst(",\\d+,", ",twenty,"),
+            "MITx,6.00x,12/05/2012,\"A title\nover two lines\",Someone,Computer Science,not a year",
+            rows.get(1).replace("/2013", "/20x3").replace("/2012", "/20x2").replace("/2014", "/20x4"),
+        };
+        StringBuilder withRejects = new StringBuilder(header).append('\n');
+        StringBuilder withoutRejects = new StringBuilder(header).append('\n');
+        long line = 2;
+        int written = 0;
+        for (int copy = 0; copy < COPIES; copy++) {
+            for (String row : rows) {
+                if (written % 997 == 5) {
+                    String record = bad[(written / 997) % bad.length];
+                    withRejects.append(record).append('\n');
+                    expectedLines.add(line);
+                    expectedRecords.add(record);
+                    line += record.chars().filter(c -> c == '\n').count() + 1;
+                }
+                withRejects.append(row).append('\n');
+                withoutRejects.append(row).append('\n');
+                line++;
+                written++;
+            }
+        }
+        expectedLoaded = written;
+        // the last record has no line break and does not parse either
+        withRejects.append("trailing,garbage");
+        expectedLines.add(line);
+        expectedRecords.add("trailing,garbage");
+
+        dataset = Files.createTempFile("rejects", ".csv");
+        clean = Files.createTempFile("clean", ".csv");
+        Files.writeString(dataset, withRejects, StandardCharsets.UTF_8);
+        Files.writeString(clean, withoutRejects, StandardCharsets.UTF_8);
+        assertTrue(Files.size(dataset) > 4 << 20, "too small for several mapped chunks");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        Files.deleteIfExists(dataset);
+        Files.deleteIfExists(clean);
+    }
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        return List.of(
+            new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()),
+            new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()),
+            analyzer.getCourses(10, "hours"),
+            analyzer.searchCourses("computer", 20.0, 700),
+            analyzer.courses().size());
+    }
+
+    private static void assertReported(RecordingSink sink) {
+        assertEquals(expectedLines, sink.lines);
+        assertEquals(expectedRecords, sink.records);
+        assertEquals(1, sink.finishedCalls);
+        assertEquals(expectedLoaded, sink.finishedLoaded);
+        assertEquals(expectedLines.size(), sink.finishedRejected);
+    }
+
+    @Test
+    void testLenientLoadInEveryMode() {
+        List<Object> expected = answers(new OnlineCoursesAnalyzer(clean.toString()));
+        for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+            RecordingSink sink = new RecordingSink();
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(dataset.toString(), mode, sink);
+            assertReported(sink);
+            assertEquals(expected, answers(analyzer), mode.name());
+        }
+    }
+
+    @Test
+    void testLenientReloadAndAppend() throws IOException {
+        for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+            RecordingSink sink = new RecordingSink();
+            analyzer.reload(dataset.toString(), mode, sink);
+            assertReported(sink);
+            assertEquals(expectedLoaded, analyzer.courses().size(), mode.name());
+        }
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        int before = analyzer.courses().size();
+        RecordingSink sink = new RecordingSink();
+        analyzer.append(dataset, sink);
+        assertReported(sink);
+        assertEquals(before + expectedLoaded, analyzer.courses().size());
+    }
+
+    @Test
+    void testStrictLoadFails() {
+        for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+            assertThrows(RuntimeException.class, () -> new OnlineCoursesAnalyzer(dataset.toString(), mode),
+                mode.name());
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+            int before = analyzer.courses().size();
+            assertThrows(RuntimeException.class, () -> analyzer.reload(dataset.toString(), mode), mode.name());
+            assertEquals(before, analyzer.courses().size(), mode.name());
+        }
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        int before = analyzer.courses().size();
+        assertThrows(RuntimeException.class, () -> analyzer.append(dataset));
+        assertEquals(before, analyzer.courses().size());
+    }
+}
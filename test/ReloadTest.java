@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A reload or append that fails must leave the current dataset in place.
+ */
+public class ReloadTest {
+    private static final String MISSING = "resources/no-such-dataset.csv";
+
+    private static List<Object> answers(OnlineCoursesAnalyzer analyzer) {
+        return List.of(
+            new ArrayList<>(analyzer.getPtcpCountByInst().entrySet()),
+            new ArrayList<>(analyzer.getPtcpCountByInstAndSubject().entrySet()),
+            analyzer.getCourses(10, "hours"),
+            analyzer.searchCourses("computer", 20.0, 700),
+            analyzer.courses().size());
+    }
+
+    @Test
+    void testReloadOfMissingFileKeepsDataset() {
+        for (OnlineCoursesAnalyzer.IngestMode mode : OnlineCoursesAnalyzer.IngestMode.values()) {
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+            List<Object> before = answers(analyzer);
+            assertThrows(IOException.class, () -> analyzer.reload(MISSING, mode), mode.name());
+            assertEquals(before, answers(analyzer), mode.name());
+            assertFalse(analyzer.getPtcpCountByInst().isEmpty());
+        }
+    }
+
+    @Test
+    void testLenientReloadOfMissingFileKeepsDataset() {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        List<Object> before = answers(analyzer);
+        assertThrows(IOException.class, () -> analyzer.reload(MISSING, OnlineCoursesAnalyzer.IngestMode.STREAMING,
+            (line, reason, record) -> fail("no record to reject")));
+        assertEquals(before, answers(analyzer));
+    }
+
+    @Test
+    void testStrictReloadOfMalformedFileKeepsDataset() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        Path malformed = Files.createTempFile("malformed", ".csv");
+        malformed.toFile().deleteOnExit();
+        List<String> prefix = new ArrayList<>(lines.subList(0, 20));
+        prefix.add("not,a,course");
+        Files.write(malformed, prefix, StandardCharsets.UTF_8);
+
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        List<Object> before = answers(analyzer);
+        assertThrows(RuntimeException.class,
+            () -> analyzer.reload(malformed.toString(), OnlineCoursesAnalyzer.IngestMode.STREAMING));
+        assertEquals(before, answers(analyzer));
+    }
+
+    @Test
+    void testAppendOfMissingFileKeepsDataset() {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        List<Object> before = answers(analyzer);
+        assertThrows(IOException.class, () -> analyzer.append(Paths.get(MISSING)));
+        assertEquals(before, answers(analyzer));
+    }
+
+    @Test
+    void testConstructorReportsMissingFile() {
+        assertThrows(UncheckedIOException.class, () -> new OnlineCoursesAnalyzer(MISSING));
+    }
+
+    @Test
+    void testSuccessfulReloadReplacesDataset() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        Map<String, Integer> full = analyzer.getPtcpCountByInst();
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        Path part = Files.createTempFile("part", ".csv");
+        part.toFile().deleteOnExit();
+        Files.write(part, lines.subList(0, 10), StandardCharsets.UTF_8);
+        analyzer.reload(part.toString(), OnlineCoursesAnalyzer.IngestMode.STREAMING);
+        assertEquals(9, analyzer.courses().size());
+        assertNotEquals(full, analyzer.getPtcpCountByInst());
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every query of a report, answered by the shared scan, must equal the answer of the analyzer
+ * method of the same name.
+ */
+public class ReportTest {
+    private static final LocalDate FIRST = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2100, 12, 31);
+    private static final LocalDate FROM = LocalDate.of(2014, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2015, 6, 30);
+
+    private static OnlineCoursesAnalyzer analyzer;
+
+    @BeforeAll
+    static void setUp() {
+        analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+    }
+
+    private static final class Case {
+        final Function<Report, Report> add;
+        final Function<OnlineCoursesAnalyzer, Object> call;
+
+        Case(Function<Report, Report> add, Function<OnlineCoursesAnalyzer, Object> call) {
+            this.add = add;
+            this.call = call;
+        }
+    }
+
+    private static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case(Report::getPtcpCountByInst, OnlineCoursesAnalyzer::getPtcpCountByInst));
+        cases.add(new Case(r -> r.getPtcpCountByInst(FROM, TO), a -> a.getPtcpCountByInst(FROM, TO)));
+        cases.add(new Case(Report::getPtcpCountByInstAndSubject, OnlineCoursesAnalyzer::getPtcpCountByInstAndSubject));
+        cases.add(new Case(r -> r.getPtcpCountByInstAndSubject(FROM, TO), a -> a.getPtcpCountByInstAndSubject(FROM, TO)));
+        cases.add(new Case(Report::getCourseListOfInstructor, OnlineCoursesAnalyzer::getCourseListOfInstructor));
+        for (String by : new String[] {"hours", "participants", "certified", "audited"}) {
+            cases.add(new Case(r -> r.getCourses(10, by), a -> a.getCourses(10, by)));
+            cases.add(new Case(r -> r.getCourses(5, 20, by), a -> a.getCourses(5, 20, by)));
+        }
+        for (String subject : new String[] {"science", "computer", "SCIENCE", "e"}) {
+            for (double percentAudited : new double[] {0, 10, 21, 25}) {
+                for (double totalHours : new double[] {50, 400, 700}) {
+                    cases.add(new Case(r -> r.searchCourses(subject, percentAudited, totalHours),
+                        a -> a.searchCourses(subject, percentAudited, totalHours)));
+                    cases.add(new Case(r -> r.searchCourses(subject, percentAudited, totalHours, FROM, TO),
+                        a -> a.searchCourses(subject, percentAudited, totalHours, FROM, TO)));
+                    cases.add(new Case(r -> r.searchCourses(subject, percentAudited, totalHours, FIRST, LAST),
+                        a -> a.searchCourses(subject, percentAudited, totalHours)));
+                }
+            }
+        }
+        cases.add(new Case(r -> r.recommendCourses(30, 0, 1), a -> a.recommendCourses(30, 0, 1)));
+        cases.add(new Case(r -> r.recommendCourses(35, 1, 0), a -> a.recommendCourses(35, 1, 0)));
+        Aggregation bySubject = Aggregation.groupBy(CourseColumn.INSTITUTION, CourseColumn.SUBJECT)
+            .count().sum(CourseColumn.PARTICIPANTS).avg(CourseColumn.TOTAL_HOURS)
+            .where(CourseColumn.LAUNCH_DATE, FROM, TO);
+        cases.add(new Case(r -> r.aggregate(bySubject), a -> a.aggregate(bySubject)));
+        return cases;
+    }
+
+    // ordered maps compare as entry lists, aggregation results by columns and rows
+    private static Object comparable(Object answer) {
+        if (answer instanceof Map) {
+            return new ArrayList<>(((Map<?, ?>) answer).entrySet());
+        }
+        if (answer instanceof AggregationResult) {
+            AggregationResult result = (AggregationResult) answer;
+            return List.of(result.columns(), result.rows());
+        }
+        return answer;
+    }
+
+    @Test
+    void testReportMatchesIndividualCalls() {
+        List<Case> cases = cases();
+        Report report = new Report();
+        for (Case c : cases) {
+            report = c.add.apply(report);
+        }
+        List<Object> results = analyzer.report(report);
+        assertEquals(cases.size(), results.size());
+        for (int i = 0; i < cases.size(); i++) {
+            assertEquals(comparable(cases.get(i).call.apply(analyzer)), comparable(results.get(i)), "query " + i);
+        }
+    }
+
+    @Test
+    void testSingleQueryReports() {
+        for (Case c : cases()) {
+            List<Object> results = analyzer.report(c.add.apply(new Report()));
+            assertEquals(comparable(c.call.apply(analyzer)), comparable(results.get(0)));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * searchCourses over a launch date window that covers every course run must answer exactly
+ * like searchCourses without a window.
+ */
+public class WindowedSearchTest {
+    private static final LocalDate FIRST = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2100, 12, 31);
+    private static final String[] SUBJECTS = {"science", "SCIENCE", "computer", "Math", "hist", "e", "", "zzz"};
+    private static final double[] PERCENT_AUDITED = {0, 5, 10, 15, 20, 21, 25, 30, 50, 80, 100};
+    private static final double[] TOTAL_HOURS = {0, 1, 10, 25, 50, 100, 400, 700, 1000};
+
+    private static OnlineCoursesAnalyzer analyzer;
+
+    @BeforeAll
+    static void setUp() {
+        analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+    }
+
+    @Test
+    void testWindowCoveringAllDatesMatchesUnwindowedSearch() {
+        int nonEmpty = 0;
+        for (String subject : SUBJECTS) {
+            for (double percentAudited : PERCENT_AUDITED) {
+                for (double totalHours : TOTAL_HOURS) {
+                    List<String> expected = analyzer.searchCourses(subject, percentAudited, totalHours);
+                    assertEquals(expected, analyzer.searchCourses(subject, percentAudited, totalHours, FIRST, LAST),
+                        subject + ", " + percentAudited + ", " + totalHours);
+                    if (!expected.isEmpty()) {
+                        nonEmpty++;
+                    }
+                }
+            }
+        }
+        assertTrue(nonEmpty > 100);
+    }
+
+    @Test
+    void testBoundaryPercentage() {
+        // "science", 21.0, 50.0 disagreed while the window compared the rounded "% Audited" column
+        assertEquals(analyzer.searchCourses("science", 21.0, 50.0),
+            analyzer.searchCourses("science", 21.0, 50.0, FIRST, LAST));
+    }
+}